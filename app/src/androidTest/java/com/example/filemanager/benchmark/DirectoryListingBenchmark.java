@@ -0,0 +1,96 @@
+package com.example.filemanager.benchmark;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.system.StructStat;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.util.DirectoryItemTypeUtil;
+import com.example.filemanager.util.filesystem.DirectoryContentUtil;
+import com.example.filemanager.util.filesystem.FileStatUtil;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+// Attributes of a listing fetched with separate File getters, as before, versus one stat() per entry
+public class DirectoryListingBenchmark {
+    private static final int ENTRY_COUNT = 100_000;
+    private static final int DIRECTORY_EVERY = 10;
+
+    private File directory;
+    private long checksum;
+
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeTrue(Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark")));
+
+        directory = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "listing_benchmark");
+        directory.mkdirs();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            File file = new File(directory, "entry_" + i + ((i % DIRECTORY_EVERY == 0) ? "" : ".jpg"));
+            boolean isCreated = (i % DIRECTORY_EVERY == 0) ? file.mkdir() : file.createNewFile();
+            if (!isCreated && !file.exists()) {
+                throw new IOException("Unable to create " + file);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (directory == null) {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+
+    @Test
+    public void listAttributes() throws Exception {
+        Benchmark.Result fileGetters = Benchmark.measure("File getters, " + ENTRY_COUNT + " entries", 1, 5, this::listWithFileGetters);
+        Benchmark.Result oneStat = Benchmark.measure("One stat(), " + ENTRY_COUNT + " entries", 1, 5, this::listWithOneStat);
+
+        System.out.println(String.format(
+                Locale.US,
+                "Per entry: %.2f us with File getters, %.2f us with one stat()",
+                fileGetters.getMedianNs() / 1e3 / ENTRY_COUNT,
+                oneStat.getMedianNs() / 1e3 / ENTRY_COUNT
+        ));
+    }
+
+
+    private void listWithFileGetters() {
+        File[] files = DirectoryContentUtil.getDirectoryContent(directory.getPath());
+        for (File file : files) {
+            DirectoryItemType type = DirectoryItemTypeUtil.getDirectoryItemType(file);
+            consume(type, file.lastModified(), file.length(), file.isHidden(), file.toURI().toString());
+        }
+    }
+
+    private void listWithOneStat() {
+        String[] names = DirectoryContentUtil.getDirectoryContentNames(directory.getPath());
+        for (String name : names) {
+            StructStat stat = FileStatUtil.stat(new File(directory, name).getPath());
+            DirectoryItemType type = DirectoryItemTypeUtil.getDirectoryItemType(name, FileStatUtil.isDirectory(stat));
+            consume(type, FileStatUtil.getLastModified(stat), FileStatUtil.getSize(stat), name.startsWith("."), null);
+        }
+    }
+
+    // Keeps the results alive, so nothing is optimized away
+    private void consume(@NonNull DirectoryItemType type, long lastModified, long size, boolean isHidden, String uri) {
+        checksum += type.ordinal() + lastModified + size + (isHidden ? 1 : 0) + ((uri != null) ? uri.length() : 0);
+    }
+}
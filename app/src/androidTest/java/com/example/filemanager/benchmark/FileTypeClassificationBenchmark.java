@@ -0,0 +1,79 @@
+package com.example.filemanager.benchmark;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.webkit.MimeTypeMap;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.util.DirectoryItemTypeUtil;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// File type of a name looked up with MimeTypeMap URL parsing and a HashMap, as before, versus the extension trie
+public class FileTypeClassificationBenchmark {
+    private static final int NAME_COUNT = 100_000;
+    private static final String[] EXTENSIONS = {"jpg", "JPG", "png", "mp3", "mp4", "pdf", "txt", "zip", "tar.gz", "apk", "docx", ""};
+
+    private String[] filePaths = new String[NAME_COUNT];
+    private String[] fileNames = new String[NAME_COUNT];
+    private Map<String, DirectoryItemType> typeMap = new HashMap<>();
+    private long checksum;
+
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark")));
+
+        for (int i = 0; i < NAME_COUNT; i++) {
+            String extension = EXTENSIONS[i % EXTENSIONS.length];
+            // Every fourth name has a space, which the URL parser doesn't accept
+            fileNames[i] = ((i % 4 == 0) ? "IMG " : "IMG_") + i + (extension.isEmpty() ? "" : "." + extension);
+            filePaths[i] = "/storage/emulated/0/DCIM/Camera/" + fileNames[i];
+        }
+
+        // Same lookup cost as the old table, which is private to DirectoryItemTypeUtil now
+        for (String extension : EXTENSIONS) {
+            String lastExtension = extension.substring(extension.lastIndexOf('.') + 1);
+            typeMap.put(lastExtension, DirectoryItemTypeUtil.getDirectoryItemType("name." + lastExtension, false));
+        }
+    }
+
+
+    @Test
+    public void classifyNames() throws Exception {
+        Benchmark.Result mimeTypeMap = Benchmark.measure("MimeTypeMap and HashMap, " + NAME_COUNT + " names", this::classifyWithMimeTypeMap);
+        Benchmark.Result trie = Benchmark.measure("Extension trie, " + NAME_COUNT + " names", this::classifyWithTrie);
+
+        System.out.println(String.format(
+                Locale.US,
+                "Per name: %.1f ns with MimeTypeMap, %.1f ns with the trie",
+                (double) mimeTypeMap.getMedianNs() / NAME_COUNT,
+                (double) trie.getMedianNs() / NAME_COUNT
+        ));
+    }
+
+
+    private void classifyWithMimeTypeMap() {
+        for (String filePath : filePaths) {
+            DirectoryItemType type = typeMap.get(MimeTypeMap.getFileExtensionFromUrl(filePath));
+            consume((type != null) ? type : DirectoryItemType.OTHER);
+        }
+    }
+
+    private void classifyWithTrie() {
+        for (String fileName : fileNames) {
+            consume(DirectoryItemTypeUtil.getDirectoryItemType(fileName, false));
+        }
+    }
+
+    // Keeps the results alive, so nothing is optimized away
+    private void consume(@NonNull DirectoryItemType type) {
+        checksum += type.ordinal();
+    }
+}
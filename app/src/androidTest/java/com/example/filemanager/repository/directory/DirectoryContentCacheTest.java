@@ -0,0 +1,57 @@
+package com.example.filemanager.repository.directory;
+
+import android.support.test.InstrumentationRegistry;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryContentCacheTest {
+    private DirectoryContentCache cache;
+    private String directory;
+    private DirectoryListing listing;
+
+
+    @Before
+    public void setUp() {
+        File file = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "directory_content_cache_test");
+        assertTrue(file.isDirectory() || file.mkdirs());
+
+        cache = new DirectoryContentCache(100);
+        directory = file.getPath();
+        listing = new DirectoryListing.Builder(directory, 1)
+                .add(DirectoryItemType.TEXT, "a.txt", 0, 0, false)
+                .build();
+    }
+
+
+    @Test
+    public void keepsListingReadWithoutInvalidation() {
+        long lastModified = cache.getLastModified(directory);
+        long generation = cache.getGeneration();
+
+        cache.put(directory, lastModified, generation, listing);
+
+        assertSame(listing, cache.get(directory));
+    }
+
+    @Test
+    public void dropsListingReadWhileDirectoryWasChanged() {
+        long lastModified = cache.getLastModified(directory);
+        long generation = cache.getGeneration();
+
+        // A change finished while the listing was being read
+        cache.invalidate(directory);
+        cache.put(directory, lastModified, generation, listing);
+
+        assertNull(cache.get(directory));
+    }
+}
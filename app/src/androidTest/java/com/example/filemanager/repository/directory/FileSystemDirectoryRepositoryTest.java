@@ -0,0 +1,131 @@
+package com.example.filemanager.repository.directory;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.system.Os;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileSystemDirectoryRepositoryTest {
+    private static final long LAST_MODIFICATION_TIME = 1_500_000_000_000L;
+
+    private File root;
+    private File directory;
+    private FileSystemDirectoryRepository repository;
+
+
+    @Before
+    public void setUp() {
+        root = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "directory_repository_test");
+        deleteRecursively(root);
+        directory = new File(root, "content");
+        assertTrue(directory.mkdirs());
+
+        repository = new FileSystemDirectoryRepository(
+                new DirectoryContentCache(10_000),
+                new FileContentTypeCache(new File(root, "content_types")),
+                new FolderSizeCache(new File(root, "folder_sizes")),
+                new File(root, "copy_journals"),
+                new File(root, "copy_manifests"),
+                2,
+                1
+        );
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+
+    @Test
+    public void listsEveryAttributeFromOneStat() throws Exception {
+        File photo = new File(directory, "photo.JPG");
+        write(photo, 5);
+        assertTrue(photo.setLastModified(LAST_MODIFICATION_TIME));
+        assertTrue(new File(directory, "folder").mkdir());
+        write(new File(directory, ".hidden"), 1);
+
+        DirectoryListing listing = repository.getDirectoryContent(directory.getPath()).blockingGet();
+        assertEquals(3, listing.size());
+
+        int photoIndex = indexOf(listing, "photo.JPG");
+        assertEquals(DirectoryItemType.IMAGE, listing.getType(photoIndex));
+        assertEquals(5, listing.getFileSize(photoIndex));
+        assertEquals(LAST_MODIFICATION_TIME, listing.getLastModificationTime(photoIndex));
+        assertFalse(listing.isHidden(photoIndex));
+        assertEquals(photo.getPath(), listing.get(photoIndex).getFilePath());
+
+        assertEquals(DirectoryItemType.DIRECTORY, listing.getType(indexOf(listing, "folder")));
+        assertTrue(listing.isHidden(indexOf(listing, ".hidden")));
+    }
+
+    @Test
+    public void listsBrokenSymbolicLinks() throws Exception {
+        Os.symlink(new File(directory, "missing.txt").getPath(), new File(directory, "link.txt").getPath());
+
+        DirectoryListing listing = repository.getDirectoryContent(directory.getPath()).blockingGet();
+
+        // Falls back to lstat(), the link itself is still listed
+        assertEquals(1, listing.size());
+        assertEquals("link.txt", listing.getName(0));
+        assertEquals(DirectoryItemType.TEXT, listing.getType(0));
+    }
+
+    @Test
+    public void listsEveryEntryOfLargeDirectoriesOnce() throws Exception {
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            write(new File(directory, "file" + i), 0);
+        }
+
+        DirectoryListing listing = repository.getDirectoryContent(directory.getPath()).blockingGet();
+
+        assertEquals(count, listing.size());
+        boolean[] seen = new boolean[count];
+        for (int i = 0; i < listing.size(); i++) {
+            int number = Integer.parseInt(listing.getName(i).substring("file".length()));
+            assertFalse(seen[number]);
+            seen[number] = true;
+        }
+    }
+
+
+    private static int indexOf(@NonNull DirectoryListing listing, @NonNull String name) {
+        for (int i = 0; i < listing.size(); i++) {
+            if (listing.getName(i).equals(name)) {
+                return i;
+            }
+        }
+        throw new AssertionError(name + " is not listed");
+    }
+
+    private static void write(@NonNull File file, int byteCount) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(new byte[byteCount]);
+        }
+    }
+
+    private static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.filemanager.repository.search;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileNameIndexTest {
+    private File root;
+    private File storage;
+    private FileNameIndex index;
+
+
+    @Before
+    public void setUp() {
+        root = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "file_name_index_test");
+        deleteRecursively(root);
+        storage = new File(root, "storage");
+        assertTrue(new File(storage, "Music/Albums").mkdirs());
+        assertTrue(new File(storage, "Pictures").mkdirs());
+
+        index = new FileNameIndex(new File(root, "index.idx"), storage.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+
+    @Test
+    public void findsNothingBeforeFirstUpdate() {
+        assertNull(index.search(storage.getPath(), "song", true));
+    }
+
+    @Test
+    public void findsNamesContainingQuery() throws Exception {
+        createFile("Music/Albums/Favourite Song.mp3");
+        createFile("Music/Other song.ogg");
+        createFile("Pictures/songbird.jpg");
+        createFile("Pictures/bird.jpg");
+
+        index.update();
+
+        assertEquals(3, index.search(storage.getPath(), "song", true).size());
+        assertEquals(1, index.search(new File(storage, "Pictures").getPath(), "song", true).size());
+        // Shorter than a trigram, every entry is a candidate
+        assertEquals(2, index.search(storage.getPath(), "rd", true).size());
+    }
+
+    @Test
+    public void matchesFoldedNames() throws Exception {
+        createFile("Pictures/Café Ångström.JPG");
+
+        index.update();
+
+        List<String> paths = index.search(storage.getPath(), "cafe angs", true);
+        assertEquals(Collections.singletonList(new File(storage, "Pictures/Café Ångström.JPG").getPath()), paths);
+    }
+
+    @Test
+    public void countsRepeatedTrigramOnce() throws Exception {
+        createFile("Pictures/aaaaaa.jpg");
+
+        index.update();
+
+        List<String> paths = index.search(storage.getPath(), "aaa", true);
+        assertEquals(Collections.singletonList(new File(storage, "Pictures/aaaaaa.jpg").getPath()), paths);
+    }
+
+    @Test
+    public void picksUpReportedChanges() throws Exception {
+        createFile("Music/old name.mp3");
+        index.update();
+
+        File renamed = new File(storage, "Music/new name.mp3");
+        assertTrue(new File(storage, "Music/old name.mp3").renameTo(renamed));
+        File album = new File(storage, "Pictures/Trip");
+        assertTrue(album.mkdir());
+        createFile("Pictures/Trip/name tag.jpg");
+        deleteRecursively(new File(storage, "Music/Albums"));
+
+        index.update(Arrays.asList(new File(storage, "Music").getPath(), new File(storage, "Pictures").getPath()));
+
+        List<String> paths = index.search(storage.getPath(), "name", true);
+        assertEquals(2, paths.size());
+        assertTrue(paths.contains(renamed.getPath()));
+        assertTrue(paths.contains(new File(album, "name tag.jpg").getPath()));
+        assertEquals(0, index.search(storage.getPath(), "albums", true).size());
+        // Music, Pictures, new name.mp3, Trip and name tag.jpg
+        assertEquals(5, index.getStats().getEntryCount());
+    }
+
+
+    private void createFile(@NonNull String relativePath) throws IOException {
+        assertTrue(new File(storage, relativePath).createNewFile());
+    }
+
+    private static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
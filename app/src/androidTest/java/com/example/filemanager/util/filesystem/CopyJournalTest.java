@@ -0,0 +1,192 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CopyJournalTest {
+    private static final long SOURCE_SIZE = 1000;
+    private static final long SOURCE_LAST_MODIFICATION_TIME = 1_500_000_000_000L;
+
+    private File root;
+    private File journalFile;
+    private File target;
+
+
+    @Before
+    public void setUp() throws IOException {
+        root = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "copy_journal_test");
+        deleteRecursively(root);
+        assertTrue(root.mkdirs());
+        journalFile = new File(root, "journal");
+        target = new File(root, "target");
+        write(target, 100, false);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+
+    @Test
+    public void resumesUnchangedTarget() {
+        record(100);
+
+        assertEquals(100, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    @Test
+    public void doesNotResumeFromChangedSource() {
+        record(100);
+
+        assertEquals(-1, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE + 1, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    // A kill in the middle of a chunk leaves bytes after the last record, they are cut off
+    @Test
+    public void resumesTargetWrittenPastLastRecord() throws IOException {
+        record(100);
+        write(target, 300, true);
+
+        assertEquals(100, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    @Test
+    public void copyCutsOffBytesPastLastRecord() throws IOException {
+        File sourceDirectory = new File(root, "source");
+        assertTrue(sourceDirectory.mkdirs());
+        File source = new File(sourceDirectory, "target");
+        byte[] content = new byte[(int) SOURCE_SIZE];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        write(source, content);
+        // Correct up to the record, garbage from the interrupted chunk after it
+        write(target, Arrays.copyOf(content, 100));
+        write(target, 300, true);
+
+        CopyJournal journal = new CopyJournal(journalFile);
+        journal.record(target, SOURCE_SIZE, source.lastModified(), 100);
+        AtomicLong skippedByteCount = new AtomicLong();
+        CopyUtil.CopyListener listener = new CopyUtil.CopyListener() {
+            @Override
+            public void onBytesCopied(long byteCount) {
+            }
+
+            @Override
+            public void onBytesSkipped(long byteCount) {
+                skippedByteCount.addAndGet(byteCount);
+            }
+
+            @Override
+            public void onFileCopied() {
+            }
+        };
+        CopyUtil.copy(source.getPath(), root.getPath(), new CopyContext(listener, null, journal, null));
+
+        assertEquals(100, skippedByteCount.get());
+        assertArrayEquals(content, read(target));
+    }
+
+    @Test
+    public void copiesShrunkTargetAgain() throws IOException {
+        record(100);
+        write(target, 50, false);
+
+        assertEquals(0, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    @Test
+    public void refusesReplacedTarget() throws IOException {
+        record(100);
+        // Same name, size and time, but another file
+        File replacement = new File(root, "replacement");
+        write(replacement, 100, false);
+        assertTrue(replacement.setLastModified(target.lastModified()));
+        assertTrue(replacement.renameTo(target));
+
+        assertEquals(-1, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    @Test
+    public void ignoresJournalOfOlderVersion() throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(journalFile))) {
+            output.writeUTF(target.getPath());
+            output.writeLong(SOURCE_SIZE);
+            output.writeLong(SOURCE_LAST_MODIFICATION_TIME);
+            output.writeLong(100);
+        }
+
+        assertEquals(-1, new CopyJournal(journalFile).getResumeOffset(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME));
+    }
+
+    @Test
+    public void deletesOnlyOldJournals() throws IOException {
+        File oldJournal = new File(root, "old");
+        write(oldJournal, 10, false);
+        assertTrue(oldJournal.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8)));
+        record(100);
+
+        CopyJournal.deleteOlderThan(root, TimeUnit.DAYS.toMillis(7));
+
+        assertFalse(oldJournal.exists());
+        assertTrue(journalFile.exists());
+    }
+
+
+    private void record(long copiedBytes) {
+        CopyJournal journal = new CopyJournal(journalFile);
+        journal.record(target, SOURCE_SIZE, SOURCE_LAST_MODIFICATION_TIME, copiedBytes);
+        journal.close();
+    }
+
+    private static void write(@NonNull File file, int size, boolean isAppending) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file, isAppending)) {
+            output.write(new byte[size]);
+        }
+    }
+
+    private static void write(@NonNull File file, @NonNull byte[] content) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(content);
+        }
+    }
+
+    @NonNull
+    private static byte[] read(@NonNull File file) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            input.readFully(content);
+        }
+        return content;
+    }
+
+    private static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+
+import com.example.filemanager.model.JobHandle;
+import com.example.filemanager.model.exception.JobCancelledException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelCopyUtilTest {
+    private static final int FILE_COUNT = 50;
+
+    private File root;
+    private File source;
+    private File target;
+    private ExecutorService executor;
+
+
+    @Before
+    public void setUp() throws IOException {
+        root = new File(InstrumentationRegistry.getTargetContext().getCacheDir(), "parallel_copy_test");
+        deleteRecursively(root);
+        source = new File(root, "source");
+        target = new File(root, "target");
+        assertTrue(new File(source, "nested").mkdirs());
+        assertTrue(target.mkdirs());
+        for (int i = 0; i < FILE_COUNT; i++) {
+            write(new File(source, "file" + i), 1000);
+            write(new File(source, "nested/file" + i), 1000);
+        }
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        // A failed interrupt test must not leave the runner's thread interrupted
+        Thread.interrupted();
+        executor.shutdownNow();
+        deleteRecursively(root);
+    }
+
+
+    @Test
+    public void copiesWholeTree() {
+        ParallelCopyUtil.copy(source.getPath(), target.getPath(), executor, 2, CopyContext.empty());
+
+        assertEquals(FILE_COUNT + 1, new File(target, "source").list().length);
+        assertEquals(FILE_COUNT, new File(target, "source/nested").list().length);
+    }
+
+    @Test
+    public void removesEverythingCopiedWhenCancelled() throws IOException {
+        File existing = new File(target, "existing.txt");
+        write(existing, 10);
+
+        JobHandle job = new JobHandle();
+        CopyContext context = new CopyContext(new CancellingListener(job, FILE_COUNT / 2), job, null, null);
+        try {
+            ParallelCopyUtil.copy(source.getPath(), target.getPath(), executor, 2, context);
+            fail();
+        } catch (JobCancelledException ex) {
+            context.deleteCreatedFiles();
+        }
+
+        // Only what was there before remains, the source is complete
+        String[] targetNames = target.list();
+        assertEquals(1, targetNames.length);
+        assertEquals("existing.txt", targetNames[0]);
+        assertEquals(FILE_COUNT + 1, source.list().length);
+        assertEquals(FILE_COUNT, new File(source, "nested").list().length);
+    }
+
+    // Disposing the subscription cancels the job and interrupts the thread that runs it
+    @Test
+    public void removesEverythingCopiedWhenInterrupted() throws Exception {
+        JobHandle job = new JobHandle();
+        Thread copyThread = Thread.currentThread();
+        CopyContext context = new CopyContext(new InterruptingListener(copyThread, FILE_COUNT / 2), job, null, null);
+        try {
+            ParallelCopyUtil.copy(source.getPath(), target.getPath(), executor, 2, context);
+            fail();
+        } catch (JobCancelledException ex) {
+            // Workers stopped before the copy returned, nothing is written after the cleanup
+            assertTrue(Thread.interrupted());
+            context.deleteCreatedFiles();
+        }
+
+        assertEquals(0, target.list().length);
+        assertEquals(FILE_COUNT + 1, source.list().length);
+    }
+
+    @Test
+    public void removesPartialFileWhenInterruptedInTransfer() throws IOException {
+        File largeFile = new File(source, "large");
+        write(largeFile, 16 * 1024 * 1024);
+        CopyContext context = new CopyContext(new InterruptingListener(Thread.currentThread(), 0), new JobHandle(), null, null);
+        try {
+            CopyUtil.copy(largeFile.getPath(), target.getPath(), context);
+            fail();
+        } catch (JobCancelledException ex) {
+            assertTrue(Thread.interrupted());
+        }
+
+        assertFalse(new File(target, "large").exists());
+    }
+
+    @Test
+    public void keepsTargetsOfFinishedItems() {
+        JobHandle job = new JobHandle();
+        CopyContext context = new CopyContext(null, job, null, null);
+        int createdFileCount = context.getCreatedFileCount();
+        CopyUtil.copy(new File(source, "file0").getPath(), target.getPath(), context);
+        context.keepCreatedFiles(createdFileCount);
+
+        File nestedTarget = new File(root, "nested_target");
+        CopyUtil.copy(new File(source, "file1").getPath(), nestedTarget.getPath(), context);
+        context.deleteCreatedFiles();
+
+        assertTrue(new File(target, "file0").exists());
+        // Parents created for a target are removed with it
+        assertFalse(nestedTarget.exists());
+    }
+
+
+    private static void write(@NonNull File file, int size) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(new byte[size]);
+        }
+    }
+
+    private static void deleteRecursively(@NonNull File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+
+    private static class InterruptingListener implements CopyUtil.CopyListener {
+        private final Thread thread;
+        private final int interruptAfterFileCount;
+        private int copiedFileCount;
+
+        // Interrupts after the first chunk when interruptAfterFileCount is 0
+        InterruptingListener(@NonNull Thread thread, int interruptAfterFileCount) {
+            this.thread = thread;
+            this.interruptAfterFileCount = interruptAfterFileCount;
+        }
+
+        @Override
+        public void onBytesCopied(long byteCount) {
+            if (interruptAfterFileCount == 0) {
+                thread.interrupt();
+            }
+        }
+
+        @Override
+        public void onBytesSkipped(long byteCount) {
+        }
+
+        @Override
+        public synchronized void onFileCopied() {
+            if (++copiedFileCount == interruptAfterFileCount) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private static class CancellingListener implements CopyUtil.CopyListener {
+        private final JobHandle job;
+        private final int cancelAfterFileCount;
+        private int copiedFileCount;
+
+        CancellingListener(@NonNull JobHandle job, int cancelAfterFileCount) {
+            this.job = job;
+            this.cancelAfterFileCount = cancelAfterFileCount;
+        }
+
+        @Override
+        public void onBytesCopied(long byteCount) {
+        }
+
+        @Override
+        public void onBytesSkipped(long byteCount) {
+        }
+
+        @Override
+        public synchronized void onFileCopied() {
+            if (++copiedFileCount == cancelAfterFileCount) {
+                job.cancel();
+            }
+        }
+    }
+}
@@ -3,18 +3,40 @@ package com.example;
 import android.app.Application;
 import android.support.annotation.NonNull;
 
+import com.example.filemanager.repository.directory.DirectoryContentCache;
 import com.example.filemanager.repository.directory.DirectoryRepository;
+import com.example.filemanager.repository.directory.FileContentTypeCache;
 import com.example.filemanager.repository.directory.FileSystemDirectoryRepository;
+import com.example.filemanager.repository.directory.FolderSizeCache;
 import com.example.filemanager.repository.directory.MockDirectoryRepository;
+import com.example.filemanager.repository.search.FileSystemSearchRepository;
+import com.example.filemanager.repository.search.MockSearchRepository;
+import com.example.filemanager.repository.search.SearchRepository;
 import com.example.filemanager.repository.settings.SettingsRepository;
 import com.example.filemanager.repository.settings.SharedPreferencesSettingsRepository;
 import com.example.filemanager.repository.storage.FileSystemStorageRepository;
 import com.example.filemanager.repository.storage.MockStorageRepository;
 import com.example.filemanager.repository.storage.StorageRepository;
+import com.example.filemanager.util.SortDirectoryItemsUtil;
+
+import java.io.File;
 
 public class App extends Application {
+    private static final int DIRECTORY_CONTENT_CACHE_MAX_ITEM_COUNT = 200_000;
+    private static final String CONTENT_TYPE_CACHE_FILE_NAME = "content_types";
+    private static final String FOLDER_SIZE_CACHE_FILE_NAME = "folder_sizes";
+    private static final String FILE_NAME_INDEX_DIRECTORY_NAME = "file_name_index";
+    private static final String COPY_JOURNAL_DIRECTORY_NAME = "copy_journals";
+    private static final String COPY_MANIFEST_DIRECTORY_NAME = "copy_manifests";
+    private static final int CONTENT_SEARCH_CONCURRENCY = 4;
+    private static final int COPY_THREAD_COUNT = 4;
+    private static final int REMOVABLE_STORAGE_COPY_THREAD_COUNT = 2;
+    private static final int PARALLEL_SORT_THRESHOLD = 8192;
+
+    private DirectoryContentCache directoryContentCache;
     private StorageRepository storageRepository;
     private DirectoryRepository directoryRepository;
+    private SearchRepository searchRepository;
     private SettingsRepository settingsRepository;
 
     @Override
@@ -25,9 +47,31 @@ public class App extends Application {
         storageRepository = new FileSystemStorageRepository(this);
 
         //directoryRepository = new MockDirectoryRepository();
-        directoryRepository = new FileSystemDirectoryRepository();
+        directoryContentCache = new DirectoryContentCache(DIRECTORY_CONTENT_CACHE_MAX_ITEM_COUNT);
+        FileContentTypeCache contentTypeCache = new FileContentTypeCache(new File(getCacheDir(), CONTENT_TYPE_CACHE_FILE_NAME));
+        FolderSizeCache folderSizeCache = new FolderSizeCache(new File(getCacheDir(), FOLDER_SIZE_CACHE_FILE_NAME));
+        directoryRepository = new FileSystemDirectoryRepository(
+                directoryContentCache,
+                contentTypeCache,
+                folderSizeCache,
+                new File(getCacheDir(), COPY_JOURNAL_DIRECTORY_NAME),
+                new File(getFilesDir(), COPY_MANIFEST_DIRECTORY_NAME),
+                COPY_THREAD_COUNT,
+                REMOVABLE_STORAGE_COPY_THREAD_COUNT
+        );
+
+        //searchRepository = new MockSearchRepository();
+        searchRepository = new FileSystemSearchRepository(new File(getCacheDir(), FILE_NAME_INDEX_DIRECTORY_NAME), CONTENT_SEARCH_CONCURRENCY);
 
         settingsRepository = new SharedPreferencesSettingsRepository(this);
+
+        SortDirectoryItemsUtil.setParallelSortThreshold(PARALLEL_SORT_THRESHOLD);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        directoryContentCache.trimMemory(level);
     }
 
     @NonNull
@@ -40,6 +84,11 @@ public class App extends Application {
         return directoryRepository;
     }
 
+    @NonNull
+    public SearchRepository getSearchRepository() {
+        return searchRepository;
+    }
+
     @NonNull
     public SettingsRepository getSettingsRepository() {
         return settingsRepository;
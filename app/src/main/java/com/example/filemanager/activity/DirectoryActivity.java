@@ -31,8 +31,11 @@ import com.example.filemanager.dialog.DirectoryItemInfoDialogFragment;
 import com.example.filemanager.dialog.ErrorDialogFragment;
 import com.example.filemanager.dialog.RenameDirectoryItemDialogFragment;
 import com.example.filemanager.dialog.SortTypeDialogFragment;
+import com.example.filemanager.model.DirectoryContentChange;
 import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.SearchProgress;
 import com.example.filemanager.repository.directory.DirectoryRepository;
+import com.example.filemanager.repository.search.SearchRepository;
 import com.example.filemanager.repository.settings.SettingsRepository;
 import com.example.filemanager.util.MimeTypeUtil;
 import com.example.filemanager.viewmodel.DirectoryViewModel;
@@ -63,6 +66,7 @@ public class DirectoryActivity extends AppCompatActivity implements
 
     private SearchView searchView;
     private String searchQuery = "";
+    private boolean scrollToTopOnNextContent = true;
 
     private ActionMode.Callback actionModeCallback = new ActionModeCallback();
     private ActionMode actionMode;
@@ -147,6 +151,10 @@ public class DirectoryActivity extends AppCompatActivity implements
                 viewModel.handleChangeSortTypeClicked();
                 break;
             }
+            case R.id.item_refresh: {
+                viewModel.handleRefreshClicked();
+                break;
+            }
             case R.id.item_create_directory: {
                 viewModel.handleCreateDirectoryClicked();
                 break;
@@ -155,6 +163,26 @@ public class DirectoryActivity extends AppCompatActivity implements
                 viewModel.handleShowOrHideHiddenFilesClicked();
                 break;
             }
+            case R.id.item_detect_content_types: {
+                viewModel.handleDetectContentTypesClicked();
+                break;
+            }
+            case R.id.item_search_in_subdirectories: {
+                viewModel.handleSearchInSubdirectoriesClicked();
+                break;
+            }
+            case R.id.item_fuzzy_search: {
+                viewModel.handleFuzzySearchClicked();
+                break;
+            }
+            case R.id.item_content_search: {
+                viewModel.handleContentSearchClicked();
+                break;
+            }
+            case R.id.item_copy_verification: {
+                viewModel.handleCopyVerificationClicked();
+                break;
+            }
             default: {
                 break;
             }
@@ -277,11 +305,13 @@ public class DirectoryActivity extends AppCompatActivity implements
 
         App app = (App) getApplication();
         DirectoryRepository directoryRepository = app.getDirectoryRepository();
+        SearchRepository searchRepository = app.getSearchRepository();
         SettingsRepository settingsRepository = app.getSettingsRepository();
 
         ViewModelProvider.Factory viewModelFactory = new DirectoryViewModel.Factory(
                 directory,
                 directoryRepository,
+                searchRepository,
                 settingsRepository
         );
 
@@ -295,10 +325,15 @@ public class DirectoryActivity extends AppCompatActivity implements
                 viewModel.isLoading.subscribe(this::showIsLoading),
                 viewModel.currentDirectory.subscribe(this::showCurrentDirectory),
                 viewModel.directoryContent.subscribe(this::showDirectoryContent),
+                viewModel.directoryContentChanges.subscribe(this::showDirectoryContentChange),
                 viewModel.error.subscribe(this::showError),
                 viewModel.searchQuery.subscribe(this::showSearchQuery),
+                viewModel.searchProgress.subscribe(this::showSearchProgress),
+                viewModel.contentSearchHits.subscribe(adapter::setContentSearchHits),
                 viewModel.isCopyModeEnabled.subscribe(this::showCopyModeEnabled),
                 viewModel.isCopyDialogVisible.subscribe(this::showOrHideCopyDialog),
+                viewModel.copyProgress.subscribe(copyDialog::showProgress),
+                viewModel.isCopyPaused.subscribe(copyDialog::showPaused),
 
                 viewModel.showSortTypeDialogEvent.subscribe(u -> showSortTypeDialog()),
                 viewModel.showCreateDirectoryDialogEvent.subscribe(u -> showCreateDirectoryDialog()),
@@ -324,6 +359,8 @@ public class DirectoryActivity extends AppCompatActivity implements
 
     private void showCurrentDirectory(@NonNull String currentDirectory) {
         binding.directoryPathTextView.setText(currentDirectory);
+        scrollToTopOnNextContent = true;
+        showSearchSubtitle(null);
     }
 
     private void showDirectoryContent(@NonNull List<DirectoryItem> directoryContent) {
@@ -331,7 +368,19 @@ public class DirectoryActivity extends AppCompatActivity implements
         binding.emptyDirectoryTextView.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
 
         adapter.setData(directoryContent);
-        recyclerViewLayoutManager.scrollToPositionWithOffset(0, 0);
+
+        // Streamed chunks and file changes update the list in place, keep the scroll position for them
+        if (scrollToTopOnNextContent) {
+            recyclerViewLayoutManager.scrollToPositionWithOffset(0, 0);
+            scrollToTopOnNextContent = false;
+        }
+    }
+
+    private void showDirectoryContentChange(@NonNull DirectoryContentChange change) {
+        boolean isEmpty = change.getItems().isEmpty();
+        binding.emptyDirectoryTextView.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
+
+        adapter.applyChange(change);
     }
 
     private void showError(@NonNull Throwable error) {
@@ -341,6 +390,20 @@ public class DirectoryActivity extends AppCompatActivity implements
 
     private void showSearchQuery(@NonNull String searchQuery) {
         adapter.setSearchQuery(searchQuery);
+        scrollToTopOnNextContent = true;
+        showSearchSubtitle(null);
+    }
+
+    private void showSearchProgress(@NonNull SearchProgress progress) {
+        int stringId = progress.isFinished() ? R.string.search_finished : R.string.search_in_progress;
+        showSearchSubtitle(getString(stringId, progress.getScannedFileCount(), progress.getFilesPerSecond()));
+    }
+
+    private void showSearchSubtitle(@Nullable String subtitle) {
+        ActionBar actionBar = getSupportActionBar();
+        if (actionBar != null) {
+            actionBar.setSubtitle(subtitle);
+        }
     }
 
     @SuppressLint("RestrictedApi")
@@ -358,7 +421,17 @@ public class DirectoryActivity extends AppCompatActivity implements
 
     private void showOrHideCopyDialog(boolean show) {
         if (show) {
-            copyDialog.show(this);
+            copyDialog.show(this, new CopyDialog.Callback() {
+                @Override
+                public void onPauseOrResumeClicked() {
+                    viewModel.handlePauseOrResumeCopyClicked();
+                }
+
+                @Override
+                public void onCancelClicked() {
+                    viewModel.handleCancelCopyClicked();
+                }
+            });
         } else {
             copyDialog.dismiss();
         }
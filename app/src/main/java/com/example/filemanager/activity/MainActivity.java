@@ -19,6 +19,7 @@ import com.example.filemanager.adapter.StorageItemsAdapter;
 import com.example.filemanager.databinding.ActivityMainBinding;
 import com.example.filemanager.dialog.ErrorDialogFragment;
 import com.example.filemanager.model.StorageModel;
+import com.example.filemanager.repository.search.SearchRepository;
 import com.example.filemanager.repository.storage.StorageRepository;
 import com.example.filemanager.util.PermissionsUtil;
 import com.example.filemanager.viewmodel.StorageListViewModel;
@@ -99,7 +100,8 @@ public class MainActivity extends AppCompatActivity {
     private void createViewModel() {
         App app = (App) getApplication();
         StorageRepository storageRepository = app.getStorageRepository();
-        ViewModelProvider.Factory viewModelFactory = new StorageListViewModel.Factory(storageRepository);
+        SearchRepository searchRepository = app.getSearchRepository();
+        ViewModelProvider.Factory viewModelFactory = new StorageListViewModel.Factory(storageRepository, searchRepository);
 
         viewModel = ViewModelProviders
                 .of(this, viewModelFactory)
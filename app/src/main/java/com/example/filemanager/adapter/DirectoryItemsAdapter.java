@@ -26,15 +26,22 @@ import android.view.ViewGroup;
 
 import com.example.filemanager.R;
 import com.example.filemanager.databinding.ItemDirectoryItemBinding;
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.DirectoryContentChange;
 import com.example.filemanager.model.DirectoryItem;
 import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.ListChange;
 import com.example.filemanager.util.DateFormatUtil;
 import com.example.filemanager.util.FileSizeFormatUtil;
+import com.example.filemanager.util.NameFoldingUtil;
 import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAdapter.ViewHolder> {
 
@@ -52,8 +59,9 @@ public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAd
 
     private List<DirectoryItem> data = Collections.emptyList();
     private String searchQuery = "";
+    private Map<String, List<ContentSearchHit>> contentSearchHits = Collections.emptyMap();
     private Listener listener;
-    private List<DirectoryItem> selectedItems = new ArrayList<>();
+    private Set<DirectoryItem> selectedItems = new LinkedHashSet<>();
 
 
     public DirectoryItemsAdapter(Listener listener) {
@@ -65,11 +73,46 @@ public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAd
         this.searchQuery = searchQuery;
     }
 
+    // Shown instead of the date or size of matching files, the list itself comes with the next setData()
+    public void setContentSearchHits(@NonNull Map<String, List<ContentSearchHit>> contentSearchHits) {
+        this.contentSearchHits = contentSearchHits;
+    }
+
     public void setData(@NonNull List<DirectoryItem> data) {
+        // Already shown, e.g. after the same content was applied by applyChange()
+        if (this.data == data) {
+            return;
+        }
         this.data = data;
         notifyDataSetChanged();
     }
 
+    public void applyChange(@NonNull DirectoryContentChange change) {
+        // Ranges are relative to the previous content, anything else needs a full refresh
+        if (data != change.getPreviousItems()) {
+            setData(change.getItems());
+            return;
+        }
+
+        data = change.getItems();
+        for (ListChange listChange : change.getChanges()) {
+            switch (listChange.getType()) {
+                case INSERTED: {
+                    notifyItemRangeInserted(listChange.getPosition(), listChange.getCount());
+                    break;
+                }
+                case REMOVED: {
+                    notifyItemRangeRemoved(listChange.getPosition(), listChange.getCount());
+                    break;
+                }
+                case CHANGED: {
+                    notifyItemRangeChanged(listChange.getPosition(), listChange.getCount());
+                    break;
+                }
+            }
+        }
+    }
+
     public void resetSelection() {
         selectedItems.clear();
         notifyDataSetChanged();
@@ -166,6 +209,7 @@ public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAd
             showTypeImage(item);
             showDateIfNeeded(item);
             showFileSizeIfNeeded(item);
+            showContentSearchHitsIfNeeded(item);
             showItemSelected(isItemSelected);
             showIsInSelectMode(isInSelectMode);
         }
@@ -241,6 +285,20 @@ public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAd
             binding.textViewProperty.setText(formattedFileSize);
         }
 
+        private void showContentSearchHitsIfNeeded(@NonNull DirectoryItem item) {
+            List<ContentSearchHit> hits = contentSearchHits.get(item.getFilePath());
+            if (hits == null || hits.isEmpty()) {
+                return;
+            }
+
+            Context context = binding.getRoot().getContext();
+            ContentSearchHit firstHit = hits.get(0);
+            String hitsText = (hits.size() == 1)
+                    ? context.getString(R.string.content_search_hit, firstHit.getLineNumber(), firstHit.getLine())
+                    : context.getString(R.string.content_search_hits, firstHit.getLineNumber(), firstHit.getLine(), hits.size() - 1);
+            binding.textViewProperty.setText(hitsText);
+        }
+
         private void showItemSelected(boolean isItemSelected) {
             Resources resources = binding.getRoot().getContext().getResources();
             int backgroundColorId = isItemSelected ? R.color.light_gray : R.color.transparent;
@@ -335,8 +393,15 @@ public class DirectoryItemsAdapter extends RecyclerView.Adapter<DirectoryItemsAd
                 result.removeSpan(span);
             }
 
-            searchText = searchText.toLowerCase();
-            text = text.toLowerCase();
+            // Folding keeps the length of most names, then match positions map back onto the original text
+            String foldedText = NameFoldingUtil.fold(text);
+            if (foldedText.length() == text.length()) {
+                searchText = NameFoldingUtil.fold(searchText);
+                text = foldedText;
+            } else {
+                searchText = searchText.toLowerCase();
+                text = text.toLowerCase();
+            }
 
             // Highlight all searchText occurrences
             int indexOfKeyword = text.indexOf(searchText);
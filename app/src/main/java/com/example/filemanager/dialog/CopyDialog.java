@@ -2,27 +2,122 @@ package com.example.filemanager.dialog;
 
 import android.app.Dialog;
 import android.content.Context;
+import android.databinding.DataBindingUtil;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AlertDialog;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
 
 import com.example.filemanager.R;
+import com.example.filemanager.databinding.DialogCopyBinding;
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.util.FileSizeFormatUtil;
 
 public class CopyDialog {
-    private Dialog dialog;
+    private static final int PROGRESS_MAX = 1000;
+
+    private AlertDialog dialog;
+    private DialogCopyBinding binding;
+
+    public interface Callback {
+        void onPauseOrResumeClicked();
+
+        void onCancelClicked();
+    }
+
+    public void show(@NonNull Context context, @NonNull Callback callback) {
+        binding = DataBindingUtil.inflate(LayoutInflater.from(context), R.layout.dialog_copy, null, false);
 
-    public void show(@NonNull Context context) {
         dialog = new AlertDialog.Builder(context)
                 .setTitle(R.string.copy_dialog_title)
-                .setView(R.layout.dialog_copy)
+                .setView(binding.getRoot())
+                .setNeutralButton(R.string.copy_dialog_pause_button, null)
+                .setNegativeButton(R.string.copy_dialog_cancel_button, null)
                 .setCancelable(false)
                 .create();
 
         dialog.show();
+
+        // Set after show(), so clicks don't dismiss the dialog, it stays until the job has stopped
+        dialog.getButton(Dialog.BUTTON_NEUTRAL).setOnClickListener(v -> callback.onPauseOrResumeClicked());
+        dialog.getButton(Dialog.BUTTON_NEGATIVE).setOnClickListener(v -> {
+            v.setEnabled(false);
+            callback.onCancelClicked();
+        });
+    }
+
+    public void showPaused(boolean isPaused) {
+        if (dialog == null) {
+            return;
+        }
+
+        int textId = isPaused ? R.string.copy_dialog_resume_button : R.string.copy_dialog_pause_button;
+        dialog.getButton(Dialog.BUTTON_NEUTRAL).setText(textId);
+    }
+
+    public void showProgress(@NonNull CopyProgress progress) {
+        if (binding == null) {
+            return;
+        }
+
+        Context context = binding.getRoot().getContext();
+
+        // Nothing to measure when every item is moved by renaming
+        if (progress.getTotalBytes() > 0) {
+            binding.progressBar.setIndeterminate(false);
+            binding.progressBar.setMax(PROGRESS_MAX);
+            binding.progressBar.setProgress((int) (progress.getCopiedBytes() * PROGRESS_MAX / progress.getTotalBytes()));
+        }
+
+        binding.textViewProgress.setText(context.getString(
+                R.string.copy_dialog_progress,
+                FileSizeFormatUtil.formatFileSize(context, progress.getCopiedBytes()),
+                FileSizeFormatUtil.formatFileSize(context, progress.getTotalBytes()),
+                progress.getCopiedFileCount(),
+                progress.getTotalFileCount()
+        ));
+
+        showWorkerSpeeds(context, progress.getWorkerBytesPerSecond());
+
+        long remainingTimeMs = progress.getRemainingTimeMs();
+        if (remainingTimeMs < 0) {
+            binding.textViewSpeed.setVisibility(View.GONE);
+            return;
+        }
+
+        binding.textViewSpeed.setVisibility(View.VISIBLE);
+        binding.textViewSpeed.setText(context.getString(
+                R.string.copy_dialog_speed,
+                FileSizeFormatUtil.formatFileSize(context, progress.getBytesPerSecond()),
+                DateUtils.formatElapsedTime(remainingTimeMs / 1000)
+        ));
+    }
+
+    // With a single thread it would repeat the total speed
+    private void showWorkerSpeeds(@NonNull Context context, @NonNull long[] workerBytesPerSecond) {
+        if (workerBytesPerSecond.length < 2) {
+            binding.textViewWorkerSpeeds.setVisibility(View.GONE);
+            return;
+        }
+
+        StringBuilder speeds = new StringBuilder();
+        for (long bytesPerSecond : workerBytesPerSecond) {
+            if (speeds.length() > 0) {
+                speeds.append(", ");
+            }
+            speeds.append(context.getString(R.string.copy_dialog_worker_speed, FileSizeFormatUtil.formatFileSize(context, bytesPerSecond)));
+        }
+
+        binding.textViewWorkerSpeeds.setVisibility(View.VISIBLE);
+        binding.textViewWorkerSpeeds.setText(context.getString(R.string.copy_dialog_worker_speeds, speeds));
     }
 
     public void dismiss() {
         if (dialog != null) {
             dialog.dismiss();
         }
+        dialog = null;
+        binding = null;
     }
 }
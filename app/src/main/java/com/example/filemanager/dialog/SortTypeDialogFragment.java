@@ -37,8 +37,11 @@ public class SortTypeDialogFragment extends DialogFragment {
         return new AlertDialog.Builder(getActivity())
                 .setTitle(R.string.sort_type_dialog_title)
                 .setSingleChoiceItems(choices, getSortType(), (dialog, which) -> {})
-                .setPositiveButton(R.string.sort_type_dialog_positive_button, (dialog, id) -> {
-                    handlePositiveButtonClicked(dialog);
+                .setPositiveButton(R.string.sort_type_dialog_ascending_button, (dialog, id) -> {
+                    handleSortButtonClicked(dialog, false);
+                })
+                .setNeutralButton(R.string.sort_type_dialog_descending_button, (dialog, id) -> {
+                    handleSortButtonClicked(dialog, true);
                 })
                 .create();
     }
@@ -48,9 +51,9 @@ public class SortTypeDialogFragment extends DialogFragment {
         settingsRepository = app.getSettingsRepository();
     }
 
-    private void handlePositiveButtonClicked(@NonNull DialogInterface dialog) {
+    private void handleSortButtonClicked(@NonNull DialogInterface dialog, boolean isDescending) {
         int selectedPosition = ((AlertDialog) dialog).getListView().getCheckedItemPosition();
-        saveSortType(selectedPosition);
+        saveSortType(selectedPosition, isDescending);
         listener.onSortTypeChanged();
     }
 
@@ -58,7 +61,8 @@ public class SortTypeDialogFragment extends DialogFragment {
         return settingsRepository.getSortType().toInt();
     }
 
-    private void saveSortType(int sortType) {
+    private void saveSortType(int sortType, boolean isDescending) {
         settingsRepository.setSortType(SortType.fromInt(sortType));
+        settingsRepository.setSortDescending(isDescending);
     }
 }
@@ -0,0 +1,30 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+public class ContentSearchHit {
+    private DirectoryItem item;
+    private int lineNumber;
+    private String line;
+
+    public ContentSearchHit(@NonNull DirectoryItem item, int lineNumber, @NonNull String line) {
+        this.item = item;
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+
+    @NonNull
+    public DirectoryItem getItem() {
+        return item;
+    }
+
+    // Starts from 1
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @NonNull
+    public String getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+public class CopyProgress {
+    private long copiedBytes;
+    private long totalBytes;
+    private long copiedFileCount;
+    private long totalFileCount;
+    private long bytesPerSecond;
+    private long[] workerBytesPerSecond;
+    private boolean isFinished;
+
+    public CopyProgress(long copiedBytes, long totalBytes, long copiedFileCount, long totalFileCount, long bytesPerSecond, @NonNull long[] workerBytesPerSecond, boolean isFinished) {
+        this.copiedBytes = copiedBytes;
+        this.totalBytes = totalBytes;
+        this.copiedFileCount = copiedFileCount;
+        this.totalFileCount = totalFileCount;
+        this.bytesPerSecond = bytesPerSecond;
+        this.workerBytesPerSecond = workerBytesPerSecond;
+        this.isFinished = isFinished;
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getCopiedFileCount() {
+        return copiedFileCount;
+    }
+
+    public long getTotalFileCount() {
+        return totalFileCount;
+    }
+
+    // Recent throughput, not the average since the start
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    // Recent throughput of each thread that copied data, in the order they started
+    @NonNull
+    public long[] getWorkerBytesPerSecond() {
+        return workerBytesPerSecond;
+    }
+
+    // -1 until the throughput is known
+    public long getRemainingTimeMs() {
+        return (bytesPerSecond > 0) ? (totalBytes - copiedBytes) * 1000 / bytesPerSecond : -1;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+}
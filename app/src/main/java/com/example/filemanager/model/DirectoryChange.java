@@ -0,0 +1,31 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+public class DirectoryChange {
+    private DirectoryChangeType type;
+    private String filePath;
+    private DirectoryItem item;
+
+    public DirectoryChange(@NonNull DirectoryChangeType type, @NonNull String filePath, @Nullable DirectoryItem item) {
+        this.type = type;
+        this.filePath = filePath;
+        this.item = item;
+    }
+
+    @NonNull
+    public DirectoryChangeType getType() {
+        return type;
+    }
+
+    @NonNull
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Nullable
+    public DirectoryItem getItem() {
+        return item;
+    }
+}
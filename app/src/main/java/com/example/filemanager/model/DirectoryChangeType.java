@@ -0,0 +1,7 @@
+package com.example.filemanager.model;
+
+public enum DirectoryChangeType {
+    ADDED,
+    REMOVED,
+    MODIFIED
+}
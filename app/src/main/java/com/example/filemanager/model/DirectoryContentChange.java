@@ -0,0 +1,35 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+// New directory content together with the ranges that changed since previousItems.
+// Removals come first, from the last position down, then insertions and changes in ascending order,
+// so they can be applied one after another.
+public class DirectoryContentChange {
+    private List<DirectoryItem> previousItems;
+    private List<DirectoryItem> items;
+    private List<ListChange> changes;
+
+    public DirectoryContentChange(@NonNull List<DirectoryItem> previousItems, @NonNull List<DirectoryItem> items, @NonNull List<ListChange> changes) {
+        this.previousItems = previousItems;
+        this.items = items;
+        this.changes = changes;
+    }
+
+    @NonNull
+    public List<DirectoryItem> getPreviousItems() {
+        return previousItems;
+    }
+
+    @NonNull
+    public List<DirectoryItem> getItems() {
+        return items;
+    }
+
+    @NonNull
+    public List<ListChange> getChanges() {
+        return changes;
+    }
+}
@@ -1,30 +1,39 @@
 package com.example.filemanager.model;
 
+import android.net.Uri;
 import android.support.annotation.NonNull;
 
+import com.example.filemanager.util.NameFoldingUtil;
+import com.example.filemanager.util.NaturalSortKeyUtil;
+
+import java.io.File;
 import java.io.Serializable;
-import java.net.URI;
 import java.util.Date;
 
 public class DirectoryItem implements Serializable {
     private DirectoryItemType type;
     private String name;
+    private transient String foldedName;
+    private transient byte[] sortKey;
     private String filePath;
-    private String uri;
-    private Date lastModificationDate;
+    private long lastModificationTime;
     private long fileSizeInBytes;
     private boolean isHidden;
 
-    public DirectoryItem(@NonNull DirectoryItemType type, @NonNull String name, @NonNull String filePath, @NonNull String uri, @NonNull Date lastModificationDate, long fileSizeInBytes, boolean isHidden) {
+    public DirectoryItem(@NonNull DirectoryItemType type, @NonNull String name, @NonNull String filePath, long lastModificationTime, long fileSizeInBytes, boolean isHidden) {
         this.type = type;
         this.name = name;
         this.filePath = filePath;
-        this.uri = uri;
-        this.lastModificationDate = lastModificationDate;
+        this.lastModificationTime = lastModificationTime;
         this.fileSizeInBytes = fileSizeInBytes;
         this.isHidden = isHidden;
     }
 
+    DirectoryItem(@NonNull DirectoryItemType type, @NonNull String name, @NonNull String foldedName, @NonNull String filePath, long lastModificationTime, long fileSizeInBytes, boolean isHidden) {
+        this(type, name, filePath, lastModificationTime, fileSizeInBytes, isHidden);
+        this.foldedName = foldedName;
+    }
+
     @NonNull
     public DirectoryItemType getType() {
         return type;
@@ -35,6 +44,22 @@ public class DirectoryItem implements Serializable {
         return name;
     }
 
+    @NonNull
+    public String getFoldedName() {
+        if (foldedName == null) {
+            foldedName = NameFoldingUtil.fold(name);
+        }
+        return foldedName;
+    }
+
+    @NonNull
+    public byte[] getSortKey() {
+        if (sortKey == null) {
+            sortKey = NaturalSortKeyUtil.createSortKey(name);
+        }
+        return sortKey;
+    }
+
     @NonNull
     public String getFilePath() {
         return filePath;
@@ -42,12 +67,16 @@ public class DirectoryItem implements Serializable {
 
     @NonNull
     public String getUri() {
-        return uri;
+        return Uri.fromFile(new File(filePath)).toString();
     }
 
     @NonNull
     public Date getLastModificationDate() {
-        return lastModificationDate;
+        return new Date(lastModificationTime);
+    }
+
+    public long getLastModificationTime() {
+        return lastModificationTime;
     }
 
     public long getFileSizeInBytes() {
@@ -57,4 +86,20 @@ public class DirectoryItem implements Serializable {
     public boolean isHidden() {
         return isHidden;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DirectoryItem)) {
+            return false;
+        }
+        return filePath.equals(((DirectoryItem) o).filePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return filePath.hashCode();
+    }
 }
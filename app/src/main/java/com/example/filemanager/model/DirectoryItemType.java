@@ -1,5 +1,7 @@
 package com.example.filemanager.model;
 
+import android.support.annotation.NonNull;
+
 public enum  DirectoryItemType {
     DIRECTORY,
     IMAGE,
@@ -9,7 +11,14 @@ public enum  DirectoryItemType {
     ARCHIVE,
     OTHER;
 
+    private static final DirectoryItemType[] VALUES = values();
+
     public int toInt() {
         return ordinal();
     }
+
+    @NonNull
+    public static DirectoryItemType fromInt(int value) {
+        return VALUES[value];
+    }
 }
@@ -0,0 +1,328 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.util.NameFoldingUtil;
+import com.example.filemanager.util.NaturalSortKeyUtil;
+import com.example.filemanager.util.SortDirectoryItemsUtil;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Immutable directory content stored column by column, items are created on demand in get()
+public class DirectoryListing extends AbstractList<DirectoryItem> implements RandomAccess {
+    // Above this many added entries sorting again is cheaper than inserting them one by one
+    private static final int MAX_INCREMENTALLY_SORTED_ENTRIES = 64;
+
+    private String directory;
+    private String pathPrefix;
+    private int size;
+    private String[] names;
+    private String[] foldedNames;
+    private byte[] types;
+    private long[] lastModificationTimes;
+    private long[] fileSizes;
+    private BitSet hidden;
+    private byte[][] sortKeys;
+    private volatile boolean areSortKeysComplete;
+    private int[][] sortedIndices = new int[SortType.values().length * 2][];
+
+
+    private DirectoryListing(@NonNull Builder builder) {
+        directory = builder.directory;
+        pathPrefix = createPathPrefix(builder.directory);
+        size = builder.size;
+        // The builder's arrays are exactly full here, they are shared as its next add() reallocates them
+        names = builder.names;
+        foldedNames = builder.foldedNames;
+        types = builder.types;
+        lastModificationTimes = builder.lastModificationTimes;
+        fileSizes = builder.fileSizes;
+        hidden = (BitSet) builder.hidden.clone();
+        sortKeys = builder.sortKeys;
+    }
+
+    @NonNull
+    public static DirectoryListing empty(@NonNull String directory) {
+        return new Builder(directory, 0).build();
+    }
+
+    // Every entry is copied once, however many chunks the content was loaded in
+    @NonNull
+    public static DirectoryListing concat(@NonNull String directory, @NonNull List<DirectoryListing> chunks) {
+        int size = 0;
+        for (DirectoryListing chunk : chunks) {
+            size += chunk.size;
+        }
+
+        Builder builder = new Builder(directory, size);
+        for (DirectoryListing chunk : chunks) {
+            builder.addAll(chunk);
+        }
+        return builder.build();
+    }
+
+
+    @NonNull
+    @Override
+    public DirectoryItem get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+
+        return new DirectoryItem(
+                getType(index),
+                names[index],
+                foldedNames[index],
+                pathPrefix + names[index],
+                lastModificationTimes[index],
+                fileSizes[index],
+                hidden.get(index)
+        );
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @NonNull
+    public String getDirectory() {
+        return directory;
+    }
+
+    @NonNull
+    public String getName(int index) {
+        return names[index];
+    }
+
+    // Lowercase name without diacritics, computed once when the listing is built
+    @NonNull
+    public String getFoldedName(int index) {
+        return foldedNames[index];
+    }
+
+    @NonNull
+    public DirectoryItemType getType(int index) {
+        return DirectoryItemType.fromInt(types[index]);
+    }
+
+    public int getTypeCode(int index) {
+        return types[index];
+    }
+
+    public long getLastModificationTime(int index) {
+        return lastModificationTimes[index];
+    }
+
+    public long getFileSize(int index) {
+        return fileSizes[index];
+    }
+
+    public boolean isHidden(int index) {
+        return hidden.get(index);
+    }
+
+    // Permutation of all entries, built on first use per sort type and direction.
+    // A listing never changes, new content is a new listing, so the cache needs no invalidation.
+    // The returned array is shared and must not be modified.
+    @NonNull
+    public synchronized int[] getSortedIndices(@NonNull SortType sortType, boolean isDescending) {
+        int slot = sortType.toInt() * 2 + (isDescending ? 1 : 0);
+        int[] result = sortedIndices[slot];
+        if (result == null) {
+            result = isDescending
+                    ? reverse(getSortedIndices(sortType, false))
+                    : SortDirectoryItemsUtil.sortIndices(this, sortType);
+            sortedIndices[slot] = result;
+        }
+        return result;
+    }
+
+    // Carries the cached permutations of the listing this one was derived from, see DirectoryChangesUtil.
+    // previousToNewIndices maps kept entries and is -1 for removed ones, entries from firstAddedIndex on are new.
+    public void inheritSortedIndices(@NonNull DirectoryListing previous, @NonNull int[] previousToNewIndices, int firstAddedIndex) {
+        if (size - firstAddedIndex > MAX_INCREMENTALLY_SORTED_ENTRIES) {
+            return;
+        }
+
+        for (SortType sortType : SortType.values()) {
+            for (int direction = 0; direction < 2; direction++) {
+                int slot = sortType.toInt() * 2 + direction;
+                int[] previousSortedIndices = previous.getCachedSortedIndices(slot);
+                if (previousSortedIndices == null) {
+                    continue;
+                }
+
+                int[] result = SortDirectoryItemsUtil.updateSortedIndices(previousSortedIndices, previousToNewIndices, this, firstAddedIndex, sortType, direction == 1);
+                synchronized (this) {
+                    sortedIndices[slot] = result;
+                }
+            }
+        }
+    }
+
+    // Natural order collation key, see NaturalSortKeyUtil
+    @NonNull
+    public byte[] getSortKey(int index) {
+        if (!areSortKeysComplete) {
+            createSortKeys();
+        }
+        return sortKeys[index];
+    }
+
+    // Keys are only needed for sorting by name, so they are created on first use for the whole listing.
+    // Listings built from this one copy them, a new chunk or a change only computes keys of new entries.
+    private synchronized void createSortKeys() {
+        if (areSortKeysComplete) {
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (sortKeys[i] == null) {
+                sortKeys[i] = NaturalSortKeyUtil.createSortKey(names[i]);
+            }
+        }
+        areSortKeysComplete = true;
+    }
+
+    private synchronized int[] getCachedSortedIndices(int slot) {
+        return sortedIndices[slot];
+    }
+
+    @NonNull
+    private static int[] reverse(@NonNull int[] indices) {
+        int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            result[i] = indices[indices.length - 1 - i];
+        }
+        return result;
+    }
+
+    @NonNull
+    private static String createPathPrefix(@NonNull String directory) {
+        return directory.endsWith(File.separator) ? directory : directory + File.separator;
+    }
+
+
+    public static class Builder {
+        private String directory;
+        private int size;
+        private String[] names;
+        private String[] foldedNames;
+        private byte[] types;
+        private long[] lastModificationTimes;
+        private long[] fileSizes;
+        private BitSet hidden = new BitSet();
+        private byte[][] sortKeys;
+
+        public Builder(@NonNull String directory, int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            this.directory = directory;
+            names = new String[capacity];
+            foldedNames = new String[capacity];
+            types = new byte[capacity];
+            lastModificationTimes = new long[capacity];
+            fileSizes = new long[capacity];
+            sortKeys = new byte[capacity][];
+        }
+
+        @NonNull
+        public Builder add(@NonNull DirectoryItemType type, @NonNull String name, long lastModificationTime, long fileSize, boolean isHidden) {
+            ensureCapacity(size + 1);
+            names[size] = name;
+            foldedNames[size] = NameFoldingUtil.fold(name);
+            types[size] = (byte) type.toInt();
+            lastModificationTimes[size] = lastModificationTime;
+            fileSizes[size] = fileSize;
+            hidden.set(size, isHidden);
+            size++;
+            return this;
+        }
+
+        @NonNull
+        public Builder add(@NonNull DirectoryItem item) {
+            return add(item.getType(), item.getName(), item.getLastModificationTime(), item.getFileSizeInBytes(), item.isHidden());
+        }
+
+        @NonNull
+        public Builder add(@NonNull DirectoryListing listing, int index) {
+            ensureCapacity(size + 1);
+            names[size] = listing.names[index];
+            foldedNames[size] = listing.foldedNames[index];
+            types[size] = listing.types[index];
+            lastModificationTimes[size] = listing.lastModificationTimes[index];
+            fileSizes[size] = listing.fileSizes[index];
+            hidden.set(size, listing.hidden.get(index));
+            if (listing.areSortKeysComplete) {
+                sortKeys[size] = listing.sortKeys[index];
+            }
+            size++;
+            return this;
+        }
+
+        @NonNull
+        public Builder addAll(@NonNull DirectoryListing listing) {
+            ensureCapacity(size + listing.size);
+            System.arraycopy(listing.names, 0, names, size, listing.size);
+            System.arraycopy(listing.foldedNames, 0, foldedNames, size, listing.size);
+            System.arraycopy(listing.types, 0, types, size, listing.size);
+            System.arraycopy(listing.lastModificationTimes, 0, lastModificationTimes, size, listing.size);
+            System.arraycopy(listing.fileSizes, 0, fileSizes, size, listing.size);
+            // Keys still being created by another thread are not copied, they are recreated when needed
+            if (listing.areSortKeysComplete) {
+                System.arraycopy(listing.sortKeys, 0, sortKeys, size, listing.size);
+            }
+            for (int i = listing.hidden.nextSetBit(0); i >= 0; i = listing.hidden.nextSetBit(i + 1)) {
+                hidden.set(size + i);
+            }
+            size += listing.size;
+            return this;
+        }
+
+        @NonNull
+        public Builder addAll(@NonNull List<DirectoryItem> items) {
+            if (items instanceof DirectoryListing) {
+                return addAll((DirectoryListing) items);
+            }
+
+            ensureCapacity(size + items.size());
+            for (DirectoryItem item : items) {
+                add(item);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @NonNull
+        public DirectoryListing build() {
+            if (names.length != size) {
+                resize(size);
+            }
+            return new DirectoryListing(this);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= names.length) {
+                return;
+            }
+
+            resize(Math.max(capacity, names.length * 2));
+        }
+
+        private void resize(int newCapacity) {
+            names = Arrays.copyOf(names, newCapacity);
+            foldedNames = Arrays.copyOf(foldedNames, newCapacity);
+            types = Arrays.copyOf(types, newCapacity);
+            lastModificationTimes = Arrays.copyOf(lastModificationTimes, newCapacity);
+            fileSizes = Arrays.copyOf(fileSizes, newCapacity);
+            sortKeys = Arrays.copyOf(sortKeys, newCapacity);
+        }
+    }
+}
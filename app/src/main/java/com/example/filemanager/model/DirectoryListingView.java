@@ -0,0 +1,50 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+public class DirectoryListingView extends AbstractList<DirectoryItem> implements RandomAccess {
+    private DirectoryListing listing;
+    private int[] indices;
+
+    public DirectoryListingView(@NonNull DirectoryListing listing, @NonNull int[] indices) {
+        this.listing = listing;
+        this.indices = indices;
+    }
+
+    @NonNull
+    public static DirectoryListingView of(@NonNull DirectoryListing listing) {
+        int[] indices = new int[listing.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        return new DirectoryListingView(listing, indices);
+    }
+
+    @NonNull
+    @Override
+    public DirectoryItem get(int index) {
+        return listing.get(indices[index]);
+    }
+
+    @Override
+    public int size() {
+        return indices.length;
+    }
+
+    @NonNull
+    public DirectoryListing getListing() {
+        return listing;
+    }
+
+    public int getListingIndex(int index) {
+        return indices[index];
+    }
+
+    @NonNull
+    public int[] getListingIndices() {
+        return indices;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.filemanager.model;
+
+public class FileNameIndexStats {
+    private int entryCount;
+    private int directoryCount;
+    private int trigramCount;
+    private long sizeInBytes;
+    private long buildTimeMs;
+    private int rescannedDirectoryCount;
+
+    public FileNameIndexStats(int entryCount, int directoryCount, int trigramCount, long sizeInBytes, long buildTimeMs, int rescannedDirectoryCount) {
+        this.entryCount = entryCount;
+        this.directoryCount = directoryCount;
+        this.trigramCount = trigramCount;
+        this.sizeInBytes = sizeInBytes;
+        this.buildTimeMs = buildTimeMs;
+        this.rescannedDirectoryCount = rescannedDirectoryCount;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    public int getTrigramCount() {
+        return trigramCount;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getBuildTimeMs() {
+        return buildTimeMs;
+    }
+
+    // Directories listed again by the last update, the rest were reused because their mtime didn't change
+    public int getRescannedDirectoryCount() {
+        return rescannedDirectoryCount;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.filemanager.model;
+
+public class FolderSize {
+    private long totalSize;
+    private long fileCount;
+
+    public FolderSize(long totalSize, long fileCount) {
+        this.totalSize = totalSize;
+        this.fileCount = fileCount;
+    }
+
+    // Sum of the sizes of all files in the folder and its subfolders
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.filemanager.model;
+
+import com.example.filemanager.model.exception.JobCancelledException;
+
+// Pauses or cancels a long running file operation. The operation calls checkpoint() between chunks
+// and files, so a pause or cancel takes effect after at most one chunk.
+public class JobHandle {
+    private boolean isPaused;
+    private boolean isCancelled;
+
+    public synchronized void pause() {
+        isPaused = true;
+    }
+
+    public synchronized void resume() {
+        isPaused = false;
+        notifyAll();
+    }
+
+    public synchronized void cancel() {
+        isCancelled = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isPaused() {
+        return isPaused;
+    }
+
+    public synchronized boolean isCancelled() {
+        return isCancelled;
+    }
+
+    // Blocks while the job is paused, throws JobCancelledException once it is cancelled
+    public synchronized void checkpoint() {
+        try {
+            while (isPaused && !isCancelled) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            // Disposing the subscription interrupts the thread running the job
+            Thread.currentThread().interrupt();
+            isCancelled = true;
+        }
+
+        if (isCancelled) {
+            throw new JobCancelledException();
+        }
+    }
+}
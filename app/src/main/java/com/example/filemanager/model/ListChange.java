@@ -0,0 +1,36 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+// Range of adapter positions, removals refer to the previous list, insertions and changes to the new one
+public class ListChange {
+    public enum Type {
+        INSERTED,
+        REMOVED,
+        CHANGED
+    }
+
+
+    private Type type;
+    private int position;
+    private int count;
+
+    public ListChange(@NonNull Type type, int position, int count) {
+        this.type = type;
+        this.position = position;
+        this.count = count;
+    }
+
+    @NonNull
+    public Type getType() {
+        return type;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.filemanager.model;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+public class SearchProgress {
+    private List<DirectoryItem> newMatches;
+    private long scannedFileCount;
+    private long elapsedTimeMs;
+    private boolean isFinished;
+
+    public SearchProgress(@NonNull List<DirectoryItem> newMatches, long scannedFileCount, long elapsedTimeMs, boolean isFinished) {
+        this.newMatches = newMatches;
+        this.scannedFileCount = scannedFileCount;
+        this.elapsedTimeMs = elapsedTimeMs;
+        this.isFinished = isFinished;
+    }
+
+    // Matches found since the previous progress
+    @NonNull
+    public List<DirectoryItem> getNewMatches() {
+        return newMatches;
+    }
+
+    public long getScannedFileCount() {
+        return scannedFileCount;
+    }
+
+    public long getElapsedTimeMs() {
+        return elapsedTimeMs;
+    }
+
+    public long getFilesPerSecond() {
+        return (elapsedTimeMs > 0) ? scannedFileCount * 1000 / elapsedTimeMs : scannedFileCount;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.filemanager.model.exception;
+
+public class ChecksumMismatchException extends RuntimeException {
+    public ChecksumMismatchException(String file) {
+        super("Copy " + file + " does not match its source");
+    }
+}
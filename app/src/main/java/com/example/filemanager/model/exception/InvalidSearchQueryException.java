@@ -0,0 +1,7 @@
+package com.example.filemanager.model.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+    public InvalidSearchQueryException(String filter) {
+        super("Invalid search filter " + filter);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.filemanager.model.exception;
+
+public class JobCancelledException extends RuntimeException {
+    public JobCancelledException() {
+        super("Job was cancelled");
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.filemanager.repository.directory;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.util.filesystem.CopyUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.ObservableEmitter;
+
+// Turns per-chunk copy callbacks into progress updates at most every PROGRESS_INTERVAL_MS.
+// Callbacks come from every copy worker, each thread is tracked as a separate worker.
+class CopyProgressTracker implements CopyUtil.CopyListener {
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    // Weight of the latest interval, smooths out bursts from the page cache
+    private static final double SPEED_SMOOTHING = 0.3;
+
+    private final ObservableEmitter<CopyProgress> emitter;
+    private final ThreadLocal<Speed> workerSpeed = new ThreadLocal<>();
+    private final List<Speed> workerSpeeds = new ArrayList<>();
+    private final Speed totalSpeed = new Speed();
+    private long skippedBytes;
+    private long totalBytes;
+    private long totalFileCount;
+    private long copiedFileCount;
+    private long lastEmitTimeMs;
+
+
+    CopyProgressTracker(@NonNull ObservableEmitter<CopyProgress> emitter, long totalBytes, long totalFileCount) {
+        this.emitter = emitter;
+        this.totalBytes = totalBytes;
+        this.totalFileCount = totalFileCount;
+        this.lastEmitTimeMs = SystemClock.elapsedRealtime();
+    }
+
+
+    @Override
+    public synchronized void onBytesCopied(long byteCount) {
+        totalSpeed.copiedBytes += byteCount;
+        getWorkerSpeed().copiedBytes += byteCount;
+        emitIfDue();
+    }
+
+    @Override
+    public synchronized void onBytesSkipped(long byteCount) {
+        // Counts as done, but not towards the speed
+        skippedBytes += byteCount;
+    }
+
+    @Override
+    public synchronized void onFileCopied() {
+        copiedFileCount++;
+        emitIfDue();
+    }
+
+    synchronized void finish() {
+        emit(true);
+    }
+
+    @NonNull
+    private Speed getWorkerSpeed() {
+        Speed speed = workerSpeed.get();
+        if (speed == null) {
+            speed = new Speed();
+            workerSpeed.set(speed);
+            workerSpeeds.add(speed);
+        }
+        return speed;
+    }
+
+    private void emitIfDue() {
+        long now = SystemClock.elapsedRealtime();
+        long elapsedMs = now - lastEmitTimeMs;
+        if (elapsedMs < PROGRESS_INTERVAL_MS) {
+            return;
+        }
+
+        totalSpeed.update(elapsedMs);
+        for (Speed speed : workerSpeeds) {
+            speed.update(elapsedMs);
+        }
+
+        lastEmitTimeMs = now;
+        emit(false);
+    }
+
+    private void emit(boolean isFinished) {
+        long doneBytes = skippedBytes + totalSpeed.copiedBytes;
+
+        // Moves that fall back to copying were not measured up front
+        totalBytes = Math.max(totalBytes, doneBytes);
+        totalFileCount = Math.max(totalFileCount, copiedFileCount);
+
+        long[] workerBytesPerSecond = new long[workerSpeeds.size()];
+        for (int i = 0; i < workerBytesPerSecond.length; i++) {
+            workerBytesPerSecond[i] = (long) workerSpeeds.get(i).bytesPerSecond;
+        }
+
+        emitter.onNext(new CopyProgress(
+                doneBytes,
+                totalBytes,
+                copiedFileCount,
+                totalFileCount,
+                (long) totalSpeed.bytesPerSecond,
+                workerBytesPerSecond,
+                isFinished
+        ));
+    }
+
+
+    private static class Speed {
+        long copiedBytes;
+        long lastCopiedBytes;
+        double bytesPerSecond;
+
+        void update(long elapsedMs) {
+            double currentBytesPerSecond = (copiedBytes - lastCopiedBytes) * 1000.0 / elapsedMs;
+            bytesPerSecond = (bytesPerSecond == 0)
+                    ? currentBytesPerSecond
+                    : bytesPerSecond + SPEED_SMOOTHING * (currentBytesPerSecond - bytesPerSecond);
+            lastCopiedBytes = copiedBytes;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.filemanager.repository.directory;
+
+import android.content.ComponentCallbacks2;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.example.filemanager.model.DirectoryListing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DirectoryContentCache {
+    private LruCache<String, Entry> cache;
+    private AtomicLong hitCount = new AtomicLong();
+    private AtomicLong missCount = new AtomicLong();
+    // Incremented by every invalidation, a listing read across one may be stale and is not cached
+    private AtomicLong generation = new AtomicLong();
+
+
+    public DirectoryContentCache(int maxItemCount) {
+        cache = new LruCache<String, Entry>(maxItemCount) {
+            @Override
+            protected int sizeOf(@NonNull String key, @NonNull Entry value) {
+                return value.listing.size() + 1;
+            }
+        };
+    }
+
+
+    @Nullable
+    public DirectoryListing get(@NonNull String directory) {
+        String key = getKey(directory);
+        Entry entry = cache.get(key);
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        if (entry.lastModified != getLastModified(directory)) {
+            cache.remove(key);
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return entry.listing;
+    }
+
+    // generation is getGeneration() from before the directory was listed
+    public void put(@NonNull String directory, long lastModified, long generation, @NonNull DirectoryListing listing) {
+        Entry entry = new Entry(lastModified, listing);
+        String key = getKey(directory);
+
+        synchronized (this) {
+            if (generation == this.generation.get()) {
+                cache.put(key, entry);
+            }
+        }
+    }
+
+    public void invalidate(@NonNull String directory) {
+        String key = getKey(directory);
+
+        synchronized (this) {
+            generation.incrementAndGet();
+            cache.remove(key);
+        }
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    public long getLastModified(@NonNull String directory) {
+        return new File(directory).lastModified();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+
+    @NonNull
+    private String getKey(@NonNull String directory) {
+        File file = new File(directory);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException ex) {
+            return file.getAbsolutePath();
+        }
+    }
+
+
+    private static class Entry {
+        private long lastModified;
+        private DirectoryListing listing;
+
+        Entry(long lastModified, @NonNull DirectoryListing listing) {
+            this.lastModified = lastModified;
+            this.listing = listing;
+        }
+    }
+}
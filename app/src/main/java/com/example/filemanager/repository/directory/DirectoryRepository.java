@@ -2,25 +2,50 @@ package com.example.filemanager.repository.directory;
 
 import android.support.annotation.NonNull;
 
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.model.DirectoryChange;
 import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.JobHandle;
 
 import java.util.List;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
 import io.reactivex.Single;
 
 public interface DirectoryRepository {
     @NonNull
-    Single<List<DirectoryItem>> getDirectoryContent(@NonNull String directory);
+    Single<DirectoryListing> getDirectoryContent(@NonNull String directory);
 
     @NonNull
-    Completable createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName);
+    Flowable<DirectoryListing> getDirectoryContentInChunks(@NonNull String directory);
 
+    // The next listing of the directory is read from the file system again
+    void invalidateDirectoryContent(@NonNull String directory);
+
+    @NonNull
+    Observable<DirectoryChange> observeDirectoryChanges(@NonNull String directory);
+
+    @NonNull
+    Observable<DirectoryChange> detectContentTypes(@NonNull DirectoryListing listing);
+
+    @NonNull
+    Observable<DirectoryChange> calculateFolderSizes(@NonNull DirectoryListing listing);
+
+    @NonNull
+    Single<DirectoryItem> createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName);
+
+    @NonNull
+    Observable<CopyProgress> moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy, boolean isVerificationEnabled, @NonNull JobHandle job);
+
+    // The current state of the given files: ADDED with a fresh item for existing ones, REMOVED otherwise
     @NonNull
-    Completable moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy);
+    Single<List<DirectoryChange>> getFileChanges(@NonNull List<String> filePaths);
 
     @NonNull
-    Completable rename(@NonNull String newName, @NonNull DirectoryItem item);
+    Single<DirectoryItem> rename(@NonNull String newName, @NonNull DirectoryItem item);
 
     @NonNull
     Completable delete(@NonNull DirectoryItem item);
@@ -0,0 +1,69 @@
+package com.example.filemanager.repository.directory;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.util.filesystem.RecordLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+// Content types detected from file signatures, persisted as a log of (path, size, mtime, type) records, see RecordLog
+public class FileContentTypeCache {
+    private RecordLog<Entry> log;
+
+
+    public FileContentTypeCache(@NonNull File file) {
+        log = new RecordLog<>(file, FileContentTypeCache::readEntry, FileContentTypeCache::writeEntry);
+    }
+
+
+    @Nullable
+    public DirectoryItemType get(@NonNull String filePath, long fileSize, long lastModificationTime) {
+        Entry entry = log.get(filePath);
+        if (entry == null || entry.fileSize != fileSize || entry.lastModificationTime != lastModificationTime) {
+            return null;
+        }
+        return entry.type;
+    }
+
+    public void put(@NonNull String filePath, long fileSize, long lastModificationTime, @NonNull DirectoryItemType type) {
+        log.put(filePath, new Entry(fileSize, lastModificationTime, type));
+    }
+
+    public void close() {
+        log.close();
+    }
+
+
+    @NonNull
+    private static Entry readEntry(@NonNull DataInputStream input, long remainingBytes) throws IOException {
+        long fileSize = input.readLong();
+        long lastModificationTime = input.readLong();
+        // An unknown type throws, which discards the log as corrupt
+        DirectoryItemType type = DirectoryItemType.fromInt(input.readByte());
+        return new Entry(fileSize, lastModificationTime, type);
+    }
+
+    private static void writeEntry(@NonNull DataOutputStream output, @NonNull Entry entry) throws IOException {
+        output.writeLong(entry.fileSize);
+        output.writeLong(entry.lastModificationTime);
+        output.writeByte(entry.type.toInt());
+    }
+
+
+    private static class Entry {
+        private long fileSize;
+        private long lastModificationTime;
+        private DirectoryItemType type;
+
+        Entry(long fileSize, long lastModificationTime, @NonNull DirectoryItemType type) {
+            this.fileSize = fileSize;
+            this.lastModificationTime = lastModificationTime;
+            this.type = type;
+        }
+    }
+}
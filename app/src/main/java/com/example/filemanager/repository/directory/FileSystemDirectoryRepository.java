@@ -1,130 +1,577 @@
 package com.example.filemanager.repository.directory;
 
+import android.os.Environment;
+import android.os.FileObserver;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.StructStat;
 
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.model.DirectoryChange;
+import com.example.filemanager.model.DirectoryChangeType;
 import com.example.filemanager.model.DirectoryItem;
 import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.FolderSize;
+import com.example.filemanager.model.JobHandle;
+import com.example.filemanager.model.exception.ChecksumMismatchException;
+import com.example.filemanager.model.exception.CopyFileException;
+import com.example.filemanager.model.exception.JobCancelledException;
 import com.example.filemanager.model.exception.LoadDirectoryContentException;
 import com.example.filemanager.util.DirectoryItemTypeUtil;
+import com.example.filemanager.util.filesystem.CopyContext;
+import com.example.filemanager.util.filesystem.CopyJournal;
+import com.example.filemanager.util.filesystem.CopyManifest;
 import com.example.filemanager.util.filesystem.CopyUtil;
 import com.example.filemanager.util.filesystem.CreateDirectoryUtil;
 import com.example.filemanager.util.filesystem.DeleteUtil;
 import com.example.filemanager.util.filesystem.DirectoryContentUtil;
+import com.example.filemanager.util.filesystem.FileSignatureUtil;
+import com.example.filemanager.util.filesystem.FileStatUtil;
 import com.example.filemanager.util.filesystem.MoveUtil;
+import com.example.filemanager.util.filesystem.ParallelCopyUtil;
 import com.example.filemanager.util.filesystem.RenameUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
-import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
 
 public class FileSystemDirectoryRepository implements DirectoryRepository {
+    private static final int FIRST_CHUNK_SIZE = 64;
+    private static final int MAX_CHUNK_SIZE = 2048;
+
+    private static final int ADDED_EVENTS = FileObserver.CREATE | FileObserver.MOVED_TO;
+    private static final int REMOVED_EVENTS = FileObserver.DELETE | FileObserver.MOVED_FROM;
+    private static final int MODIFIED_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.ATTRIB;
+
+    private static final int CONTENT_TYPE_DETECTION_THREAD_COUNT = 2;
+    private static final int FOLDER_SIZE_THREAD_COUNT = 2;
+    // Interrupted jobs not pasted again within this time are given up
+    private static final long COPY_JOURNAL_MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+    // Manifests of verified jobs are kept for checking the copies again, the recent ones only
+    private static final int COPY_MANIFEST_MAX_COUNT = 50;
+    private static final long COPY_MANIFEST_MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+
+    private DirectoryContentCache cache;
+    private FileContentTypeCache contentTypeCache;
+    private FolderSizeCache folderSizeCache;
+    private Scheduler contentTypeDetectionScheduler = Schedulers.from(Executors.newFixedThreadPool(CONTENT_TYPE_DETECTION_THREAD_COUNT));
+    private Scheduler folderSizeScheduler = Schedulers.from(Executors.newFixedThreadPool(FOLDER_SIZE_THREAD_COUNT));
+    private File copyJournalDirectory;
+    private File copyManifestDirectory;
+    private int copyThreadCount;
+    private int removableStorageCopyThreadCount;
+    private ExecutorService copyExecutor;
+    private ExecutorService removableStorageCopyExecutor;
+
+
+    // Removable media handle parallel writes much worse than internal flash, so they get their own, smaller pool
+    public FileSystemDirectoryRepository(
+            @NonNull DirectoryContentCache cache,
+            @NonNull FileContentTypeCache contentTypeCache,
+            @NonNull FolderSizeCache folderSizeCache,
+            @NonNull File copyJournalDirectory,
+            @NonNull File copyManifestDirectory,
+            int copyThreadCount,
+            int removableStorageCopyThreadCount
+    ) {
+        this.cache = cache;
+        this.contentTypeCache = contentTypeCache;
+        this.folderSizeCache = folderSizeCache;
+        this.copyJournalDirectory = copyJournalDirectory;
+        this.copyManifestDirectory = copyManifestDirectory;
+        this.copyThreadCount = copyThreadCount;
+        this.removableStorageCopyThreadCount = removableStorageCopyThreadCount;
+        this.copyExecutor = Executors.newFixedThreadPool(copyThreadCount);
+        this.removableStorageCopyExecutor = Executors.newFixedThreadPool(removableStorageCopyThreadCount);
+
+        copyExecutor.execute(() -> {
+            CopyJournal.deleteOlderThan(copyJournalDirectory, COPY_JOURNAL_MAX_AGE_MS);
+            CopyManifest.deleteOld(copyManifestDirectory, COPY_MANIFEST_MAX_COUNT, COPY_MANIFEST_MAX_AGE_MS);
+        });
+    }
+
 
     @NonNull
     @Override
-    public Single<List<DirectoryItem>> getDirectoryContent(@NonNull String directory) {
-        return Single.create(emitter -> {
-            try {
-                List<DirectoryItem> result = tryGetDirectoryContent(directory);
-                emitter.onSuccess(result);
-            } catch (Exception ex) {
-                emitter.onError(new LoadDirectoryContentException(ex));
+    public Single<DirectoryListing> getDirectoryContent(@NonNull String directory) {
+        return getDirectoryContentInChunks(directory)
+                .collect(() -> new DirectoryListing.Builder(directory, 0), DirectoryListing.Builder::addAll)
+                .map(DirectoryListing.Builder::build);
+    }
+
+    @NonNull
+    @Override
+    public Flowable<DirectoryListing> getDirectoryContentInChunks(@NonNull String directory) {
+        return Flowable.defer(() -> {
+            DirectoryListing cachedListing = cache.get(directory);
+            if (cachedListing != null) {
+                return Flowable.just(cachedListing);
             }
+
+            // Read before listing, so changes made during listing invalidate the cache entry
+            long lastModified = cache.getLastModified(directory);
+            long generation = cache.getGeneration();
+            DirectoryListing.Builder builder = new DirectoryListing.Builder(directory, 0);
+
+            return Flowable
+                    .generate(
+                            () -> new DirectoryContentChunks(directory, DirectoryContentUtil.getDirectoryContentNames(directory)),
+                            this::emitNextDirectoryContentChunk
+                    )
+                    .doOnNext(builder::addAll)
+                    .doOnComplete(() -> cache.put(directory, lastModified, generation, builder.build()));
+        });
+    }
+
+    @Override
+    public void invalidateDirectoryContent(@NonNull String directory) {
+        cache.invalidate(directory);
+    }
+
+    @NonNull
+    @Override
+    public Observable<DirectoryChange> observeDirectoryChanges(@NonNull String directory) {
+        return Observable.create(emitter -> {
+            FileObserver observer = new FileObserver(directory, ADDED_EVENTS | REMOVED_EVENTS | MODIFIED_EVENTS) {
+                @Override
+                public void onEvent(int event, @Nullable String name) {
+                    if (name == null) {
+                        return;
+                    }
+
+                    try {
+                        DirectoryChange change = createDirectoryChange(directory, name, event);
+                        if (change != null) {
+                            cache.invalidate(directory);
+                            emitter.onNext(change);
+                        }
+                    } catch (Exception ex) {
+                        emitter.tryOnError(new LoadDirectoryContentException(ex));
+                    }
+                }
+            };
+
+            emitter.setCancellable(observer::stopWatching);
+            observer.startWatching();
         });
     }
 
     @NonNull
     @Override
-    public Completable createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName) {
-        return createCompletable(() -> tryCreateDirectory(rootDirectoryFullPath, newDirectoryName));
+    public Observable<DirectoryChange> detectContentTypes(@NonNull DirectoryListing listing) {
+        return Observable.range(0, listing.size())
+                .filter(index -> listing.getType(index) == DirectoryItemType.OTHER)
+                .flatMap(
+                        index -> Maybe
+                                .fromCallable(() -> detectContentType(listing, index))
+                                .subscribeOn(contentTypeDetectionScheduler)
+                                .toObservable(),
+                        CONTENT_TYPE_DETECTION_THREAD_COUNT
+                )
+                // The repository lives as long as the app, so the log is closed after every detection instead of never
+                .doFinally(contentTypeCache::close);
     }
 
     @NonNull
     @Override
-    public Completable moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy) {
-        return createCompletable(() -> tryMoveAndCopy(targetDirectoryFullPath, itemsToMove, itemsToCopy));
+    public Observable<DirectoryChange> calculateFolderSizes(@NonNull DirectoryListing listing) {
+        return Observable.range(0, listing.size())
+                .filter(index -> listing.getType(index) == DirectoryItemType.DIRECTORY)
+                .flatMap(
+                        index -> Maybe
+                                .<DirectoryChange>create(emitter -> calculateFolderSize(listing, index, emitter))
+                                .subscribeOn(folderSizeScheduler)
+                                .toObservable(),
+                        FOLDER_SIZE_THREAD_COUNT
+                )
+                .doFinally(folderSizeCache::close);
     }
 
     @NonNull
     @Override
-    public Completable rename(@NonNull String newName, @NonNull DirectoryItem item) {
-        return createCompletable(() -> tryRename(newName, item));
+    public Single<DirectoryItem> createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName) {
+        return Single.fromCallable(() -> {
+            tryCreateDirectory(rootDirectoryFullPath, newDirectoryName);
+            return createDirectoryItem(rootDirectoryFullPath, newDirectoryName);
+        });
+    }
+
+    @NonNull
+    @Override
+    public Observable<CopyProgress> moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy, boolean isVerificationEnabled, @NonNull JobHandle job) {
+        return Observable.create(emitter -> {
+            // Leaving the screen disposes the subscription, the copy must not keep running in the background
+            emitter.setCancellable(job::cancel);
+
+            // Pasting the same items into the same directory again continues where the last attempt stopped
+            CopyJournal journal = openCopyJournal(targetDirectoryFullPath, itemsToMove, itemsToCopy);
+            CopyManifest manifest = isVerificationEnabled
+                    ? new CopyManifest(new File(copyManifestDirectory, System.currentTimeMillis() + ".sfv"))
+                    : null;
+
+            CopyContext context = null;
+            try {
+                FolderSize size = measureMoveAndCopy(targetDirectoryFullPath, itemsToMove, itemsToCopy);
+                CopyProgressTracker tracker = new CopyProgressTracker(emitter, size.getTotalSize(), size.getFileCount());
+
+                context = new CopyContext(tracker, job, journal, manifest);
+                tryMoveAndCopy(targetDirectoryFullPath, itemsToMove, itemsToCopy, context);
+
+                // Every other file is copied, the ones that failed verification are deleted and reported together
+                if (manifest != null && manifest.getMismatchCount() > 0) {
+                    throw new ChecksumMismatchException(manifest.getFirstMismatchedFilePath());
+                }
+
+                journal.delete();
+                tracker.finish();
+                emitter.onComplete();
+            } catch (Exception ex) {
+                // Disposing interrupts this thread, the I/O it was blocked in fails with some other exception then
+                if (ex instanceof JobCancelledException || job.isCancelled() || Thread.currentThread().isInterrupted()) {
+                    // Cancelled means nothing was pasted, apart from items moved by renaming or moved completely.
+                    // Everything is gone by the time the cancel is reported.
+                    job.cancel();
+                    if (context != null) {
+                        context.deleteCreatedFiles();
+                        cache.invalidate(targetDirectoryFullPath);
+                    }
+                    journal.delete();
+                    emitter.tryOnError((ex instanceof JobCancelledException) ? ex : new JobCancelledException());
+                    return;
+                }
+
+                // Only a copy that failed while writing, e.g. on a full or removed storage, is worth pasting again
+                if (ex instanceof CopyFileException) {
+                    journal.close();
+                } else {
+                    journal.delete();
+                }
+                emitter.tryOnError(ex);
+            } finally {
+                // The targets of a cancelled job are gone, there is nothing to check later
+                if (manifest != null && !job.isCancelled()) {
+                    manifest.save();
+                }
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public Single<List<DirectoryChange>> getFileChanges(@NonNull List<String> filePaths) {
+        return Single.fromCallable(() -> {
+            List<DirectoryChange> changes = new ArrayList<>(filePaths.size());
+
+            for (String filePath : filePaths) {
+                File file = new File(filePath);
+
+                if (FileStatUtil.lstat(filePath) != null) {
+                    changes.add(new DirectoryChange(DirectoryChangeType.ADDED, filePath, createDirectoryItem(file.getParent(), file.getName())));
+                } else {
+                    changes.add(new DirectoryChange(DirectoryChangeType.REMOVED, filePath, null));
+                }
+            }
+
+            return changes;
+        });
+    }
+
+    @NonNull
+    @Override
+    public Single<DirectoryItem> rename(@NonNull String newName, @NonNull DirectoryItem item) {
+        return Single.fromCallable(() -> {
+            tryRename(newName, item);
+            return createDirectoryItem(new File(item.getFilePath()).getParent(), newName);
+        });
     }
 
     @NonNull
     @Override
     public Completable delete(@NonNull DirectoryItem item) {
-        return createCompletable(() -> tryDelete(item));
+        return createCompletable(job -> tryDelete(item, job));
     }
 
     @NonNull
     @Override
     public Completable delete(@NonNull List<DirectoryItem> items) {
-        return createCompletable(() -> tryDelete(items));
+        return createCompletable(job -> tryDelete(items, job));
     }
 
     @NonNull
-    private Completable createCompletable(@NonNull Action action) {
+    private Completable createCompletable(@NonNull Consumer<JobHandle> action) {
         return Completable.create(emitter -> {
+            JobHandle job = new JobHandle();
+            emitter.setCancellable(job::cancel);
+
             try {
-                action.run();
+                action.accept(job);
                 emitter.onComplete();
             } catch (Exception ex) {
-                emitter.onError(ex);
+                // Errors after disposal have no one to go to
+                emitter.tryOnError(ex);
             }
         });
     }
 
 
-    @NonNull
-    private List<DirectoryItem> tryGetDirectoryContent(@NonNull String directory) {
-        File[] files = DirectoryContentUtil.getDirectoryContent(directory);
+    private void emitNextDirectoryContentChunk(@NonNull DirectoryContentChunks chunks, @NonNull Emitter<DirectoryListing> emitter) {
+        try {
+            if (!chunks.hasNext()) {
+                emitter.onComplete();
+                return;
+            }
+
+            String[] names = chunks.next();
+            DirectoryListing.Builder builder = new DirectoryListing.Builder(chunks.directory, names.length);
+
+            for (String name : names) {
+                addDirectoryEntry(builder, chunks.directory, name);
+            }
+
+            emitter.onNext(builder.build());
+        } catch (Exception ex) {
+            emitter.onError(new LoadDirectoryContentException(ex));
+        }
+    }
+
+    @Nullable
+    private DirectoryChange createDirectoryChange(@NonNull String directory, @NonNull String name, int event) {
+        String path = new File(directory, name).getPath();
 
-        List<DirectoryItem> result = new ArrayList<>();
+        if ((event & ADDED_EVENTS) != 0) {
+            return new DirectoryChange(DirectoryChangeType.ADDED, path, createDirectoryItem(directory, name));
+        }
+
+        if ((event & REMOVED_EVENTS) != 0) {
+            return new DirectoryChange(DirectoryChangeType.REMOVED, path, null);
+        }
 
-        for (File file : files) {
-            DirectoryItem item = createDirectoryItemFromFile(file);
-            result.add(item);
+        if ((event & MODIFIED_EVENTS) != 0) {
+            return new DirectoryChange(DirectoryChangeType.MODIFIED, path, createDirectoryItem(directory, name));
         }
 
-        return result;
+        return null;
+    }
+
+    @Nullable
+    private DirectoryChange detectContentType(@NonNull DirectoryListing listing, int index) {
+        DirectoryItem item = listing.get(index);
+        String path = item.getFilePath();
+        long size = item.getFileSizeInBytes();
+        long lastModificationTime = item.getLastModificationTime();
+
+        DirectoryItemType type = contentTypeCache.get(path, size, lastModificationTime);
+        if (type == null) {
+            try {
+                type = FileSignatureUtil.detectType(path);
+            } catch (IOException ex) {
+                return null;
+            }
+
+            if (type == null) {
+                type = DirectoryItemType.OTHER;
+            }
+            contentTypeCache.put(path, size, lastModificationTime, type);
+        }
+
+        if (type == DirectoryItemType.OTHER) {
+            return null;
+        }
+
+        DirectoryItem detectedItem = new DirectoryItem(type, item.getName(), path, lastModificationTime, size, item.isHidden());
+        return new DirectoryChange(DirectoryChangeType.MODIFIED, path, detectedItem);
+    }
+
+    private void calculateFolderSize(@NonNull DirectoryListing listing, int index, @NonNull MaybeEmitter<DirectoryChange> emitter) {
+        DirectoryItem item = listing.get(index);
+        String path = item.getFilePath();
+
+        FolderSize folderSize = calculateFolderSize(path, emitter);
+        if (folderSize == null || folderSize.getTotalSize() == item.getFileSizeInBytes()) {
+            emitter.onComplete();
+            return;
+        }
+
+        DirectoryItem calculatedItem = new DirectoryItem(item.getType(), item.getName(), path, item.getLastModificationTime(), folderSize.getTotalSize(), item.isHidden());
+        emitter.onSuccess(new DirectoryChange(DirectoryChangeType.MODIFIED, path, calculatedItem));
+    }
+
+    // Only folders are stat()-ed when their cache entries are still valid, files are read for changed folders only.
+    // Null when the calculation was cancelled.
+    @Nullable
+    private FolderSize calculateFolderSize(@NonNull String directory, @NonNull MaybeEmitter<DirectoryChange> emitter) {
+        if (emitter.isDisposed()) {
+            return null;
+        }
+
+        // lstat() so symbolic links to folders are neither followed nor counted twice
+        long lastModificationTime = FileStatUtil.getLastModified(FileStatUtil.lstat(directory));
+        FolderSizeCache.Entry entry = folderSizeCache.get(directory, lastModificationTime);
+        if (entry == null) {
+            entry = scanFolder(directory, lastModificationTime);
+            folderSizeCache.put(directory, entry);
+        }
+
+        long totalSize = entry.getFilesSize();
+        long fileCount = entry.getFileCount();
+
+        for (String subdirectory : entry.getSubdirectories()) {
+            FolderSize subdirectorySize = calculateFolderSize(new File(directory, subdirectory).getPath(), emitter);
+            if (subdirectorySize == null) {
+                return null;
+            }
+            totalSize += subdirectorySize.getTotalSize();
+            fileCount += subdirectorySize.getFileCount();
+        }
+
+        return new FolderSize(totalSize, fileCount);
+    }
+
+    @NonNull
+    private FolderSizeCache.Entry scanFolder(@NonNull String directory, long lastModificationTime) {
+        long filesSize = 0;
+        long fileCount = 0;
+        List<String> subdirectories = new ArrayList<>();
+
+        // Unreadable folders count as empty
+        String[] names = new File(directory).list();
+        if (names != null) {
+            for (String name : names) {
+                StructStat stat = FileStatUtil.lstat(new File(directory, name).getPath());
+                if (FileStatUtil.isDirectory(stat)) {
+                    subdirectories.add(name);
+                } else {
+                    filesSize += FileStatUtil.getSize(stat);
+                    fileCount++;
+                }
+            }
+        }
+
+        return new FolderSizeCache.Entry(lastModificationTime, filesSize, fileCount, subdirectories.toArray(new String[0]));
     }
 
     private void tryCreateDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName) {
-        CreateDirectoryUtil.createDirectory(rootDirectoryFullPath, newDirectoryName);
+        cache.invalidate(rootDirectoryFullPath);
+        try {
+            CreateDirectoryUtil.createDirectory(rootDirectoryFullPath, newDirectoryName);
+        } finally {
+            cache.invalidate(rootDirectoryFullPath);
+        }
+    }
+
+    // Moves within one file system are renames and don't add to the amount of data to copy
+    @NonNull
+    private FolderSize measureMoveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy) {
+        long totalSize = 0;
+        long fileCount = 0;
+
+        for (DirectoryItem item : itemsToMove) {
+            if (!MoveUtil.isOnSameDevice(item.getFilePath(), targetDirectoryFullPath)) {
+                FolderSize size = CopyUtil.measure(item.getFilePath());
+                totalSize += size.getTotalSize();
+                fileCount += size.getFileCount();
+            }
+        }
+
+        for (DirectoryItem item : itemsToCopy) {
+            FolderSize size = CopyUtil.measure(item.getFilePath());
+            totalSize += size.getTotalSize();
+            fileCount += size.getFileCount();
+        }
+
+        return new FolderSize(totalSize, fileCount);
+    }
+
+    @NonNull
+    private CopyJournal openCopyJournal(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy) {
+        StringBuilder key = new StringBuilder(targetDirectoryFullPath);
+        for (DirectoryItem item : itemsToMove) {
+            key.append('\n').append(item.getFilePath());
+        }
+        for (DirectoryItem item : itemsToCopy) {
+            key.append('\n').append(item.getFilePath());
+        }
+
+        // A collision only means a journal whose targets don't match, its entries are never used
+        copyJournalDirectory.mkdirs();
+        return new CopyJournal(new File(copyJournalDirectory, Integer.toHexString(key.toString().hashCode())));
     }
 
-    private void tryMoveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy) {
-        tryMove(targetDirectoryFullPath, itemsToMove);
-        tryCopy(targetDirectoryFullPath, itemsToCopy);
+    private void tryMoveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy, @NonNull CopyContext context) {
+        cache.invalidate(targetDirectoryFullPath);
+        try {
+            tryMove(targetDirectoryFullPath, itemsToMove, context);
+            tryCopy(targetDirectoryFullPath, itemsToCopy, context);
+        } finally {
+            cache.invalidate(targetDirectoryFullPath);
+        }
     }
 
-    private void tryMove(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> items) {
+    private void tryMove(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> items, @NonNull CopyContext context) {
         for (DirectoryItem item : items) {
-            MoveUtil.move(item.getFilePath(), targetDirectoryFullPath);
+            invalidateParentDirectory(item);
+            try {
+                MoveUtil.move(item.getFilePath(), targetDirectoryFullPath, context);
+            } finally {
+                invalidateParentDirectory(item);
+            }
         }
     }
 
-    private void tryCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> items) {
+    private void tryCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> items, @NonNull CopyContext context) {
+        boolean isRemovableStorage = isOnRemovableStorage(targetDirectoryFullPath);
+        ExecutorService executor = isRemovableStorage ? removableStorageCopyExecutor : copyExecutor;
+        int threadCount = isRemovableStorage ? removableStorageCopyThreadCount : copyThreadCount;
+
         for (DirectoryItem item : items) {
-            CopyUtil.copy(item.getFilePath(), targetDirectoryFullPath);
+            ParallelCopyUtil.copy(item.getFilePath(), targetDirectoryFullPath, executor, threadCount, context);
+        }
+    }
+
+    private boolean isOnRemovableStorage(@NonNull String path) {
+        try {
+            return Environment.isExternalStorageRemovable(new File(path));
+        } catch (IllegalArgumentException ex) {
+            // Not on any storage volume the system knows about
+            return false;
         }
     }
 
     private void tryRename(@NonNull String newName, @NonNull DirectoryItem item) {
-        RenameUtil.rename(item.getFilePath(), newName);
+        invalidateParentDirectory(item);
+        try {
+            RenameUtil.rename(item.getFilePath(), newName);
+        } finally {
+            invalidateParentDirectory(item);
+        }
     }
 
-    private void tryDelete(@NonNull List<DirectoryItem> items) throws Exception {
+    private void tryDelete(@NonNull List<DirectoryItem> items, @NonNull JobHandle job) throws Exception {
         Exception lastError = null;
 
         for (DirectoryItem item : items) {
             try {
-                tryDelete(item);
+                tryDelete(item, job);
+            } catch (JobCancelledException ex) {
+                throw ex;
             } catch (Exception ex) {
                 lastError = ex;
             }
@@ -135,32 +582,89 @@ public class FileSystemDirectoryRepository implements DirectoryRepository {
         }
     }
 
-    private void tryDelete(@NonNull DirectoryItem item) {
-        File fileOrDirectory = new File(item.getFilePath());
-        DeleteUtil.delete(fileOrDirectory);
+    private void tryDelete(@NonNull DirectoryItem item, @NonNull JobHandle job) {
+        invalidateParentDirectory(item);
+        try {
+            DeleteUtil.delete(new File(item.getFilePath()), job);
+        } finally {
+            invalidateParentDirectory(item);
+        }
+    }
+
+    // Called before and after every change: before, so the old content is not served while it runs,
+    // after, so a listing read while it ran is not cached, see DirectoryContentCache.put()
+    private void invalidateParentDirectory(@NonNull DirectoryItem item) {
+        // mtime has one second resolution on some file systems, so own changes are invalidated explicitly
+        String parentDirectory = new File(item.getFilePath()).getParent();
+        if (parentDirectory != null) {
+            cache.invalidate(parentDirectory);
+        }
     }
 
 
     @NonNull
-    private DirectoryItem createDirectoryItemFromFile(@NonNull File file) {
+    private DirectoryItem createDirectoryItem(@NonNull String directory, @NonNull String name) {
+        String path = new File(directory, name).getPath();
+
+        // One stat() call instead of separate isDirectory(), lastModified(), length() and isHidden() calls
+        StructStat stat = FileStatUtil.stat(path);
+        boolean isDirectory = FileStatUtil.isDirectory(stat);
+
         return new DirectoryItem(
-                getDirectoryItemType(file),
-                file.getName(),
-                file.getPath(),
-                file.toURI().toString(),
-                getLastModifiedDate(file),
-                file.length(),
-                file.isHidden()
+                DirectoryItemTypeUtil.getDirectoryItemType(name, isDirectory),
+                name,
+                path,
+                FileStatUtil.getLastModified(stat),
+                FileStatUtil.getSize(stat),
+                isHidden(name)
         );
     }
 
-    @NonNull
-    private DirectoryItemType getDirectoryItemType(@NonNull File file) {
-        return DirectoryItemTypeUtil.getDirectoryItemType(file);
+    private void addDirectoryEntry(@NonNull DirectoryListing.Builder builder, @NonNull String directory, @NonNull String name) {
+        StructStat stat = FileStatUtil.stat(new File(directory, name).getPath());
+        boolean isDirectory = FileStatUtil.isDirectory(stat);
+
+        builder.add(
+                DirectoryItemTypeUtil.getDirectoryItemType(name, isDirectory),
+                name,
+                FileStatUtil.getLastModified(stat),
+                FileStatUtil.getSize(stat),
+                isHidden(name)
+        );
     }
 
-    @NonNull
-    private Date getLastModifiedDate(@NonNull File file) {
-        return new Date(file.lastModified());
+    private boolean isHidden(@NonNull String name) {
+        return name.startsWith(".");
+    }
+
+
+    private static class DirectoryContentChunks {
+        private String directory;
+        private String[] names;
+        private int position = 0;
+        private int chunkSize = FIRST_CHUNK_SIZE;
+        private boolean isFirstChunk = true;
+
+        DirectoryContentChunks(@NonNull String directory, @NonNull String[] names) {
+            this.directory = directory;
+            this.names = names;
+        }
+
+        boolean hasNext() {
+            // Empty directory still produces one (empty) chunk
+            return isFirstChunk || position < names.length;
+        }
+
+        @NonNull
+        String[] next() {
+            int end = Math.min(position + chunkSize, names.length);
+            String[] result = Arrays.copyOfRange(names, position, end);
+
+            position = end;
+            isFirstChunk = false;
+            chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+
+            return result;
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.example.filemanager.repository.directory;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.util.filesystem.RecordLog;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+// Direct content of every scanned folder, persisted as a log of
+// (path, mtime, size of files, file count, subfolder names) records, see RecordLog.
+// A folder's mtime changes when entries are added, removed or renamed, so a matching record
+// lets the folder size calculation skip listing it and stat() its files.
+public class FolderSizeCache {
+    // Every subfolder name takes at least its 2 byte length
+    private static final int MIN_SUBDIRECTORY_RECORD_SIZE = 2;
+
+    private RecordLog<Entry> log;
+
+
+    public FolderSizeCache(@NonNull File file) {
+        log = new RecordLog<>(file, FolderSizeCache::readEntry, FolderSizeCache::writeEntry);
+    }
+
+
+    @Nullable
+    public Entry get(@NonNull String directory, long lastModificationTime) {
+        Entry entry = log.get(directory);
+        if (entry == null || entry.lastModificationTime != lastModificationTime) {
+            return null;
+        }
+        return entry;
+    }
+
+    public void put(@NonNull String directory, @NonNull Entry entry) {
+        log.put(directory, entry);
+    }
+
+    public void close() {
+        log.close();
+    }
+
+
+    @NonNull
+    private static Entry readEntry(@NonNull DataInputStream input, long remainingBytes) throws IOException {
+        long lastModificationTime = input.readLong();
+        long filesSize = input.readLong();
+        long fileCount = input.readLong();
+        int subdirectoryCount = input.readInt();
+        // A count the rest of the log can't hold is garbage, allocating for it could run out of memory
+        if (subdirectoryCount < 0 || (long) subdirectoryCount * MIN_SUBDIRECTORY_RECORD_SIZE > remainingBytes) {
+            throw new StreamCorruptedException("Invalid subfolder count " + subdirectoryCount);
+        }
+        String[] subdirectories = new String[subdirectoryCount];
+        for (int i = 0; i < subdirectories.length; i++) {
+            subdirectories[i] = input.readUTF();
+        }
+        return new Entry(lastModificationTime, filesSize, fileCount, subdirectories);
+    }
+
+    private static void writeEntry(@NonNull DataOutputStream output, @NonNull Entry entry) throws IOException {
+        output.writeLong(entry.lastModificationTime);
+        output.writeLong(entry.filesSize);
+        output.writeLong(entry.fileCount);
+        output.writeInt(entry.subdirectories.length);
+        for (String subdirectory : entry.subdirectories) {
+            output.writeUTF(subdirectory);
+        }
+    }
+
+
+    public static class Entry {
+        private long lastModificationTime;
+        private long filesSize;
+        private long fileCount;
+        private String[] subdirectories;
+
+        public Entry(long lastModificationTime, long filesSize, long fileCount, @NonNull String[] subdirectories) {
+            this.lastModificationTime = lastModificationTime;
+            this.filesSize = filesSize;
+            this.fileCount = fileCount;
+            this.subdirectories = subdirectories;
+        }
+
+        // Files directly in the folder, not in its subfolders
+        public long getFilesSize() {
+            return filesSize;
+        }
+
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        @NonNull
+        public String[] getSubdirectories() {
+            return subdirectories;
+        }
+    }
+}
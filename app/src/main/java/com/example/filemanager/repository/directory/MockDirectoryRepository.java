@@ -2,8 +2,12 @@ package com.example.filemanager.repository.directory;
 
 import android.support.annotation.NonNull;
 
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.model.DirectoryChange;
 import com.example.filemanager.model.DirectoryItem;
 import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.JobHandle;
 import com.example.filemanager.model.exception.CreateDirectoryException;
 import com.example.filemanager.model.exception.DeleteDirectoryException;
 import com.example.filemanager.model.exception.DeleteFileException;
@@ -13,12 +17,14 @@ import com.example.filemanager.model.exception.FileWithThisNameAlreadyExistsExce
 import com.example.filemanager.model.exception.LoadDirectoryContentException;
 import com.example.filemanager.model.exception.RenameFileException;
 
-import java.util.ArrayList;
-import java.util.Date;
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 
@@ -26,37 +32,77 @@ public class MockDirectoryRepository implements DirectoryRepository {
 
     @NonNull
     @Override
-    public Single<List<DirectoryItem>> getDirectoryContent(@NonNull String directory) {
+    public Single<DirectoryListing> getDirectoryContent(@NonNull String directory) {
         //return Single.error(new LoadDirectoryContentException(new Exception()));
-        return Single.just(createMockDirectoryItemList(directory))
+        return Single.just(createMockDirectoryListing(directory))
                 .delay(500, TimeUnit.MILLISECONDS)
                 .subscribeOn(Schedulers.io());
     }
 
     @NonNull
     @Override
-    public Completable createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName) {
-        //return Completable.error(new CreateDirectoryException());
-        //return Completable.error(new DirectoryWithThisNameAlreadyExistsException());
-        return Completable.complete()
+    public Flowable<DirectoryListing> getDirectoryContentInChunks(@NonNull String directory) {
+        return Flowable.just(createMockDirectoryListing(directory))
+                .delay(500, TimeUnit.MILLISECONDS)
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public void invalidateDirectoryContent(@NonNull String directory) {
+    }
+
+    @NonNull
+    @Override
+    public Observable<DirectoryChange> observeDirectoryChanges(@NonNull String directory) {
+        return Observable.never();
+    }
+
+    @NonNull
+    @Override
+    public Observable<DirectoryChange> detectContentTypes(@NonNull DirectoryListing listing) {
+        return Observable.empty();
+    }
+
+    @NonNull
+    @Override
+    public Observable<DirectoryChange> calculateFolderSizes(@NonNull DirectoryListing listing) {
+        return Observable.empty();
+    }
+
+    @NonNull
+    @Override
+    public Single<DirectoryItem> createDirectory(@NonNull String rootDirectoryFullPath, @NonNull String newDirectoryName) {
+        //return Single.error(new CreateDirectoryException());
+        //return Single.error(new DirectoryWithThisNameAlreadyExistsException());
+        String path = new File(rootDirectoryFullPath, newDirectoryName).getPath();
+        return Single.just(new DirectoryItem(DirectoryItemType.DIRECTORY, newDirectoryName, path, System.currentTimeMillis(), 0, false))
                 .delay(3500, TimeUnit.MILLISECONDS)
                 .subscribeOn(Schedulers.io());
     }
 
     @NonNull
     @Override
-    public Completable moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy) {
+    public Observable<CopyProgress> moveAndCopy(@NonNull String targetDirectoryFullPath, @NonNull List<DirectoryItem> itemsToMove, @NonNull List<DirectoryItem> itemsToCopy, boolean isVerificationEnabled, @NonNull JobHandle job) {
         return Completable.complete()
                 .delay(3500, TimeUnit.MILLISECONDS)
+                .<CopyProgress>toObservable()
                 .subscribeOn(Schedulers.io());
     }
 
     @NonNull
     @Override
-    public Completable rename(@NonNull String newName, @NonNull DirectoryItem item) {
-        //return Completable.error(new FileWithThisNameAlreadyExistsException());
-        //return Completable.error(new RenameFileException());
-        return Completable.complete()
+    public Single<List<DirectoryChange>> getFileChanges(@NonNull List<String> filePaths) {
+        return Single.just(Collections.<DirectoryChange>emptyList())
+                .subscribeOn(Schedulers.io());
+    }
+
+    @NonNull
+    @Override
+    public Single<DirectoryItem> rename(@NonNull String newName, @NonNull DirectoryItem item) {
+        //return Single.error(new FileWithThisNameAlreadyExistsException());
+        //return Single.error(new RenameFileException());
+        String path = new File(new File(item.getFilePath()).getParent(), newName).getPath();
+        return Single.just(new DirectoryItem(item.getType(), newName, path, item.getLastModificationTime(), item.getFileSizeInBytes(), newName.startsWith(".")))
                 .delay(1500, TimeUnit.MILLISECONDS)
                 .subscribeOn(Schedulers.io());
     }
@@ -84,15 +130,16 @@ public class MockDirectoryRepository implements DirectoryRepository {
     }
 
     @NonNull
-    private List<DirectoryItem> createMockDirectoryItemList(@NonNull String directory) {
-        List<DirectoryItem> directoryItems = new ArrayList<>();
-        directoryItems.add(new DirectoryItem(DirectoryItemType.DIRECTORY, "directory", directory + "/child", "", new Date(), 0, false));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.IMAGE, "picture", "", "", new Date(), 10, true));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.AUDIO, "audio", "", "", new Date(), 20 * 1024, false));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.VIDEO, "video", "", "", new Date(), 30 * 1024 * 1024, false));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.ARCHIVE, "archive", "", "", new Date(), 40L * 1024 * 1024 * 1024, false));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.TEXT, "text", "", "", new Date(), 40L * 1024 * 1024 * 1024, true));
-        directoryItems.add(new DirectoryItem(DirectoryItemType.OTHER, "other", "", "", new Date(), 50, false));
-        return directoryItems;
+    private DirectoryListing createMockDirectoryListing(@NonNull String directory) {
+        long now = System.currentTimeMillis();
+        return new DirectoryListing.Builder(directory, 7)
+                .add(DirectoryItemType.DIRECTORY, "child", now, 0, false)
+                .add(DirectoryItemType.IMAGE, "picture", now, 10, true)
+                .add(DirectoryItemType.AUDIO, "audio", now, 20 * 1024, false)
+                .add(DirectoryItemType.VIDEO, "video", now, 30 * 1024 * 1024, false)
+                .add(DirectoryItemType.ARCHIVE, "archive", now, 40L * 1024 * 1024 * 1024, false)
+                .add(DirectoryItemType.TEXT, "text", now, 40L * 1024 * 1024 * 1024, true)
+                .add(DirectoryItemType.OTHER, "other", now, 50, false)
+                .build();
     }
 }
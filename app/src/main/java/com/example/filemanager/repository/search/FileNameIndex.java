@@ -0,0 +1,605 @@
+package com.example.filemanager.repository.search;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.StructStat;
+
+import com.example.filemanager.model.FileNameIndexStats;
+import com.example.filemanager.util.NameFoldingUtil;
+import com.example.filemanager.util.filesystem.FileStatUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Trigram index over folded file names of one storage, kept in a memory-mapped file.
+// Layout: header, trigram keys, posting offsets, postings, entries, directories, characters.
+// An entry is (directory, name offset, name length | directory flag, folded name offset, folded name length),
+// a name that is its own folded form is stored once.
+public class FileNameIndex {
+    private static final int MAGIC = 0x464E4958;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 * 9 + 8 * 2;
+    private static final int ENTRY_SIZE = 5;
+    private static final int DIRECTORY_SIZE = 6;
+    private static final int DIRECTORY_FLAG = 0x80000000;
+    private static final long UNKNOWN_MODIFICATION_TIME = -1;
+
+    private File file;
+    private String rootPath;
+    private final Object updateLock = new Object();
+
+    private boolean isLoaded;
+    private MappedByteBuffer buffer;
+    private LongBuffer trigramKeys;
+    private IntBuffer postingOffsets;
+    private IntBuffer postings;
+    private IntBuffer entries;
+    private IntBuffer directories;
+    private CharBuffer chars;
+    private FileNameIndexStats stats;
+
+
+    public FileNameIndex(@NonNull File file, @NonNull String rootPath) {
+        this.file = file;
+        this.rootPath = rootPath;
+    }
+
+
+    @NonNull
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    public boolean covers(@NonNull String directory) {
+        return directory.equals(rootPath) || directory.startsWith(withSeparator(rootPath));
+    }
+
+    @Nullable
+    public synchronized FileNameIndexStats getStats() {
+        load();
+        return stats;
+    }
+
+    // Paths of indexed entries below the directory whose names contain the query,
+    // null when the index hasn't been built yet
+    @Nullable
+    public synchronized List<String> search(@NonNull String directory, @NonNull String foldedQuery, boolean includeHidden) {
+        load();
+        if (buffer == null) {
+            return null;
+        }
+
+        String directoryPrefix = withSeparator(directory);
+        List<String> result = new ArrayList<>();
+        int[] candidates = findCandidates(foldedQuery);
+        int candidateCount = (candidates != null) ? candidates.length : stats.getEntryCount();
+
+        for (int i = 0; i < candidateCount; i++) {
+            int entry = (candidates != null) ? candidates[i] : i;
+            // Only names of matching entries are read into strings
+            if (!containsFolded(entries.get(entry * ENTRY_SIZE + 3), entries.get(entry * ENTRY_SIZE + 4), foldedQuery)) {
+                continue;
+            }
+            String name = readString(entries.get(entry * ENTRY_SIZE + 1), entries.get(entry * ENTRY_SIZE + 2) & ~DIRECTORY_FLAG);
+
+            int directoryIndex = entries.get(entry * ENTRY_SIZE);
+            String parentPath = readDirectoryPath(directoryIndex);
+            String path = withSeparator(parentPath) + name;
+            if (!path.startsWith(directoryPrefix)) {
+                continue;
+            }
+
+            String relativePath = path.substring(directoryPrefix.length());
+            if (!includeHidden && (relativePath.startsWith(".") || relativePath.contains(File.separator + "."))) {
+                continue;
+            }
+
+            result.add(path);
+        }
+
+        return result;
+    }
+
+    // Only directories whose mtime changed since the last build are listed again,
+    // unchanged ones reuse their names from the existing index
+    @NonNull
+    public FileNameIndexStats update() throws IOException {
+        synchronized (updateLock) {
+            return tryUpdate(null);
+        }
+    }
+
+    // Changes the app made or observed. Only the changed directories and their subtrees are checked,
+    // the rest of the index is reused without a stat() of every directory on the storage.
+    @NonNull
+    public FileNameIndexStats update(@NonNull Collection<String> changedDirectories) throws IOException {
+        synchronized (updateLock) {
+            return tryUpdate(changedDirectories);
+        }
+    }
+
+
+    @NonNull
+    private FileNameIndexStats tryUpdate(@Nullable Collection<String> changedDirectories) throws IOException {
+        long startTime = SystemClock.elapsedRealtime();
+
+        Map<String, DirectorySnapshot> previousSnapshots;
+        synchronized (this) {
+            load();
+            previousSnapshots = readSnapshots();
+        }
+
+        // Searches keep using the current mapping while the tree is walked
+        List<DirectorySnapshot> snapshots = new ArrayList<>();
+        int rescannedDirectoryCount = 0;
+
+        Deque<String> pendingDirectories = new ArrayDeque<>();
+        pendingDirectories.push(rootPath);
+
+        while (!pendingDirectories.isEmpty()) {
+            String directory = pendingDirectories.pop();
+            DirectorySnapshot snapshot = previousSnapshots.get(directory);
+
+            if (snapshot == null || changedDirectories == null || isInAny(directory, changedDirectories)) {
+                StructStat stat = FileStatUtil.lstat(directory);
+                if (!FileStatUtil.isDirectory(stat)) {
+                    continue;
+                }
+
+                // A reported directory is listed again even if its mtime looks the same, it only has a resolution of seconds on some storages
+                long lastModificationTime = FileStatUtil.getLastModified(stat);
+                boolean isReported = changedDirectories != null && changedDirectories.contains(directory);
+                if (snapshot == null || isReported || snapshot.lastModificationTime != lastModificationTime) {
+                    snapshot = scanDirectory(directory, lastModificationTime);
+                    rescannedDirectoryCount++;
+                }
+            }
+            snapshots.add(snapshot);
+
+            String directoryPrefix = withSeparator(directory);
+            for (int i = snapshot.isDirectory.nextSetBit(0); i >= 0; i = snapshot.isDirectory.nextSetBit(i + 1)) {
+                pendingDirectories.push(directoryPrefix + snapshot.names.get(i));
+            }
+        }
+
+        long buildTime = SystemClock.elapsedRealtime() - startTime;
+
+        synchronized (this) {
+            write(snapshots, buildTime, rescannedDirectoryCount);
+            unmap();
+            load();
+            return stats;
+        }
+    }
+
+    private void load() {
+        if (isLoaded) {
+            return;
+        }
+        isLoaded = true;
+
+        if (!file.exists()) {
+            return;
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+                return;
+            }
+            map(mapped);
+        } catch (IOException | RuntimeException ex) {
+            // A missing or damaged index is rebuilt by the next update
+            ex.printStackTrace();
+            unmap();
+            isLoaded = true;
+        }
+    }
+
+    private void map(@NonNull MappedByteBuffer mapped) {
+        int entryCount = mapped.getInt(8);
+        int directoryCount = mapped.getInt(12);
+        int trigramCount = mapped.getInt(16);
+        int postingCount = mapped.getInt(20);
+        int charCount = mapped.getInt(24);
+        int rescannedDirectoryCount = mapped.getInt(28);
+        long buildTime = mapped.getLong(36);
+
+        int offset = HEADER_SIZE;
+        trigramKeys = slice(mapped, offset).asLongBuffer();
+        offset += trigramCount * 8;
+        postingOffsets = slice(mapped, offset).asIntBuffer();
+        offset += (trigramCount + 1) * 4;
+        postings = slice(mapped, offset).asIntBuffer();
+        offset += postingCount * 4;
+        entries = slice(mapped, offset).asIntBuffer();
+        offset += entryCount * ENTRY_SIZE * 4;
+        directories = slice(mapped, offset).asIntBuffer();
+        offset += directoryCount * DIRECTORY_SIZE * 4;
+        chars = slice(mapped, offset).asCharBuffer();
+        offset += charCount * 2;
+
+        buffer = mapped;
+        stats = new FileNameIndexStats(entryCount, directoryCount, trigramCount, offset, buildTime, rescannedDirectoryCount);
+    }
+
+    private void unmap() {
+        isLoaded = false;
+        buffer = null;
+        trigramKeys = null;
+        postingOffsets = null;
+        postings = null;
+        entries = null;
+        directories = null;
+        chars = null;
+        stats = null;
+    }
+
+    @NonNull
+    private static ByteBuffer slice(@NonNull ByteBuffer buffer, int offset) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        return duplicate.slice();
+    }
+
+
+    // Sorted entry ids containing every trigram of the query, null when the query is too short to use the index
+    @Nullable
+    private int[] findCandidates(@NonNull String foldedQuery) {
+        if (foldedQuery.length() < 3) {
+            return null;
+        }
+
+        long[] queryTrigrams = getTrigrams(foldedQuery);
+        int[] starts = new int[queryTrigrams.length];
+        int[] ends = new int[queryTrigrams.length];
+        int smallest = 0;
+
+        for (int i = 0; i < queryTrigrams.length; i++) {
+            int keyIndex = findTrigram(queryTrigrams[i]);
+            if (keyIndex < 0) {
+                return new int[0];
+            }
+            starts[i] = postingOffsets.get(keyIndex);
+            ends[i] = postingOffsets.get(keyIndex + 1);
+            if (ends[i] - starts[i] < ends[smallest] - starts[smallest]) {
+                smallest = i;
+            }
+        }
+
+        // Walk the shortest posting list and probe the others
+        int[] result = new int[ends[smallest] - starts[smallest]];
+        int count = 0;
+        for (int p = starts[smallest]; p < ends[smallest]; p++) {
+            int entry = postings.get(p);
+            boolean isInAll = true;
+            for (int i = 0; i < queryTrigrams.length && isInAll; i++) {
+                isInAll = i == smallest || containsPosting(starts[i], ends[i], entry);
+            }
+            if (isInAll) {
+                result[count++] = entry;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    private int findTrigram(long trigram) {
+        int low = 0;
+        int high = stats.getTrigramCount() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long key = trigramKeys.get(middle);
+            if (key < trigram) {
+                low = middle + 1;
+            } else if (key > trigram) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private boolean containsPosting(int start, int end, int entry) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = postings.get(middle);
+            if (value < entry) {
+                low = middle + 1;
+            } else if (value > entry) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static long[] getTrigrams(@NonNull String foldedName) {
+        int count = Math.max(0, foldedName.length() - 2);
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = toTrigram(foldedName, i);
+        }
+        return result;
+    }
+
+    private static long toTrigram(@NonNull String foldedName, int index) {
+        return ((long) foldedName.charAt(index) << 32)
+                | ((long) foldedName.charAt(index + 1) << 16)
+                | foldedName.charAt(index + 2);
+    }
+
+
+    private boolean containsFolded(int offset, int length, @NonNull String foldedQuery) {
+        int lastStart = offset + length - foldedQuery.length();
+        for (int start = offset; start <= lastStart; start++) {
+            int i = 0;
+            while (i < foldedQuery.length() && chars.get(start + i) == foldedQuery.charAt(i)) {
+                i++;
+            }
+            if (i == foldedQuery.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private String readString(int offset, int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = chars.get(offset + i);
+        }
+        return new String(result);
+    }
+
+    @NonNull
+    private String readDirectoryPath(int directoryIndex) {
+        int base = directoryIndex * DIRECTORY_SIZE;
+        return readString(directories.get(base + 2), directories.get(base + 3));
+    }
+
+    @NonNull
+    private Map<String, DirectorySnapshot> readSnapshots() {
+        Map<String, DirectorySnapshot> result = new HashMap<>();
+        if (buffer == null) {
+            return result;
+        }
+
+        for (int d = 0; d < stats.getDirectoryCount(); d++) {
+            int base = d * DIRECTORY_SIZE;
+            long lastModificationTime = ((long) directories.get(base) << 32) | (directories.get(base + 1) & 0xFFFFFFFFL);
+            int firstEntry = directories.get(base + 4);
+            int entryCount = directories.get(base + 5);
+
+            DirectorySnapshot snapshot = new DirectorySnapshot(readDirectoryPath(d), lastModificationTime);
+            for (int entry = firstEntry; entry < firstEntry + entryCount; entry++) {
+                int nameLength = entries.get(entry * ENTRY_SIZE + 2);
+                snapshot.add(
+                        readString(entries.get(entry * ENTRY_SIZE + 1), nameLength & ~DIRECTORY_FLAG),
+                        (nameLength & DIRECTORY_FLAG) != 0
+                );
+            }
+            result.put(snapshot.path, snapshot);
+        }
+
+        return result;
+    }
+
+    @NonNull
+    private static DirectorySnapshot scanDirectory(@NonNull String directory, long lastModificationTime) {
+        String[] names = new File(directory).list();
+        if (names == null) {
+            // Unreadable now (e.g. no permission yet), must not be reused by the next update
+            return new DirectorySnapshot(directory, UNKNOWN_MODIFICATION_TIME);
+        }
+
+        DirectorySnapshot snapshot = new DirectorySnapshot(directory, lastModificationTime);
+
+        String directoryPrefix = withSeparator(directory);
+        for (String name : names) {
+            // lstat() so symbolic links to directories are not followed into cycles
+            StructStat stat = FileStatUtil.lstat(directoryPrefix + name);
+            snapshot.add(name, FileStatUtil.isDirectory(stat));
+        }
+        return snapshot;
+    }
+
+    private void write(@NonNull List<DirectorySnapshot> snapshots, long buildTime, int rescannedDirectoryCount) throws IOException {
+        StringBuilder allChars = new StringBuilder();
+        int entryCount = 0;
+        for (DirectorySnapshot snapshot : snapshots) {
+            entryCount += snapshot.names.size();
+        }
+
+        int[] entryTable = new int[entryCount * ENTRY_SIZE];
+        int[] directoryTable = new int[snapshots.size() * DIRECTORY_SIZE];
+        // Trigrams of entry e are entryTrigrams[entryTrigramStarts[e] until entryTrigramStarts[e + 1]]
+        long[] entryTrigrams = new long[64];
+        int[] entryTrigramStarts = new int[entryCount + 1];
+        int trigramOccurrenceCount = 0;
+
+        int entry = 0;
+        for (int d = 0; d < snapshots.size(); d++) {
+            DirectorySnapshot snapshot = snapshots.get(d);
+            int base = d * DIRECTORY_SIZE;
+            directoryTable[base] = (int) (snapshot.lastModificationTime >>> 32);
+            directoryTable[base + 1] = (int) snapshot.lastModificationTime;
+            directoryTable[base + 2] = allChars.length();
+            directoryTable[base + 3] = snapshot.path.length();
+            directoryTable[base + 4] = entry;
+            directoryTable[base + 5] = snapshot.names.size();
+            allChars.append(snapshot.path);
+
+            for (int i = 0; i < snapshot.names.size(); i++) {
+                String name = snapshot.names.get(i);
+                entryTable[entry * ENTRY_SIZE] = d;
+                entryTable[entry * ENTRY_SIZE + 1] = allChars.length();
+                entryTable[entry * ENTRY_SIZE + 2] = name.length() | (snapshot.isDirectory.get(i) ? DIRECTORY_FLAG : 0);
+                allChars.append(name);
+
+                // fold() returns the name itself when there is nothing to fold
+                String foldedName = NameFoldingUtil.fold(name);
+                entryTable[entry * ENTRY_SIZE + 3] = (foldedName == name) ? entryTable[entry * ENTRY_SIZE + 1] : allChars.length();
+                entryTable[entry * ENTRY_SIZE + 4] = foldedName.length();
+                if (foldedName != name) {
+                    allChars.append(foldedName);
+                }
+
+                long[] trigrams = getTrigrams(foldedName);
+                if (trigramOccurrenceCount + trigrams.length > entryTrigrams.length) {
+                    entryTrigrams = Arrays.copyOf(entryTrigrams, Math.max(trigramOccurrenceCount + trigrams.length, entryTrigrams.length * 2));
+                }
+                System.arraycopy(trigrams, 0, entryTrigrams, trigramOccurrenceCount, trigrams.length);
+                trigramOccurrenceCount += trigrams.length;
+                entry++;
+                entryTrigramStarts[entry] = trigramOccurrenceCount;
+            }
+        }
+
+        long[] sortedTrigrams = Arrays.copyOf(entryTrigrams, trigramOccurrenceCount);
+        Arrays.sort(sortedTrigrams);
+        sortedTrigrams = Arrays.copyOf(sortedTrigrams, removeDuplicates(sortedTrigrams));
+
+        // Counting sort of (trigram, entry) pairs into one posting array, entries are visited in ascending order.
+        // A trigram repeated within a name is counted once, it was last seen by the same entry.
+        int[] postingOffsets = new int[sortedTrigrams.length + 1];
+        int[] lastEntries = new int[sortedTrigrams.length];
+        Arrays.fill(lastEntries, -1);
+        int[] entryTrigramIndices = new int[trigramOccurrenceCount];
+        for (int e = 0; e < entryCount; e++) {
+            for (int i = entryTrigramStarts[e]; i < entryTrigramStarts[e + 1]; i++) {
+                int trigramIndex = Arrays.binarySearch(sortedTrigrams, entryTrigrams[i]);
+                entryTrigramIndices[i] = trigramIndex;
+                if (lastEntries[trigramIndex] != e) {
+                    lastEntries[trigramIndex] = e;
+                    postingOffsets[trigramIndex + 1]++;
+                }
+            }
+        }
+        for (int t = 0; t < sortedTrigrams.length; t++) {
+            postingOffsets[t + 1] += postingOffsets[t];
+        }
+
+        int postingCount = postingOffsets[sortedTrigrams.length];
+        int[] postingTable = new int[postingCount];
+        int[] positions = Arrays.copyOf(postingOffsets, sortedTrigrams.length);
+        Arrays.fill(lastEntries, -1);
+        for (int e = 0; e < entryCount; e++) {
+            for (int i = entryTrigramStarts[e]; i < entryTrigramStarts[e + 1]; i++) {
+                int trigramIndex = entryTrigramIndices[i];
+                if (lastEntries[trigramIndex] != e) {
+                    lastEntries[trigramIndex] = e;
+                    postingTable[positions[trigramIndex]++] = e;
+                }
+            }
+        }
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entryCount);
+            output.writeInt(snapshots.size());
+            output.writeInt(sortedTrigrams.length);
+            output.writeInt(postingCount);
+            output.writeInt(allChars.length());
+            output.writeInt(rescannedDirectoryCount);
+            output.writeInt(0);
+            output.writeLong(buildTime);
+            output.writeLong(System.currentTimeMillis());
+
+            for (long trigram : sortedTrigrams) {
+                output.writeLong(trigram);
+            }
+
+            for (int postingOffset : postingOffsets) {
+                output.writeInt(postingOffset);
+            }
+            for (int posting : postingTable) {
+                output.writeInt(posting);
+            }
+
+            for (int value : entryTable) {
+                output.writeInt(value);
+            }
+            for (int value : directoryTable) {
+                output.writeInt(value);
+            }
+            output.writeChars(allChars.toString());
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    // Length of the unique prefix left in the sorted array
+    private static int removeDuplicates(@NonNull long[] sortedValues) {
+        int count = 0;
+        for (int i = 0; i < sortedValues.length; i++) {
+            if (count == 0 || sortedValues[i] != sortedValues[count - 1]) {
+                sortedValues[count++] = sortedValues[i];
+            }
+        }
+        return count;
+    }
+
+    private static boolean isInAny(@NonNull String directory, @NonNull Collection<String> ancestors) {
+        for (String ancestor : ancestors) {
+            if (directory.equals(ancestor) || directory.startsWith(withSeparator(ancestor))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private static String withSeparator(@NonNull String directory) {
+        return directory.endsWith(File.separator) ? directory : directory + File.separator;
+    }
+
+
+    private static class DirectorySnapshot {
+        private final String path;
+        private final long lastModificationTime;
+        private final List<String> names = new ArrayList<>();
+        private final BitSet isDirectory = new BitSet();
+
+        DirectorySnapshot(@NonNull String path, long lastModificationTime) {
+            this.path = path;
+            this.lastModificationTime = lastModificationTime;
+        }
+
+        void add(@NonNull String name, boolean isDirectory) {
+            this.isDirectory.set(names.size(), isDirectory);
+            names.add(name);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.filemanager.repository.search;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.StructStat;
+
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.FileNameIndexStats;
+import com.example.filemanager.model.SearchProgress;
+import com.example.filemanager.util.DirectoryItemTypeUtil;
+import com.example.filemanager.util.HorspoolSearcher;
+import com.example.filemanager.util.MetadataQuery;
+import com.example.filemanager.util.NameFoldingUtil;
+import com.example.filemanager.util.filesystem.ContentSearchUtil;
+import com.example.filemanager.util.filesystem.FileStatUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+public class FileSystemSearchRepository implements SearchRepository {
+    private static final long SEARCH_PROGRESS_INTERVAL_MS = 200;
+    private static final int SEARCH_MAX_PARALLELISM = 4;
+    private static final String INDEX_FILE_EXTENSION = ".idx";
+    private static final long CONTENT_SEARCH_MAX_FILE_SIZE = 32 * 1024 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // Changes are collected until none arrived for this long, every index update rewrites the whole index file
+    private static final long INDEX_UPDATE_DELAY_MS = 2000;
+
+    // Bounded, the walk is mostly waiting on stat() calls and shouldn't starve the rest of the app
+    private ForkJoinPool searchPool = new ForkJoinPool(
+            Math.min(SEARCH_MAX_PARALLELISM, Runtime.getRuntime().availableProcessors())
+    );
+
+    private File indexDirectory;
+    private ConcurrentMap<String, FileNameIndex> indexes = new ConcurrentHashMap<>();
+    private int contentSearchConcurrency;
+    private Subject<String> changedDirectories = PublishSubject.<String>create().toSerialized();
+
+
+    public FileSystemSearchRepository(@NonNull File indexDirectory, int contentSearchConcurrency) {
+        this.indexDirectory = indexDirectory;
+        this.contentSearchConcurrency = contentSearchConcurrency;
+
+        // Lives as long as the repository, which lives as long as the app
+        changedDirectories
+                .buffer(changedDirectories.debounce(INDEX_UPDATE_DELAY_MS, TimeUnit.MILLISECONDS))
+                .observeOn(Schedulers.io())
+                .subscribe(this::updateIndexes, Throwable::printStackTrace);
+    }
+
+
+    @NonNull
+    @Override
+    public Observable<SearchProgress> searchRecursively(@NonNull String directory, @NonNull String query, boolean includeHidden) {
+        return Observable.defer(() -> {
+            // The index only knows names, metadata filters need the stat() of every file anyway
+            MetadataQuery metadataQuery = MetadataQuery.parse(query);
+            if (metadataQuery != null) {
+                return walkDirectory(directory, query, metadataQuery, includeHidden);
+            }
+
+            FileNameIndex index = findIndex(directory);
+            SearchProgress indexedResult = (index != null) ? searchIndex(index, directory, query, includeHidden) : null;
+            if (indexedResult != null) {
+                return Observable.just(indexedResult);
+            }
+            return walkDirectory(directory, query, null, includeHidden);
+        });
+    }
+
+    @NonNull
+    @Override
+    public Observable<ContentSearchHit> searchContent(@NonNull String directory, @NonNull String query, boolean includeHidden) {
+        return Observable.defer(() -> {
+            HorspoolSearcher searcher = new HorspoolSearcher(query.getBytes(UTF_8));
+
+            // Files are mapped and scanned in parallel, at most contentSearchConcurrency at a time
+            return findTextFiles(directory, includeHidden)
+                    .flatMap(
+                            item -> Observable
+                                    .fromCallable(() -> ContentSearchUtil.searchFile(item, searcher))
+                                    .subscribeOn(Schedulers.io())
+                                    .flatMapIterable(hits -> hits)
+                                    .onErrorResumeNext(Observable.<ContentSearchHit>empty()),
+                            contentSearchConcurrency
+                    );
+        });
+    }
+
+    @NonNull
+    @Override
+    public Single<FileNameIndexStats> updateIndex(@NonNull String storagePath) {
+        return Single.fromCallable(() -> getIndex(storagePath).update());
+    }
+
+    @NonNull
+    @Override
+    public Maybe<FileNameIndexStats> getIndexStats(@NonNull String storagePath) {
+        return Maybe.fromCallable(() -> getIndex(storagePath).getStats());
+    }
+
+    @Override
+    public void notifyDirectoriesChanged(@NonNull Collection<String> directories) {
+        for (String directory : directories) {
+            changedDirectories.onNext(directory);
+        }
+    }
+
+
+    @NonNull
+    private FileNameIndex getIndex(@NonNull String storagePath) {
+        FileNameIndex index = indexes.get(storagePath);
+        if (index == null) {
+            indexDirectory.mkdirs();
+            File file = new File(indexDirectory, Integer.toHexString(storagePath.hashCode()) + INDEX_FILE_EXTENSION);
+            index = new FileNameIndex(file, storagePath);
+            FileNameIndex existingIndex = indexes.putIfAbsent(storagePath, index);
+            if (existingIndex != null) {
+                index = existingIndex;
+            }
+        }
+        return index;
+    }
+
+    // Indexes not built yet are left alone, building them is up to updateIndex()
+    private void updateIndexes(@NonNull List<String> directories) {
+        for (FileNameIndex index : indexes.values()) {
+            Set<String> coveredDirectories = new HashSet<>();
+            for (String directory : directories) {
+                if (index.covers(directory)) {
+                    coveredDirectories.add(directory);
+                }
+            }
+
+            if (coveredDirectories.isEmpty() || index.getStats() == null) {
+                continue;
+            }
+
+            try {
+                index.update(coveredDirectories);
+            } catch (IOException ex) {
+                // Searches drop entries that are gone, new ones are picked up by the next update
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    @Nullable
+    private FileNameIndex findIndex(@NonNull String directory) {
+        FileNameIndex result = null;
+        for (FileNameIndex index : indexes.values()) {
+            boolean isMoreSpecific = result == null || index.getRootPath().length() > result.getRootPath().length();
+            if (index.covers(directory) && isMoreSpecific) {
+                result = index;
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private SearchProgress searchIndex(@NonNull FileNameIndex index, @NonNull String directory, @NonNull String query, boolean includeHidden) {
+        long startTime = SystemClock.elapsedRealtime();
+        List<String> paths = index.search(directory, NameFoldingUtil.fold(query), includeHidden);
+        if (paths == null) {
+            return null;
+        }
+
+        // Only matches are stat()-ed, files deleted since the last index update are dropped here
+        List<DirectoryItem> matches = new ArrayList<>();
+        for (String path : paths) {
+            StructStat stat = FileStatUtil.stat(path);
+            if (stat == null) {
+                continue;
+            }
+
+            String name = new File(path).getName();
+            matches.add(new DirectoryItem(
+                    DirectoryItemTypeUtil.getDirectoryItemType(name, FileStatUtil.isDirectory(stat)),
+                    name,
+                    path,
+                    FileStatUtil.getLastModified(stat),
+                    FileStatUtil.getSize(stat),
+                    name.startsWith(".")
+            ));
+        }
+
+        FileNameIndexStats stats = index.getStats();
+        long scannedFileCount = (stats != null) ? stats.getEntryCount() : paths.size();
+        long elapsedTime = SystemClock.elapsedRealtime() - startTime;
+        return new SearchProgress(matches, scannedFileCount, elapsedTime, true);
+    }
+
+    @NonNull
+    private Observable<DirectoryItem> findTextFiles(@NonNull String directory, boolean includeHidden) {
+        return Observable.create(emitter -> {
+            Deque<String> pendingDirectories = new ArrayDeque<>();
+            pendingDirectories.push(directory);
+
+            while (!pendingDirectories.isEmpty() && !emitter.isDisposed()) {
+                String currentDirectory = pendingDirectories.pop();
+                String[] names = new File(currentDirectory).list();
+                if (names == null) {
+                    continue;
+                }
+
+                for (String name : names) {
+                    boolean isHidden = name.startsWith(".");
+                    if (isHidden && !includeHidden) {
+                        continue;
+                    }
+
+                    String path = new File(currentDirectory, name).getPath();
+                    StructStat stat = FileStatUtil.lstat(path);
+                    if (FileStatUtil.isDirectory(stat)) {
+                        pendingDirectories.push(path);
+                        continue;
+                    }
+                    if (FileStatUtil.isSymbolicLink(stat)) {
+                        // Size and time of the link itself say nothing about the file it points to.
+                        // Linked directories are not followed, they could lead back into the walk.
+                        stat = FileStatUtil.statTarget(path);
+                        if (stat == null || FileStatUtil.isDirectory(stat)) {
+                            continue;
+                        }
+                    }
+
+                    // Type comes from the extension, binary content is rejected later by the scan itself
+                    long size = FileStatUtil.getSize(stat);
+                    DirectoryItemType type = DirectoryItemTypeUtil.getDirectoryItemType(name, false);
+                    if (type == DirectoryItemType.TEXT && size <= CONTENT_SEARCH_MAX_FILE_SIZE) {
+                        emitter.onNext(new DirectoryItem(type, name, path, FileStatUtil.getLastModified(stat), size, isHidden));
+                    }
+                }
+            }
+
+            emitter.onComplete();
+        });
+    }
+
+    @NonNull
+    private Observable<SearchProgress> walkDirectory(@NonNull String directory, @NonNull String query, @Nullable MetadataQuery metadataQuery, boolean includeHidden) {
+        return Observable.create(emitter -> {
+            SearchState state = new SearchState(NameFoldingUtil.fold(query), metadataQuery, includeHidden);
+            SearchTask rootTask = new SearchTask(state, directory);
+
+            emitter.setCancellable(() -> {
+                state.isCancelled = true;
+                rootTask.cancel(false);
+            });
+
+            long startTime = SystemClock.elapsedRealtime();
+            searchPool.execute(rootTask);
+
+            boolean isFinished = false;
+            while (!isFinished && !emitter.isDisposed()) {
+                try {
+                    rootTask.get(SEARCH_PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    isFinished = true;
+                } catch (TimeoutException ex) {
+                    // Report what has been found so far and keep waiting
+                } catch (CancellationException ex) {
+                    return;
+                } catch (InterruptedException ex) {
+                    // Disposed from another thread, the walk is stopped and the interrupt left for the caller
+                    state.isCancelled = true;
+                    rootTask.cancel(false);
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    emitter.tryOnError(ex.getCause());
+                    return;
+                }
+
+                long elapsedTime = SystemClock.elapsedRealtime() - startTime;
+                emitter.onNext(new SearchProgress(state.drainMatches(), state.scannedFileCount.get(), elapsedTime, isFinished));
+            }
+
+            emitter.onComplete();
+        });
+    }
+
+
+    private static class SearchState {
+        private final String foldedQuery;
+        private final MetadataQuery metadataQuery;
+        private final boolean includeHidden;
+        private final Queue<DirectoryItem> matches = new ConcurrentLinkedQueue<>();
+        private final AtomicLong scannedFileCount = new AtomicLong();
+        private volatile boolean isCancelled;
+
+        SearchState(@NonNull String foldedQuery, @Nullable MetadataQuery metadataQuery, boolean includeHidden) {
+            this.foldedQuery = foldedQuery;
+            this.metadataQuery = metadataQuery;
+            this.includeHidden = includeHidden;
+        }
+
+        @NonNull
+        List<DirectoryItem> drainMatches() {
+            List<DirectoryItem> result = new ArrayList<>();
+            DirectoryItem item;
+            while ((item = matches.poll()) != null) {
+                result.add(item);
+            }
+            return result;
+        }
+    }
+
+
+    private static class SearchTask extends RecursiveAction {
+        private final SearchState state;
+        private final String directory;
+
+        SearchTask(@NonNull SearchState state, @NonNull String directory) {
+            this.state = state;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            if (state.isCancelled) {
+                return;
+            }
+
+            String[] names = new File(directory).list();
+            if (names == null) {
+                return;
+            }
+
+            List<SearchTask> subtasks = new ArrayList<>();
+            int scannedFileCount = 0;
+
+            for (String name : names) {
+                boolean isHidden = name.startsWith(".");
+                if (isHidden && !state.includeHidden) {
+                    continue;
+                }
+
+                String path = new File(directory, name).getPath();
+
+                // lstat() so symbolic links to directories are not followed into cycles
+                StructStat stat = FileStatUtil.lstat(path);
+                boolean isDirectory = FileStatUtil.isDirectory(stat);
+                scannedFileCount++;
+
+                if (state.metadataQuery != null) {
+                    DirectoryItemType type = DirectoryItemTypeUtil.getDirectoryItemType(name, isDirectory);
+                    long lastModificationTime = FileStatUtil.getLastModified(stat);
+                    long fileSize = FileStatUtil.getSize(stat);
+                    if (state.metadataQuery.matchesUnfolded(name, type, lastModificationTime, fileSize)) {
+                        state.matches.add(new DirectoryItem(type, name, path, lastModificationTime, fileSize, isHidden));
+                    }
+                } else if (NameFoldingUtil.fold(name).contains(state.foldedQuery)) {
+                    state.matches.add(new DirectoryItem(
+                            DirectoryItemTypeUtil.getDirectoryItemType(name, isDirectory),
+                            name,
+                            path,
+                            FileStatUtil.getLastModified(stat),
+                            FileStatUtil.getSize(stat),
+                            isHidden
+                    ));
+                }
+
+                if (isDirectory) {
+                    subtasks.add(new SearchTask(state, path));
+                }
+            }
+
+            // One update per directory instead of one per file
+            state.scannedFileCount.addAndGet(scannedFileCount);
+
+            invokeAll(subtasks);
+        }
+    }
+}
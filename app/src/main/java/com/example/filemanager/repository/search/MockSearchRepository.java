@@ -0,0 +1,64 @@
+package com.example.filemanager.repository.search;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.FileNameIndexStats;
+import com.example.filemanager.model.SearchProgress;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+public class MockSearchRepository implements SearchRepository {
+
+    @NonNull
+    @Override
+    public Observable<SearchProgress> searchRecursively(@NonNull String directory, @NonNull String query, boolean includeHidden) {
+        List<DirectoryItem> matches = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String name = query + " " + i + ".txt";
+            String path = new File(new File(directory, "Subdirectory " + i), name).getPath();
+            matches.add(new DirectoryItem(DirectoryItemType.TEXT, name, path, System.currentTimeMillis(), 1024, false));
+        }
+
+        return Observable.just(new SearchProgress(matches, 1000, 500, true))
+                .delay(500, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Observable<ContentSearchHit> searchContent(@NonNull String directory, @NonNull String query, boolean includeHidden) {
+        String path = new File(directory, "notes.txt").getPath();
+        DirectoryItem item = new DirectoryItem(DirectoryItemType.TEXT, "notes.txt", path, System.currentTimeMillis(), 1024, false);
+
+        return Observable.range(1, 5)
+                .map(i -> new ContentSearchHit(item, i * 10, "Line with " + query))
+                .delay(500, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Single<FileNameIndexStats> updateIndex(@NonNull String storagePath) {
+        return Single.just(new FileNameIndexStats(1000, 100, 5000, 64 * 1024, 500, 100))
+                .delay(500, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    @Override
+    public Maybe<FileNameIndexStats> getIndexStats(@NonNull String storagePath) {
+        return Maybe.empty();
+    }
+
+    @Override
+    public void notifyDirectoriesChanged(@NonNull Collection<String> directories) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.filemanager.repository.search;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.FileNameIndexStats;
+import com.example.filemanager.model.SearchProgress;
+
+import java.util.Collection;
+
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+public interface SearchRepository {
+    @NonNull
+    Observable<SearchProgress> searchRecursively(@NonNull String directory, @NonNull String query, boolean includeHidden);
+
+    @NonNull
+    Observable<ContentSearchHit> searchContent(@NonNull String directory, @NonNull String query, boolean includeHidden);
+
+    @NonNull
+    Single<FileNameIndexStats> updateIndex(@NonNull String storagePath);
+
+    @NonNull
+    Maybe<FileNameIndexStats> getIndexStats(@NonNull String storagePath);
+
+    // Directories whose entries were added, removed or renamed, indexes covering them are updated shortly after
+    void notifyDirectoriesChanged(@NonNull Collection<String> directories);
+}
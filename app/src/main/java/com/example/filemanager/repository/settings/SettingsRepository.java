@@ -10,7 +10,31 @@ public interface SettingsRepository {
 
     void setSortType(@NonNull SortType sortType);
 
+    boolean isSortDescending();
+
+    void setSortDescending(boolean isSortDescending);
+
     boolean areHiddenFilesVisible();
 
     void setHiddenFilesVisible(boolean areHiddenFilesVisible);
+
+    boolean isContentTypeDetectionEnabled();
+
+    void setContentTypeDetectionEnabled(boolean isContentTypeDetectionEnabled);
+
+    boolean isRecursiveSearchEnabled();
+
+    void setRecursiveSearchEnabled(boolean isRecursiveSearchEnabled);
+
+    boolean isFuzzySearchEnabled();
+
+    void setFuzzySearchEnabled(boolean isFuzzySearchEnabled);
+
+    boolean isContentSearchEnabled();
+
+    void setContentSearchEnabled(boolean isContentSearchEnabled);
+
+    boolean isCopyVerificationEnabled();
+
+    void setCopyVerificationEnabled(boolean isCopyVerificationEnabled);
 }
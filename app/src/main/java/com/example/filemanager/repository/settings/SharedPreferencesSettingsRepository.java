@@ -9,7 +9,13 @@ import com.example.filemanager.model.SortType;
 
 public class SharedPreferencesSettingsRepository implements SettingsRepository {
     private static final String SORT_TYPE_SHARED_PREFERENCES_KEY = "SORT_TYPE_SHARED_PREFERENCES_KEY";
+    private static final String SORT_DESCENDING_SHARED_PREFERENCES_KEY = "SORT_DESCENDING_SHARED_PREFERENCES_KEY";
     private static final String SHOW_HIDDEN_FILES_SHARED_PREFERENCES_KEY = "SHOW_HIDDEN_FILES_SHARED_PREFERENCES_KEY";
+    private static final String DETECT_CONTENT_TYPES_SHARED_PREFERENCES_KEY = "DETECT_CONTENT_TYPES_SHARED_PREFERENCES_KEY";
+    private static final String RECURSIVE_SEARCH_SHARED_PREFERENCES_KEY = "RECURSIVE_SEARCH_SHARED_PREFERENCES_KEY";
+    private static final String FUZZY_SEARCH_SHARED_PREFERENCES_KEY = "FUZZY_SEARCH_SHARED_PREFERENCES_KEY";
+    private static final String CONTENT_SEARCH_SHARED_PREFERENCES_KEY = "CONTENT_SEARCH_SHARED_PREFERENCES_KEY";
+    private static final String COPY_VERIFICATION_SHARED_PREFERENCES_KEY = "COPY_VERIFICATION_SHARED_PREFERENCES_KEY";
 
     private SharedPreferences sharedPreferences;
 
@@ -34,6 +40,19 @@ public class SharedPreferencesSettingsRepository implements SettingsRepository {
                 .apply();
     }
 
+    @Override
+    public boolean isSortDescending() {
+        return sharedPreferences.getBoolean(SORT_DESCENDING_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setSortDescending(boolean isSortDescending) {
+        sharedPreferences
+                .edit()
+                .putBoolean(SORT_DESCENDING_SHARED_PREFERENCES_KEY, isSortDescending)
+                .apply();
+    }
+
     @Override
     public boolean areHiddenFilesVisible() {
         return sharedPreferences.getBoolean(SHOW_HIDDEN_FILES_SHARED_PREFERENCES_KEY, false);
@@ -46,4 +65,69 @@ public class SharedPreferencesSettingsRepository implements SettingsRepository {
                 .putBoolean(SHOW_HIDDEN_FILES_SHARED_PREFERENCES_KEY, areHiddenFilesVisible)
                 .apply();
     }
+
+    @Override
+    public boolean isContentTypeDetectionEnabled() {
+        return sharedPreferences.getBoolean(DETECT_CONTENT_TYPES_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setContentTypeDetectionEnabled(boolean isContentTypeDetectionEnabled) {
+        sharedPreferences
+                .edit()
+                .putBoolean(DETECT_CONTENT_TYPES_SHARED_PREFERENCES_KEY, isContentTypeDetectionEnabled)
+                .apply();
+    }
+
+    @Override
+    public boolean isRecursiveSearchEnabled() {
+        return sharedPreferences.getBoolean(RECURSIVE_SEARCH_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setRecursiveSearchEnabled(boolean isRecursiveSearchEnabled) {
+        sharedPreferences
+                .edit()
+                .putBoolean(RECURSIVE_SEARCH_SHARED_PREFERENCES_KEY, isRecursiveSearchEnabled)
+                .apply();
+    }
+
+    @Override
+    public boolean isFuzzySearchEnabled() {
+        return sharedPreferences.getBoolean(FUZZY_SEARCH_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setFuzzySearchEnabled(boolean isFuzzySearchEnabled) {
+        sharedPreferences
+                .edit()
+                .putBoolean(FUZZY_SEARCH_SHARED_PREFERENCES_KEY, isFuzzySearchEnabled)
+                .apply();
+    }
+
+    @Override
+    public boolean isContentSearchEnabled() {
+        return sharedPreferences.getBoolean(CONTENT_SEARCH_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setContentSearchEnabled(boolean isContentSearchEnabled) {
+        sharedPreferences
+                .edit()
+                .putBoolean(CONTENT_SEARCH_SHARED_PREFERENCES_KEY, isContentSearchEnabled)
+                .apply();
+    }
+
+    @Override
+    public boolean isCopyVerificationEnabled() {
+        return sharedPreferences.getBoolean(COPY_VERIFICATION_SHARED_PREFERENCES_KEY, false);
+    }
+
+    @Override
+    public void setCopyVerificationEnabled(boolean isCopyVerificationEnabled) {
+        sharedPreferences
+                .edit()
+                .putBoolean(COPY_VERIFICATION_SHARED_PREFERENCES_KEY, isCopyVerificationEnabled)
+                .apply();
+    }
 }
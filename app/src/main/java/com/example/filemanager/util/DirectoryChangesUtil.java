@@ -0,0 +1,50 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryChange;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DirectoryChangesUtil {
+
+    @NonNull
+    public static DirectoryListing applyChanges(@NonNull DirectoryListing listing, @NonNull List<DirectoryChange> changes) {
+        // Only the last change of every file matters
+        Map<String, DirectoryChange> lastChanges = new LinkedHashMap<>();
+        for (DirectoryChange change : changes) {
+            String name = new File(change.getFilePath()).getName();
+            lastChanges.remove(name);
+            lastChanges.put(name, change);
+        }
+
+        DirectoryListing.Builder builder = new DirectoryListing.Builder(listing.getDirectory(), listing.size() + lastChanges.size());
+        int[] previousToNewIndices = new int[listing.size()];
+        for (int i = 0; i < listing.size(); i++) {
+            if (lastChanges.containsKey(listing.getName(i))) {
+                previousToNewIndices[i] = -1;
+            } else {
+                previousToNewIndices[i] = builder.size();
+                builder.add(listing, i);
+            }
+        }
+
+        // Changed entries are removed above and added again at the end, also when only their metadata changed
+        int firstAddedIndex = builder.size();
+        for (DirectoryChange change : lastChanges.values()) {
+            DirectoryItem item = change.getItem();
+            if (item != null) {
+                builder.add(item);
+            }
+        }
+
+        DirectoryListing result = builder.build();
+        result.inheritSortedIndices(listing, previousToNewIndices, firstAddedIndex);
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.model.ListChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class DirectoryContentDiffUtil {
+    private static final int MAX_CHANGED_POSITIONS = 64;
+
+    // Adapter ranges turning previous into current when only entries named in changedNames differ.
+    // Null when the lists can't be compared that way, e.g. a different search or more changes than
+    // a full refresh would cost, the caller then replaces the whole content.
+    @Nullable
+    public static List<ListChange> computeChanges(@NonNull List<DirectoryItem> previous, @NonNull List<DirectoryItem> current, @NonNull Set<String> changedNames) {
+        if (!(previous instanceof DirectoryListingView) || !(current instanceof DirectoryListingView)) {
+            return null;
+        }
+
+        DirectoryListingView previousView = (DirectoryListingView) previous;
+        DirectoryListingView currentView = (DirectoryListingView) current;
+        DirectoryListing previousListing = previousView.getListing();
+        DirectoryListing currentListing = currentView.getListing();
+
+        List<Integer> removedPositions = new ArrayList<>();
+        List<Integer> insertedPositions = new ArrayList<>();
+        List<Integer> changedPositions = new ArrayList<>();
+        int previousPosition = 0;
+        int currentPosition = 0;
+
+        // Entries that didn't change must appear in the same order in both lists
+        while (previousPosition < previousView.size() || currentPosition < currentView.size()) {
+            String previousName = (previousPosition < previousView.size()) ? previousListing.getName(previousView.getListingIndex(previousPosition)) : null;
+            String currentName = (currentPosition < currentView.size()) ? currentListing.getName(currentView.getListingIndex(currentPosition)) : null;
+
+            boolean isChanged = previousName != null && changedNames.contains(previousName);
+            if (isChanged && previousName.equals(currentName)) {
+                // Still at the same place, e.g. a modified file or a change that was already applied
+                changedPositions.add(currentPosition);
+                previousPosition++;
+                currentPosition++;
+            } else if (isChanged) {
+                removedPositions.add(previousPosition++);
+            } else if (currentName != null && changedNames.contains(currentName)) {
+                insertedPositions.add(currentPosition++);
+            } else if (previousName != null && previousName.equals(currentName)) {
+                previousPosition++;
+                currentPosition++;
+            } else {
+                return null;
+            }
+
+            if (removedPositions.size() + insertedPositions.size() + changedPositions.size() > MAX_CHANGED_POSITIONS) {
+                return null;
+            }
+        }
+
+        List<ListChange> result = new ArrayList<>();
+        for (int i = removedPositions.size() - 1; i >= 0; ) {
+            int end = i;
+            while (i > 0 && removedPositions.get(i - 1) == removedPositions.get(i) - 1) {
+                i--;
+            }
+            result.add(new ListChange(ListChange.Type.REMOVED, removedPositions.get(i), end - i + 1));
+            i--;
+        }
+        addAscendingRanges(result, ListChange.Type.INSERTED, insertedPositions);
+        addAscendingRanges(result, ListChange.Type.CHANGED, changedPositions);
+        return result;
+    }
+
+    private static void addAscendingRanges(@NonNull List<ListChange> result, @NonNull ListChange.Type type, @NonNull List<Integer> positions) {
+        for (int i = 0; i < positions.size(); ) {
+            int start = i;
+            while (i + 1 < positions.size() && positions.get(i + 1) == positions.get(i) + 1) {
+                i++;
+            }
+            result.add(new ListChange(type, positions.get(start), i - start + 1));
+            i++;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.filemanager.util;
 
 import android.support.annotation.NonNull;
-import android.webkit.MimeTypeMap;
 
 import com.example.filemanager.model.DirectoryItemType;
 
@@ -11,6 +10,7 @@ import java.util.Map;
 
 public class DirectoryItemTypeUtil {
     private static Map<String, DirectoryItemType> typeMap = new HashMap<>();
+    private static FileExtensionClassifier classifier;
 
     static {
         // Image
@@ -171,26 +171,21 @@ public class DirectoryItemTypeUtil {
         typeMap.put("htm", DirectoryItemType.TEXT);
         typeMap.put("html", DirectoryItemType.TEXT);
         typeMap.put("xml", DirectoryItemType.TEXT);
+
+        classifier = new FileExtensionClassifier(typeMap);
     }
 
     @NonNull
     public static DirectoryItemType getDirectoryItemType(@NonNull File file) {
-        if (file.isDirectory()) {
-            return DirectoryItemType.DIRECTORY;
-        }
-
-        String extension = getFileExtension(file);
-        return getDirectoryItemType(extension);
+        return getDirectoryItemType(file.getName(), file.isDirectory());
     }
 
     @NonNull
-    private static String getFileExtension(@NonNull File file) {
-        return MimeTypeMap.getFileExtensionFromUrl(file.getPath());
-    }
+    public static DirectoryItemType getDirectoryItemType(@NonNull String fileName, boolean isDirectory) {
+        if (isDirectory) {
+            return DirectoryItemType.DIRECTORY;
+        }
 
-    @NonNull
-    private static DirectoryItemType getDirectoryItemType(@NonNull String extension) {
-        DirectoryItemType type = typeMap.get(extension);
-        return (type != null) ? type : DirectoryItemType.OTHER;
+        return classifier.classify(fileName);
     }
 }
@@ -0,0 +1,95 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryItemType;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Case-insensitive trie of reversed extensions, file names are scanned from the end without allocations
+public class FileExtensionClassifier {
+    private static final int ALPHABET_SIZE = 36;
+    private static final int NO_NODE = 0;
+    private static final byte NO_TYPE = -1;
+
+    private int[] children;
+    private byte[] types;
+    private int nodeCount = 1;
+
+
+    public FileExtensionClassifier(@NonNull Map<String, DirectoryItemType> extensions) {
+        int capacity = 1;
+        for (String extension : extensions.keySet()) {
+            capacity += extension.length();
+        }
+
+        children = new int[capacity * ALPHABET_SIZE];
+        types = new byte[capacity];
+        Arrays.fill(types, NO_TYPE);
+
+        for (Map.Entry<String, DirectoryItemType> entry : extensions.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+
+
+    @NonNull
+    public DirectoryItemType classify(@NonNull CharSequence fileName) {
+        int node = 0;
+
+        for (int i = fileName.length() - 1; i >= 0; i--) {
+            char c = fileName.charAt(i);
+            if (c == '.') {
+                byte type = types[node];
+                return (type != NO_TYPE) ? DirectoryItemType.fromInt(type) : DirectoryItemType.OTHER;
+            }
+
+            int symbol = toSymbol(c);
+            if (symbol < 0) {
+                return DirectoryItemType.OTHER;
+            }
+
+            node = children[node * ALPHABET_SIZE + symbol];
+            if (node == NO_NODE) {
+                return DirectoryItemType.OTHER;
+            }
+        }
+
+        return DirectoryItemType.OTHER;
+    }
+
+
+    private void add(@NonNull String extension, @NonNull DirectoryItemType type) {
+        int node = 0;
+
+        for (int i = extension.length() - 1; i >= 0; i--) {
+            int symbol = toSymbol(extension.charAt(i));
+            if (symbol < 0) {
+                throw new IllegalArgumentException("Unsupported extension: " + extension);
+            }
+
+            int child = children[node * ALPHABET_SIZE + symbol];
+            if (child == NO_NODE) {
+                child = nodeCount++;
+                children[node * ALPHABET_SIZE + symbol] = child;
+            }
+            node = child;
+        }
+
+        types[node] = (byte) type.toInt();
+    }
+
+    private static int toSymbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return -1;
+    }
+}
@@ -3,8 +3,11 @@ package com.example.filemanager.util;
 import android.support.annotation.NonNull;
 
 import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FilterHiddenDirectoryItemsUtil {
@@ -19,4 +22,17 @@ public class FilterHiddenDirectoryItemsUtil {
         }
         return result;
     }
+
+    @NonNull
+    public static DirectoryListingView filterHiddenFiles(@NonNull DirectoryListing listing, boolean showHidden) {
+        int[] indices = new int[listing.size()];
+        int count = 0;
+        for (int i = 0; i < listing.size(); i++) {
+            if (listing.isHidden(i) && !showHidden) {
+                continue;
+            }
+            indices[count++] = i;
+        }
+        return new DirectoryListingView(listing, Arrays.copyOf(indices, count));
+    }
 }
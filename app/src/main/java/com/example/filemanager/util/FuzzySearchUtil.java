@@ -0,0 +1,153 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+
+public class FuzzySearchUtil {
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int MATCH_SCORE = 16;
+    private static final int BOUNDARY_BONUS = 16;
+    private static final int CONSECUTIVE_BONUS = 20;
+    private static final int GAP_PENALTY = 2;
+    private static final int MAX_GAP_PENALTY = 12;
+    private static final int LEADING_GAP_PENALTY = 1;
+    private static final int MAX_LEADING_GAP_PENALTY = 8;
+    private static final int MISSED_CHARACTER_PENALTY = 40;
+    private static final int MIN_QUERY_LENGTH_FOR_TYPOS = 4;
+
+    // Best matches first, at most maxResultCount of them
+    @NonNull
+    public static DirectoryListingView search(@NonNull DirectoryListingView items, @NonNull String query, int maxResultCount) {
+        String foldedQuery = NameFoldingUtil.fold(query);
+        DirectoryListing listing = items.getListing();
+        TopScores topScores = new TopScores(maxResultCount);
+
+        for (int i = 0; i < items.size(); i++) {
+            int index = items.getListingIndex(i);
+            int score = score(listing.getFoldedName(index), foldedQuery);
+            if (score != NO_MATCH) {
+                topScores.offer(score, index);
+            }
+        }
+
+        return new DirectoryListingView(listing, topScores.toIndicesByScore());
+    }
+
+    // Query characters are matched in order, e.g. "ivc2023" matches "invoice_2023.pdf".
+    // Matches at word starts and runs of consecutive matches score higher, skipped name characters cost a little.
+    // Longer queries may miss one character, so a single typo still finds the file.
+    public static int score(@NonNull String foldedName, @NonNull String foldedQuery) {
+        int queryLength = foldedQuery.length();
+        int nameLength = foldedName.length();
+        int allowedMisses = (queryLength >= MIN_QUERY_LENGTH_FOR_TYPOS) ? 1 : 0;
+
+        int score = 0;
+        int misses = 0;
+        int position = 0;
+        int previousMatch = -1;
+
+        for (int q = 0; q < queryLength; q++) {
+            char c = foldedQuery.charAt(q);
+            int match = foldedName.indexOf(c, position);
+
+            if (match < 0) {
+                if (++misses > allowedMisses) {
+                    return NO_MATCH;
+                }
+                score -= MISSED_CHARACTER_PENALTY;
+                continue;
+            }
+
+            score += MATCH_SCORE;
+            if (match == 0 || !Character.isLetterOrDigit(foldedName.charAt(match - 1))) {
+                score += BOUNDARY_BONUS;
+            }
+
+            if (previousMatch < 0) {
+                score -= Math.min(match * LEADING_GAP_PENALTY, MAX_LEADING_GAP_PENALTY);
+            } else if (match == previousMatch + 1) {
+                score += CONSECUTIVE_BONUS;
+            } else {
+                score -= Math.min((match - previousMatch - 1) * GAP_PENALTY, MAX_GAP_PENALTY);
+            }
+
+            previousMatch = match;
+            position = match + 1;
+        }
+
+        if (previousMatch < 0) {
+            return NO_MATCH;
+        }
+
+        // Prefer shorter names when everything else is equal
+        return score - (nameLength - queryLength) / 4;
+    }
+
+
+    // Bounded min-heap of (score, index) pairs packed into longs, the weakest match is on top
+    private static class TopScores {
+        private final long[] heap;
+        private int size;
+
+        TopScores(int capacity) {
+            heap = new long[Math.max(capacity, 1)];
+        }
+
+        void offer(int score, int index) {
+            // Higher score wins, then lower index to keep listing order stable
+            long value = ((long) score << 32) | (Integer.MAX_VALUE - index);
+
+            if (size < heap.length) {
+                heap[size] = value;
+                siftUp(size++);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        @NonNull
+        int[] toIndicesByScore() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = Integer.MAX_VALUE - (int) heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private void siftUp(int position) {
+            long value = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                position = parent;
+            }
+            heap[position] = value;
+        }
+
+        private void siftDown(int position) {
+            long value = heap[position];
+            int half = size >>> 1;
+            while (position < half) {
+                int child = 2 * position + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[position] = heap[child];
+                position = child;
+            }
+            heap[position] = value;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Boyer-Moore-Horspool search of a byte pattern, ASCII letters are matched case-insensitively.
+// The inner loop only compares bytes and jumps by a table lookup, so it stays cheap on large mapped files.
+public class HorspoolSearcher {
+    private byte[] pattern;
+    private int[] shifts = new int[256];
+
+
+    public HorspoolSearcher(@NonNull byte[] pattern) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("Empty pattern");
+        }
+
+        this.pattern = new byte[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            this.pattern[i] = toLowerCase(pattern[i]);
+        }
+
+        Arrays.fill(shifts, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            byte b = this.pattern[i];
+            shifts[b & 0xFF] = pattern.length - 1 - i;
+            // Upper case text bytes must jump like their lower case pattern bytes
+            if (b >= 'a' && b <= 'z') {
+                shifts[(b - 'a' + 'A') & 0xFF] = pattern.length - 1 - i;
+            }
+        }
+    }
+
+
+    // Absolute index of the first match at or after from, or -1
+    public int indexOf(@NonNull ByteBuffer buffer, int from, int to) {
+        int last = pattern.length - 1;
+        int position = from;
+
+        while (position + last < to) {
+            byte b = buffer.get(position + last);
+            if (toLowerCase(b) == pattern[last] && matchesAt(buffer, position)) {
+                return position;
+            }
+            position += shifts[b & 0xFF];
+        }
+
+        return -1;
+    }
+
+    private boolean matchesAt(@NonNull ByteBuffer buffer, int position) {
+        for (int i = pattern.length - 2; i >= 0; i--) {
+            if (toLowerCase(buffer.get(position + i)) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.exception.InvalidSearchQueryException;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Conjunction of filters over item metadata, e.g. "type:video size>500MB modified<30d name:*.mkv".
+// Words without a key match names like a regular search, a filter that can't be parsed is treated as a word.
+// A comparison on names, e.g. "name>a", is rejected with InvalidSearchQueryException rather than searched for.
+public class MetadataQuery {
+    private static final Pattern FILTER_PATTERN = Pattern.compile("(type|size|modified|name)(>=|<=|:|=|>|<)(.+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SIZE_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)(b|k|kb|m|mb|g|gb)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AGE_PATTERN = Pattern.compile("(\\d+)(h|d|w|y)", Pattern.CASE_INSENSITIVE);
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    private static final long ONE_KB = 1024;
+    private static final long ONE_MB = 1024 * ONE_KB;
+    private static final long ONE_GB = 1024 * ONE_MB;
+    private static final long ONE_DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    // Relative cost of a single evaluation, the planner runs cheaper filters first
+    private static final int NUMBER_COST = 1;
+    private static final int NAME_COST = 4;
+    private static final int GLOB_COST = 8;
+
+    private final Filter[] filters;
+
+
+    private MetadataQuery(@NonNull List<Filter> filters) {
+        // Stable sort, filters of the same cost keep the order they were written in
+        Collections.sort(filters, (first, second) -> Integer.compare(first.cost, second.cost));
+        this.filters = filters.toArray(new Filter[0]);
+    }
+
+    // Null when the query has no filters, plain queries keep matching the whole text as a name substring
+    @Nullable
+    public static MetadataQuery parse(@NonNull String query) {
+        long now = System.currentTimeMillis();
+        List<Filter> filters = new ArrayList<>();
+        boolean hasMetadataFilter = false;
+
+        for (String token : query.trim().split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+
+            Matcher matcher = FILTER_PATTERN.matcher(token);
+            if (matcher.matches() && parseFilter(matcher.group(1), matcher.group(2), matcher.group(3), now, filters)) {
+                hasMetadataFilter = true;
+            } else {
+                filters.add(new NameFilter(NameFoldingUtil.fold(token)));
+            }
+        }
+
+        return hasMetadataFilter ? new MetadataQuery(filters) : null;
+    }
+
+
+    public boolean matches(@NonNull String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+        return matches(foldedName, true, type, lastModificationTime, fileSize);
+    }
+
+    // For names read from the file system, the name is only folded once the cheaper filters have passed
+    public boolean matchesUnfolded(@NonNull String name, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+        return matches(name, false, type, lastModificationTime, fileSize);
+    }
+
+    public boolean matches(@NonNull DirectoryListing listing, int index) {
+        return matches(
+                listing.getFoldedName(index),
+                listing.getType(index),
+                listing.getLastModificationTime(index),
+                listing.getFileSize(index)
+        );
+    }
+
+
+    private boolean matches(@NonNull String name, boolean isNameFolded, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+        String foldedName = isNameFolded ? name : null;
+        for (Filter filter : filters) {
+            if (filter.isNameFilter && foldedName == null) {
+                foldedName = NameFoldingUtil.fold(name);
+            }
+            if (!filter.matches(foldedName, type, lastModificationTime, fileSize)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean parseFilter(@NonNull String key, @NonNull String operator, @NonNull String value, long now, @NonNull List<Filter> filters) {
+        Comparison comparison = Comparison.fromOperator(operator);
+
+        switch (key.toLowerCase(Locale.US)) {
+            case "type": {
+                DirectoryItemType type = parseType(value);
+                if (type == null || comparison != Comparison.EQUAL) {
+                    return false;
+                }
+                filters.add(new TypeFilter(type));
+                return true;
+            }
+            case "size": {
+                Matcher matcher = SIZE_PATTERN.matcher(value);
+                if (!matcher.matches()) {
+                    return false;
+                }
+                long size = (long) (Double.parseDouble(matcher.group(1)) * getSizeMultiplier(matcher.group(2)));
+                filters.add(new SizeFilter(comparison, size));
+                return true;
+            }
+            case "modified": {
+                return parseModified(comparison, value, now, filters);
+            }
+            case "name": {
+                if (comparison != Comparison.EQUAL) {
+                    throw new InvalidSearchQueryException(key + operator + value);
+                }
+                String foldedValue = NameFoldingUtil.fold(value);
+                boolean isGlob = foldedValue.indexOf('*') >= 0 || foldedValue.indexOf('?') >= 0;
+                filters.add(isGlob ? new GlobFilter(foldedValue) : new NameFilter(foldedValue));
+                return true;
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    @Nullable
+    private static DirectoryItemType parseType(@NonNull String value) {
+        String lowerCaseValue = value.toLowerCase(Locale.US);
+        if (lowerCaseValue.equals("folder") || lowerCaseValue.equals("dir")) {
+            return DirectoryItemType.DIRECTORY;
+        }
+        for (DirectoryItemType type : DirectoryItemType.values()) {
+            if (type.name().toLowerCase(Locale.US).equals(lowerCaseValue)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static long getSizeMultiplier(@Nullable String unit) {
+        if (unit == null) {
+            return 1;
+        }
+        switch (unit.toLowerCase(Locale.US)) {
+            case "k":
+            case "kb": return ONE_KB;
+            case "m":
+            case "mb": return ONE_MB;
+            case "g":
+            case "gb": return ONE_GB;
+            default: return 1;
+        }
+    }
+
+    // Either an age, "modified<30d" is newer than 30 days, or a day, "modified>2023-01-31" is after that day
+    private static boolean parseModified(@NonNull Comparison comparison, @NonNull String value, long now, @NonNull List<Filter> filters) {
+        Matcher matcher = AGE_PATTERN.matcher(value);
+        if (matcher.matches()) {
+            long age = Long.parseLong(matcher.group(1)) * getAgeUnit(matcher.group(2));
+            filters.add(new ModifiedFilter(comparison.forAge(), now - age));
+            return true;
+        }
+
+        long dayStart;
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+            format.setLenient(false);
+            dayStart = format.parse(value).getTime();
+        } catch (ParseException ex) {
+            return false;
+        }
+        long dayEnd = dayStart + ONE_DAY_MS;
+
+        switch (comparison) {
+            case LESS: filters.add(new ModifiedFilter(Comparison.LESS, dayStart)); break;
+            case LESS_OR_EQUAL: filters.add(new ModifiedFilter(Comparison.LESS, dayEnd)); break;
+            case GREATER: filters.add(new ModifiedFilter(Comparison.GREATER_OR_EQUAL, dayEnd)); break;
+            case GREATER_OR_EQUAL: filters.add(new ModifiedFilter(Comparison.GREATER_OR_EQUAL, dayStart)); break;
+            default: {
+                filters.add(new ModifiedFilter(Comparison.GREATER_OR_EQUAL, dayStart));
+                filters.add(new ModifiedFilter(Comparison.LESS, dayEnd));
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static long getAgeUnit(@NonNull String unit) {
+        switch (unit.toLowerCase(Locale.US)) {
+            case "h": return TimeUnit.HOURS.toMillis(1);
+            case "w": return 7 * ONE_DAY_MS;
+            case "y": return 365 * ONE_DAY_MS;
+            default: return ONE_DAY_MS;
+        }
+    }
+
+    // "*" matches any run of characters and "?" a single one, the whole name has to match
+    private static boolean matchesGlob(@NonNull String name, @NonNull String pattern) {
+        int n = 0;
+        int p = 0;
+        int starPattern = -1;
+        int starName = 0;
+
+        while (n < name.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == name.charAt(n))) {
+                n++;
+                p++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starPattern = p++;
+                starName = n;
+            } else if (starPattern >= 0) {
+                // Let the last star absorb one more character and retry
+                p = starPattern + 1;
+                n = ++starName;
+            } else {
+                return false;
+            }
+        }
+
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+
+    private enum Comparison {
+        LESS,
+        LESS_OR_EQUAL,
+        EQUAL,
+        GREATER_OR_EQUAL,
+        GREATER;
+
+        @NonNull
+        static Comparison fromOperator(@NonNull String operator) {
+            switch (operator) {
+                case "<": return LESS;
+                case "<=": return LESS_OR_EQUAL;
+                case ">=": return GREATER_OR_EQUAL;
+                case ">": return GREATER;
+                default: return EQUAL;
+            }
+        }
+
+        // A smaller age is a later time, "modified:7d" means within the last 7 days
+        @NonNull
+        Comparison forAge() {
+            switch (this) {
+                case LESS: return GREATER;
+                case LESS_OR_EQUAL: return GREATER_OR_EQUAL;
+                case GREATER: return LESS;
+                case GREATER_OR_EQUAL: return LESS_OR_EQUAL;
+                default: return GREATER_OR_EQUAL;
+            }
+        }
+
+        boolean test(long value, long operand) {
+            switch (this) {
+                case LESS: return value < operand;
+                case LESS_OR_EQUAL: return value <= operand;
+                case GREATER_OR_EQUAL: return value >= operand;
+                case GREATER: return value > operand;
+                default: return value == operand;
+            }
+        }
+    }
+
+
+    private static abstract class Filter {
+        final int cost;
+        final boolean isNameFilter;
+
+        Filter(int cost, boolean isNameFilter) {
+            this.cost = cost;
+            this.isNameFilter = isNameFilter;
+        }
+
+        // foldedName is null for filters that don't look at the name
+        abstract boolean matches(@Nullable String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize);
+    }
+
+    private static class TypeFilter extends Filter {
+        private final DirectoryItemType type;
+
+        TypeFilter(@NonNull DirectoryItemType type) {
+            super(NUMBER_COST, false);
+            this.type = type;
+        }
+
+        @Override
+        boolean matches(@Nullable String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+            return this.type == type;
+        }
+    }
+
+    private static class SizeFilter extends Filter {
+        private final Comparison comparison;
+        private final long size;
+
+        SizeFilter(@NonNull Comparison comparison, long size) {
+            super(NUMBER_COST, false);
+            this.comparison = comparison;
+            this.size = size;
+        }
+
+        @Override
+        boolean matches(@Nullable String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+            // Directories have no meaningful size of their own
+            return type != DirectoryItemType.DIRECTORY && comparison.test(fileSize, size);
+        }
+    }
+
+    private static class ModifiedFilter extends Filter {
+        private final Comparison comparison;
+        private final long time;
+
+        ModifiedFilter(@NonNull Comparison comparison, long time) {
+            super(NUMBER_COST, false);
+            this.comparison = comparison;
+            this.time = time;
+        }
+
+        @Override
+        boolean matches(@Nullable String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+            return comparison.test(lastModificationTime, time);
+        }
+    }
+
+    private static class NameFilter extends Filter {
+        private final String foldedText;
+
+        NameFilter(@NonNull String foldedText) {
+            super(NAME_COST, true);
+            this.foldedText = foldedText;
+        }
+
+        @Override
+        boolean matches(@NonNull String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+            return foldedName.contains(foldedText);
+        }
+    }
+
+    private static class GlobFilter extends Filter {
+        private final String foldedPattern;
+
+        GlobFilter(@NonNull String foldedPattern) {
+            super(GLOB_COST, true);
+            this.foldedPattern = foldedPattern;
+        }
+
+        @Override
+        boolean matches(@NonNull String foldedName, @NonNull DirectoryItemType type, long lastModificationTime, long fileSize) {
+            return matchesGlob(foldedName, foldedPattern);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public class NameFoldingUtil {
+
+    // Key for case and diacritic insensitive matching and ordering: "Café.JPG" -> "cafe.jpg"
+    @NonNull
+    public static String fold(@NonNull String name) {
+        boolean isAscii = true;
+        boolean hasUpperCase = false;
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                isAscii = false;
+                break;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                hasUpperCase = true;
+            }
+        }
+
+        // Most names are plain lowercase ASCII, their key is the name itself
+        if (isAscii) {
+            return hasUpperCase ? name.toLowerCase(Locale.getDefault()) : name;
+        }
+
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                result.append(c);
+            }
+        }
+
+        return result.toString().toLowerCase(Locale.getDefault());
+    }
+}
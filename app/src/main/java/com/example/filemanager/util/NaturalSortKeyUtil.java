@@ -0,0 +1,136 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class NaturalSortKeyUtil {
+    private static final int END = 0x00;
+    private static final int NUMBER_SEGMENT = 0x01;
+    private static final int TEXT_SEGMENT = 0x02;
+    private static final int ESCAPE = 0x01;
+    private static final int MAX_DIGIT_COUNT = 0xFF;
+    private static final int MAX_CACHED_TEXT_KEYS = 1024;
+
+    // Collators are not thread safe and cloning one per key is too slow
+    private static final ThreadLocal<KeyBuilder> KEY_BUILDERS = new ThreadLocal<KeyBuilder>() {
+        @Override
+        protected KeyBuilder initialValue() {
+            return new KeyBuilder();
+        }
+    };
+
+
+    // Byte key ordering names naturally and by the current locale: "img_9" < "IMG_10" < "Émile".
+    // Text runs contribute their primary collation key, digit runs their numeric value,
+    // so comparing two keys is a plain byte comparison. Names with equal keys still need a tie-break.
+    @NonNull
+    public static byte[] createSortKey(@NonNull String name) {
+        return KEY_BUILDERS.get().build(name);
+    }
+
+    public static int compare(@NonNull byte[] key1, @NonNull byte[] key2) {
+        int length = Math.min(key1.length, key2.length);
+        for (int i = 0; i < length; i++) {
+            int result = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return key1.length - key2.length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+
+    private static class KeyBuilder {
+        private final Collator collator = Collator.getInstance();
+        // Names in one directory share most of their text runs, e.g. "IMG_" and ".jpg"
+        private final Map<String, byte[]> textKeys = new HashMap<>();
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        KeyBuilder() {
+            collator.setStrength(Collator.PRIMARY);
+        }
+
+        @NonNull
+        byte[] build(@NonNull String name) {
+            int length = name.length();
+            int start = 0;
+            size = 0;
+
+            while (start < length) {
+                boolean isDigitRun = isDigit(name.charAt(start));
+                int end = start + 1;
+                while (end < length && isDigit(name.charAt(end)) == isDigitRun) {
+                    end++;
+                }
+
+                if (isDigitRun) {
+                    writeNumber(name, start, end);
+                } else {
+                    writeText(getTextKey(name.substring(start, end)));
+                }
+                start = end;
+            }
+
+            write(END);
+            return Arrays.copyOf(buffer, size);
+        }
+
+        @NonNull
+        private byte[] getTextKey(@NonNull String text) {
+            byte[] key = textKeys.get(text);
+            if (key == null) {
+                if (textKeys.size() >= MAX_CACHED_TEXT_KEYS) {
+                    textKeys.clear();
+                }
+                key = collator.getCollationKey(text).toByteArray();
+                textKeys.put(text, key);
+            }
+            return key;
+        }
+
+        // Numbers sort before text, and by digit count before digits, so "9" < "10" without parsing
+        private void writeNumber(@NonNull String name, int start, int end) {
+            while (start < end - 1 && name.charAt(start) == '0') {
+                start++;
+            }
+
+            int digitCount = Math.min(end - start, MAX_DIGIT_COUNT);
+            write(NUMBER_SEGMENT);
+            write(digitCount);
+            for (int i = start; i < start + digitCount; i++) {
+                write(name.charAt(i));
+            }
+        }
+
+        // Collation keys may contain 0x00 and 0x01, they are escaped so END still sorts a shorter text first
+        private void writeText(@NonNull byte[] collationKey) {
+            write(TEXT_SEGMENT);
+            for (byte b : collationKey) {
+                int value = b & 0xFF;
+                if (value <= ESCAPE) {
+                    write(ESCAPE);
+                    write(value + 1);
+                } else {
+                    write(value);
+                }
+            }
+            write(END);
+        }
+
+        private void write(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+}
@@ -3,8 +3,11 @@ package com.example.filemanager.util;
 import android.support.annotation.NonNull;
 
 import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SearchDirectoryItemsUtil {
@@ -15,15 +18,53 @@ public class SearchDirectoryItemsUtil {
             return items;
         }
 
-        String queryLowerCase = query.toLowerCase();
+        String foldedQuery = NameFoldingUtil.fold(query);
         List<DirectoryItem> result = new ArrayList<>();
 
         for (DirectoryItem item : items) {
-            if (item.getName().toLowerCase().contains(queryLowerCase)) {
+            if (item.getFoldedName().contains(foldedQuery)) {
                 result.add(item);
             }
         }
 
         return result;
     }
+
+    @NonNull
+    public static DirectoryListingView searchDirectoryItems(@NonNull DirectoryListingView items, @NonNull String query) {
+        if (query.isEmpty()) {
+            return items;
+        }
+
+        // Folded names are precomputed by the listing, matching doesn't allocate per item
+        String foldedQuery = NameFoldingUtil.fold(query);
+        DirectoryListing listing = items.getListing();
+        int[] indices = new int[items.size()];
+        int count = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            int index = items.getListingIndex(i);
+            if (listing.getFoldedName(index).contains(foldedQuery)) {
+                indices[count++] = index;
+            }
+        }
+
+        return new DirectoryListingView(listing, Arrays.copyOf(indices, count));
+    }
+
+    @NonNull
+    public static DirectoryListingView searchDirectoryItems(@NonNull DirectoryListingView items, @NonNull MetadataQuery query) {
+        DirectoryListing listing = items.getListing();
+        int[] indices = new int[items.size()];
+        int count = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            int index = items.getListingIndex(i);
+            if (query.matches(listing, index)) {
+                indices[count++] = index;
+            }
+        }
+
+        return new DirectoryListingView(listing, Arrays.copyOf(indices, count));
+    }
 }
@@ -3,11 +3,18 @@ package com.example.filemanager.util;
 import android.support.annotation.NonNull;
 
 import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
 import com.example.filemanager.model.SortType;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SortDirectoryItemsUtil {
     private static Comparator<DirectoryItem> NAME_COMPARATOR = new NameComparator();
@@ -15,14 +22,198 @@ public class SortDirectoryItemsUtil {
     private static Comparator<DirectoryItem> TYPE_COMPARATOR = new TypeComparator();
     private static Comparator<DirectoryItem> SIZE_COMPARATOR = new SizeComparator();
 
+    // Views at least this fraction of their listing are cut from its cached permutation instead of being sorted
+    private static final int CACHED_PERMUTATION_MIN_FRACTION = 4;
+    // Parallel merge sort stops splitting below this, smaller ranges aren't worth a task
+    private static final int PARALLEL_SORT_MIN_RANGE = 4096;
+    // A fork/join round trip costs microseconds, sorting two minimal ranges by name milliseconds,
+    // so the parallel sort pays off as soon as it splits at all. See SortBenchmark for the crossovers.
+    private static final int DEFAULT_PARALLEL_SORT_THRESHOLD = 2 * PARALLEL_SORT_MIN_RANGE;
+    // Radix sort overtakes merge sort at about 500 entries, below a thousand both take well under a millisecond
+    private static final int DEFAULT_RADIX_SORT_THRESHOLD = 1000;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKET_COUNT = 1 << RADIX_BITS;
+
+    private static volatile int parallelSortThreshold = DEFAULT_PARALLEL_SORT_THRESHOLD;
+    private static volatile int radixSortThreshold = DEFAULT_RADIX_SORT_THRESHOLD;
+    private static ForkJoinPool sortPool;
+
+
+    // Listings with at least this many entries are sorted by NAME and TYPE in parallel, if there is more than one core
+    public static void setParallelSortThreshold(int threshold) {
+        parallelSortThreshold = threshold;
+    }
+
+    // Listings with at least this many entries are sorted by DATE and SIZE with a radix sort, changed by benchmarks only
+    public static void setRadixSortThreshold(int threshold) {
+        radixSortThreshold = threshold;
+    }
+
 
     @NonNull
-    public static List<DirectoryItem> sort(@NonNull List<DirectoryItem> items, @NonNull SortType sortType) {
+    public static List<DirectoryItem> sort(@NonNull List<DirectoryItem> items, @NonNull SortType sortType, boolean isDescending) {
         Comparator<DirectoryItem> comparator = getComparator(sortType);
-        Collections.sort(items, comparator);
+        Collections.sort(items, isDescending ? Collections.reverseOrder(comparator) : comparator);
         return items;
     }
 
+    // New items are sorted on their own and merged in, O(n + k log k) instead of sorting all n + k items again.
+    // Equal items keep the order they were added in. Neither list is modified.
+    @NonNull
+    public static List<DirectoryItem> merge(@NonNull List<DirectoryItem> sortedItems, @NonNull List<DirectoryItem> newItems, @NonNull SortType sortType, boolean isDescending) {
+        Comparator<DirectoryItem> comparator = getComparator(sortType);
+        if (isDescending) {
+            comparator = Collections.reverseOrder(comparator);
+        }
+
+        List<DirectoryItem> sortedNewItems = new ArrayList<>(newItems);
+        Collections.sort(sortedNewItems, comparator);
+
+        List<DirectoryItem> result = new ArrayList<>(sortedItems.size() + sortedNewItems.size());
+        int i = 0;
+        int j = 0;
+        while (i < sortedItems.size() && j < sortedNewItems.size()) {
+            if (comparator.compare(sortedNewItems.get(j), sortedItems.get(i)) < 0) {
+                result.add(sortedNewItems.get(j++));
+            } else {
+                result.add(sortedItems.get(i++));
+            }
+        }
+        result.addAll(sortedItems.subList(i, sortedItems.size()));
+        result.addAll(sortedNewItems.subList(j, sortedNewItems.size()));
+        return result;
+    }
+
+    @NonNull
+    public static DirectoryListingView sort(@NonNull DirectoryListingView items, @NonNull SortType sortType, boolean isDescending) {
+        DirectoryListing listing = items.getListing();
+
+        // Filtering the whole listing's permutation is O(n), so switching between sort orders
+        // or toggling hidden files doesn't sort again
+        if (items.size() * CACHED_PERMUTATION_MIN_FRACTION >= listing.size()) {
+            return selectFromPermutation(items, listing.getSortedIndices(sortType, isDescending));
+        }
+
+        // A small search result is cheaper to sort on its own. Equal entries keep listing order and descending
+        // is the ascending order reversed, like the cached permutation, so both paths break ties the same way.
+        int[] indices = items.getListingIndices().clone();
+        Arrays.sort(indices);
+        mergeSort(indices, indices.clone(), 0, indices.length, getIndexComparator(listing, sortType));
+        if (isDescending) {
+            reverse(indices);
+        }
+        return new DirectoryListingView(listing, indices);
+    }
+
+    private static void reverse(@NonNull int[] indices) {
+        for (int i = 0, j = indices.length - 1; i < j; i++, j--) {
+            int index = indices[i];
+            indices[i] = indices[j];
+            indices[j] = index;
+        }
+    }
+
+    // All listing indices in ascending order by the sort type, used to build the listing's cached permutations
+    @NonNull
+    public static int[] sortIndices(@NonNull DirectoryListing listing, @NonNull SortType sortType) {
+        boolean isRadixSortable = listing.size() >= radixSortThreshold;
+
+        // Primitive keys need no comparator at all, a stable radix sort gives the same order as merge sort
+        if (isRadixSortable && sortType == SortType.DATE) {
+            long[] keys = new long[listing.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = listing.getLastModificationTime(i);
+            }
+            return radixSort(keys);
+        }
+        if (isRadixSortable && sortType == SortType.SIZE) {
+            long[] keys = new long[listing.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = listing.getFileSize(i);
+            }
+            return radixSort(keys);
+        }
+
+        int[] indices = new int[listing.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+
+        IndexComparator comparator = getIndexComparator(listing, sortType);
+        // On a single core the tasks only add overhead
+        if (listing.size() >= parallelSortThreshold && Runtime.getRuntime().availableProcessors() > 1) {
+            // Name keys are created under the listing's lock, create them before the workers would wait for it
+            listing.getSortKey(0);
+            getSortPool().invoke(new MergeSortTask(indices, indices.clone(), 0, indices.length, comparator));
+        } else {
+            mergeSort(indices, indices.clone(), 0, indices.length, comparator);
+        }
+        return indices;
+    }
+
+    // Permutation of a listing derived from another one by applying changes. Kept entries keep their relative
+    // order and are only remapped, each added entry is placed by binary search with O(log n) comparisons.
+    @NonNull
+    public static int[] updateSortedIndices(@NonNull int[] previousSortedIndices, @NonNull int[] previousToNewIndices, @NonNull DirectoryListing listing, int firstAddedIndex, @NonNull SortType sortType, boolean isDescending) {
+        IndexComparator ascendingComparator = getIndexComparator(listing, sortType);
+        IndexComparator comparator = isDescending ? (i1, i2) -> ascendingComparator.compare(i2, i1) : ascendingComparator;
+        int[] indices = new int[listing.size()];
+        int size = 0;
+
+        for (int previousIndex : previousSortedIndices) {
+            int index = previousToNewIndices[previousIndex];
+            if (index >= 0) {
+                indices[size++] = index;
+            }
+        }
+
+        for (int index = firstAddedIndex; index < listing.size(); index++) {
+            // Same tie order as a full sort: after equal entries ascending, before them descending
+            int position = findInsertPosition(indices, size, index, comparator, isDescending);
+            System.arraycopy(indices, position, indices, position + 1, size - position);
+            indices[position] = index;
+            size++;
+        }
+
+        return indices;
+    }
+
+    private static int findInsertPosition(@NonNull int[] indices, int size, int index, @NonNull IndexComparator comparator, boolean isBeforeEqual) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int result = comparator.compare(indices[middle], index);
+            if (result < 0 || (result == 0 && !isBeforeEqual)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @NonNull
+    private static DirectoryListingView selectFromPermutation(@NonNull DirectoryListingView items, @NonNull int[] permutation) {
+        if (items.size() == permutation.length) {
+            return new DirectoryListingView(items.getListing(), permutation.clone());
+        }
+
+        BitSet included = new BitSet(permutation.length);
+        for (int i = 0; i < items.size(); i++) {
+            included.set(items.getListingIndex(i));
+        }
+
+        int[] indices = new int[items.size()];
+        int count = 0;
+        for (int index : permutation) {
+            if (included.get(index)) {
+                indices[count++] = index;
+            }
+        }
+        return new DirectoryListingView(items.getListing(), indices);
+    }
+
     @NonNull
     private static Comparator<DirectoryItem> getComparator(@NonNull SortType sortType) {
         switch (sortType) {
@@ -34,18 +225,183 @@ public class SortDirectoryItemsUtil {
         }
     }
 
+    @NonNull
+    private static IndexComparator getIndexComparator(@NonNull DirectoryListing listing, @NonNull SortType sortType) {
+        // Compares listing columns directly, without creating DirectoryItems
+        switch (sortType) {
+            case NAME: return (i1, i2) -> compareNames(listing, i1, i2);
+            case DATE: return (i1, i2) -> Long.compare(listing.getLastModificationTime(i1), listing.getLastModificationTime(i2));
+            case TYPE: return (i1, i2) -> {
+                int result = listing.getTypeCode(i1) - listing.getTypeCode(i2);
+                if (result != 0) {
+                    return result;
+                }
+                return compareNames(listing, i1, i2);
+            };
+            case SIZE: return (i1, i2) -> Long.compare(listing.getFileSize(i1), listing.getFileSize(i2));
+            default: throw new IllegalArgumentException();
+        }
+    }
+
+    // Natural, locale-aware order by the cached keys, names that only differ in case or accents by folded then raw name
+    private static int compareNames(@NonNull DirectoryListing listing, int index1, int index2) {
+        int result = NaturalSortKeyUtil.compare(listing.getSortKey(index1), listing.getSortKey(index2));
+        if (result != 0) {
+            return result;
+        }
+        result = listing.getFoldedName(index1).compareTo(listing.getFoldedName(index2));
+        if (result != 0) {
+            return result;
+        }
+        return listing.getName(index1).compareTo(listing.getName(index2));
+    }
+
+    private static int compareNames(@NonNull DirectoryItem item1, @NonNull DirectoryItem item2) {
+        int result = NaturalSortKeyUtil.compare(item1.getSortKey(), item2.getSortKey());
+        if (result != 0) {
+            return result;
+        }
+        result = item1.getFoldedName().compareTo(item2.getFoldedName());
+        if (result != 0) {
+            return result;
+        }
+        return item1.getName().compareTo(item2.getName());
+    }
+
+    private static void mergeSort(@NonNull int[] indices, @NonNull int[] buffer, int from, int to, @NonNull IndexComparator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(buffer, indices, from, middle, comparator);
+        mergeSort(buffer, indices, middle, to, comparator);
+        merge(indices, buffer, from, middle, to, comparator);
+    }
+
+    // Halves are sorted in buffer, merge them back into indices
+    private static void merge(@NonNull int[] indices, @NonNull int[] buffer, int from, int middle, int to, @NonNull IndexComparator comparator) {
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                indices[i] = buffer[left++];
+            } else {
+                indices[i] = buffer[right++];
+            }
+        }
+    }
+
+
+    // Stable LSD radix sort of listing indices by key, one pass per byte, passes where all keys share the byte are skipped
+    @NonNull
+    private static int[] radixSort(@NonNull long[] keys) {
+        int size = keys.length;
+        int[] indices = new int[size];
+        int[] indexBuffer = new int[size];
+        long[] keyBuffer = new long[size];
+        int[] counts = new int[RADIX_BUCKET_COUNT + 1];
+
+        // Flipping the sign bit makes negative keys sort before positive ones as unsigned values
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+            keys[i] ^= Long.MIN_VALUE;
+        }
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) ((keys[i] >>> shift) & (RADIX_BUCKET_COUNT - 1)) + 1]++;
+            }
+
+            boolean isPassNeeded = true;
+            for (int bucket = 1; bucket <= RADIX_BUCKET_COUNT; bucket++) {
+                if (counts[bucket] == size) {
+                    isPassNeeded = false;
+                    break;
+                }
+            }
+            if (!isPassNeeded) {
+                continue;
+            }
+
+            for (int bucket = 1; bucket <= RADIX_BUCKET_COUNT; bucket++) {
+                counts[bucket] += counts[bucket - 1];
+            }
+            for (int i = 0; i < size; i++) {
+                int bucket = (int) ((keys[i] >>> shift) & (RADIX_BUCKET_COUNT - 1));
+                int position = counts[bucket]++;
+                indexBuffer[position] = indices[i];
+                keyBuffer[position] = keys[i];
+            }
+
+            int[] sortedIndices = indexBuffer;
+            indexBuffer = indices;
+            indices = sortedIndices;
+            long[] sortedKeys = keyBuffer;
+            keyBuffer = keys;
+            keys = sortedKeys;
+        }
+
+        return indices;
+    }
+
+    @NonNull
+    private static synchronized ForkJoinPool getSortPool() {
+        if (sortPool == null) {
+            sortPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sortPool;
+    }
+
+
+    private interface IndexComparator {
+        int compare(int index1, int index2);
+    }
+
+    private static class MergeSortTask extends RecursiveAction {
+        private final int[] indices;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final IndexComparator comparator;
+
+        MergeSortTask(@NonNull int[] indices, @NonNull int[] buffer, int from, int to, @NonNull IndexComparator comparator) {
+            this.indices = indices;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_SORT_MIN_RANGE) {
+                mergeSort(indices, buffer, from, to, comparator);
+                return;
+            }
+
+            // Same ping-pong between the arrays as the sequential sort, halves end up sorted in buffer
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new MergeSortTask(buffer, indices, from, middle, comparator),
+                    new MergeSortTask(buffer, indices, middle, to, comparator)
+            );
+            merge(indices, buffer, from, middle, to, comparator);
+        }
+    }
 
     private static class NameComparator implements Comparator<DirectoryItem> {
         @Override
         public int compare(DirectoryItem o1, DirectoryItem o2) {
-            return o1.getName().compareTo(o2.getName());
+            return compareNames(o1, o2);
         }
     }
 
     private static class DateComparator implements Comparator<DirectoryItem> {
         @Override
         public int compare(DirectoryItem o1, DirectoryItem o2) {
-            return o1.getLastModificationDate().compareTo(o2.getLastModificationDate());
+            return Long.compare(o1.getLastModificationTime(), o2.getLastModificationTime());
         }
     }
 
@@ -56,7 +412,7 @@ public class SortDirectoryItemsUtil {
             if (result != 0) {
                 return result;
             }
-            return o1.getName().compareTo(o2.getName());
+            return compareNames(o1, o2);
         }
     }
 
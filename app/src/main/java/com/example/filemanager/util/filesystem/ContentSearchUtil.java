@@ -0,0 +1,108 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.util.HorspoolSearcher;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ContentSearchUtil {
+    private static final int BINARY_CHECK_SIZE = 1024;
+    private static final int MAX_HITS_PER_FILE = 100;
+    private static final int MAX_LINE_LENGTH = 200;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // One hit per matching line, files with a NUL byte in their first kilobyte are treated as binary and skipped
+    @NonNull
+    public static List<ContentSearchHit> searchFile(@NonNull DirectoryItem item, @NonNull HorspoolSearcher searcher) throws IOException {
+        long fileSize = item.getFileSizeInBytes();
+        if (fileSize <= 0 || fileSize > Integer.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(item.getFilePath(), "r")) {
+            // The mapping stays valid after the channel is closed
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, file.length()));
+        }
+
+        int size = buffer.limit();
+        if (isBinary(buffer, size)) {
+            return Collections.emptyList();
+        }
+
+        List<ContentSearchHit> result = new ArrayList<>();
+        int lineNumber = 1;
+        int countedPosition = 0;
+        int position = 0;
+
+        while (result.size() < MAX_HITS_PER_FILE) {
+            int match = searcher.indexOf(buffer, position, size);
+            if (match < 0) {
+                break;
+            }
+
+            for (int i = countedPosition; i < match; i++) {
+                if (buffer.get(i) == '\n') {
+                    lineNumber++;
+                }
+            }
+
+            int lineStart = findLineStart(buffer, match);
+            int lineEnd = findLineEnd(buffer, match, size);
+            result.add(new ContentSearchHit(item, lineNumber, readLine(buffer, lineStart, lineEnd)));
+
+            // Further matches on the same line don't add anything
+            countedPosition = lineEnd;
+            position = lineEnd;
+        }
+
+        return result;
+    }
+
+    private static boolean isBinary(@NonNull ByteBuffer buffer, int size) {
+        int checkSize = Math.min(size, BINARY_CHECK_SIZE);
+        for (int i = 0; i < checkSize; i++) {
+            if (buffer.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int findLineStart(@NonNull ByteBuffer buffer, int position) {
+        int start = position;
+        while (start > 0 && buffer.get(start - 1) != '\n') {
+            start--;
+        }
+        return start;
+    }
+
+    private static int findLineEnd(@NonNull ByteBuffer buffer, int position, int size) {
+        int end = position;
+        while (end < size && buffer.get(end) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    @NonNull
+    private static String readLine(@NonNull ByteBuffer buffer, int start, int end) {
+        int length = Math.min(end - start, MAX_LINE_LENGTH);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, UTF_8).trim();
+    }
+}
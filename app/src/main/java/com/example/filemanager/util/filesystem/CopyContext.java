@@ -0,0 +1,146 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.JobHandle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// Everything a copy reports to or is controlled by, each part is optional
+public class CopyContext {
+    private CopyUtil.CopyListener listener;
+    private JobHandle job;
+    private CopyJournal journal;
+    private CopyManifest manifest;
+    // Targets in the order they were created, a directory always comes before its content
+    private final List<File> createdFiles = new ArrayList<>();
+
+
+    // Copies are verified against their source only when there is a manifest to keep the checksums in
+    public CopyContext(
+            @Nullable CopyUtil.CopyListener listener,
+            @Nullable JobHandle job,
+            @Nullable CopyJournal journal,
+            @Nullable CopyManifest manifest
+    ) {
+        this.listener = listener;
+        this.job = job;
+        this.journal = journal;
+        this.manifest = manifest;
+    }
+
+    @NonNull
+    public static CopyContext empty() {
+        return new CopyContext(null, null, null, null);
+    }
+
+
+    @Nullable
+    public JobHandle getJob() {
+        return job;
+    }
+
+    void checkpoint() {
+        if (job != null) {
+            job.checkpoint();
+        }
+    }
+
+    // Disposing the subscription interrupts the thread running the job, I/O it was blocked in fails then
+    boolean isCancelled() {
+        return (job != null && job.isCancelled()) || Thread.currentThread().isInterrupted();
+    }
+
+    // Stops the workers of an interrupted job at their next checkpoint
+    void cancel() {
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    void onBytesCopied(long byteCount) {
+        if (listener != null) {
+            listener.onBytesCopied(byteCount);
+        }
+    }
+
+    void onBytesSkipped(long byteCount) {
+        if (listener != null) {
+            listener.onBytesSkipped(byteCount);
+        }
+    }
+
+    void onFileCopied() {
+        if (listener != null) {
+            listener.onFileCopied();
+        }
+    }
+
+    // Files and directories this job created, including partial files of an earlier attempt it continued
+    void onFileCreated(@NonNull File file) {
+        synchronized (createdFiles) {
+            createdFiles.add(file);
+        }
+    }
+
+    int getCreatedFileCount() {
+        synchronized (createdFiles) {
+            return createdFiles.size();
+        }
+    }
+
+    // Targets created from the given count on are final, e.g. a moved item whose source is already deleted
+    void keepCreatedFiles(int fromCount) {
+        synchronized (createdFiles) {
+            createdFiles.subList(fromCount, createdFiles.size()).clear();
+        }
+    }
+
+    // Undoes a cancelled job, newest first so directories are empty when their turn comes.
+    // Directories someone else put files into in the meantime are left in place.
+    public void deleteCreatedFiles() {
+        synchronized (createdFiles) {
+            for (int i = createdFiles.size() - 1; i >= 0; i--) {
+                createdFiles.get(i).delete();
+            }
+            createdFiles.clear();
+        }
+    }
+
+    boolean isJournaled() {
+        return journal != null;
+    }
+
+    long getResumeOffset(@NonNull File targetFile, long sourceSize, long sourceLastModificationTime) {
+        return (journal != null) ? journal.getResumeOffset(targetFile, sourceSize, sourceLastModificationTime) : -1;
+    }
+
+    void recordProgress(@NonNull File targetFile, long sourceSize, long sourceLastModificationTime, long copiedBytes) {
+        if (journal != null) {
+            journal.record(targetFile, sourceSize, sourceLastModificationTime, copiedBytes);
+        }
+    }
+
+    boolean isVerified() {
+        return manifest != null;
+    }
+
+    void addChecksum(@NonNull File targetFile, long checksum) {
+        if (manifest != null) {
+            manifest.addChecksum(targetFile, checksum);
+        }
+    }
+
+    void addMismatch(@NonNull File targetFile) {
+        if (manifest != null) {
+            manifest.addMismatch(targetFile);
+        }
+    }
+
+    int getMismatchCount() {
+        return (manifest != null) ? manifest.getMismatchCount() : 0;
+    }
+}
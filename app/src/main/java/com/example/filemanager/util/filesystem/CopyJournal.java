@@ -0,0 +1,207 @@
+package com.example.filemanager.util.filesystem;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.StructStat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Progress of one copy job, persisted as an append-only log of (target path, source size, source mtime, copied bytes,
+// target device, inode) records, the last record of a target wins. The target is stat()-ed for every record,
+// a target is only continued while it is still the same file the journal saw.
+// Records of unfinished targets are written through, a restarted job has to recognize every target it created.
+// Finished targets are flushed at most every FLUSH_INTERVAL_MS, losing one to a kill only means that file is copied again.
+public class CopyJournal {
+    private static final int MAGIC = 0x434A524E;
+    private static final int VERSION = 3;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private File file;
+    private Map<String, Entry> entries = new HashMap<>();
+    private DataOutputStream output;
+    private long lastFlushTimeMs;
+
+
+    public CopyJournal(@NonNull File file) {
+        this.file = file;
+        load();
+    }
+
+
+    // Bytes of the target that are known to be copied from the unchanged source, -1 when it can't be resumed.
+    // The target must still be the file this job created. Bytes written after its last record, e.g. by a kill
+    // in the middle of a chunk, are cut off by the caller. 0 when the target shrank below the recorded offset.
+    public synchronized long getResumeOffset(@NonNull File targetFile, long sourceSize, long sourceLastModificationTime) {
+        Entry entry = entries.get(targetFile.getPath());
+        if (entry == null || entry.sourceSize != sourceSize || entry.sourceLastModificationTime != sourceLastModificationTime) {
+            return -1;
+        }
+
+        StructStat stat = FileStatUtil.statTarget(targetFile.getPath());
+        if (stat == null || entry.targetInode < 0 || stat.st_dev != entry.targetDevice || stat.st_ino != entry.targetInode) {
+            return -1;
+        }
+        return (stat.st_size >= entry.copiedBytes) ? entry.copiedBytes : 0;
+    }
+
+    public synchronized void record(@NonNull File targetFile, long sourceSize, long sourceLastModificationTime, long copiedBytes) {
+        Entry entry = new Entry(sourceSize, sourceLastModificationTime, copiedBytes, FileStatUtil.statTarget(targetFile.getPath()));
+        entries.put(targetFile.getPath(), entry);
+
+        try {
+            if (output == null) {
+                boolean isNew = file.length() == 0;
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                lastFlushTimeMs = SystemClock.elapsedRealtime();
+                if (isNew) {
+                    writeHeader(output);
+                }
+            }
+            writeRecord(output, targetFile.getPath(), entry);
+
+            boolean isFinished = copiedBytes == sourceSize && copiedBytes > 0;
+            if (!isFinished || SystemClock.elapsedRealtime() - lastFlushTimeMs >= FLUSH_INTERVAL_MS) {
+                flush();
+            }
+        } catch (IOException ex) {
+            // Journal only makes a restart cheaper, the copy itself is not affected
+            ex.printStackTrace();
+        }
+    }
+
+    // Keeps the journal for the next attempt
+    public synchronized void close() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        output = null;
+    }
+
+    // The job is done or given up, nothing left to resume
+    public synchronized void delete() {
+        close();
+        file.delete();
+    }
+
+    // Journals of jobs nobody pasted again within maxAgeMs are given up
+    public static void deleteOlderThan(@NonNull File directory, long maxAgeMs) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > maxAgeMs) {
+                file.delete();
+            }
+        }
+    }
+
+
+    private void flush() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.flush();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        lastFlushTimeMs = SystemClock.elapsedRealtime();
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // Journals of an older version are ignored, their targets can't be identified
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new EOFException();
+            }
+            while (true) {
+                String targetPath = input.readUTF();
+                entries.put(targetPath, readEntry(input));
+            }
+        } catch (EOFException ex) {
+            // End of log, a truncated last record is ignored
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
+        // Rewritten with one record per target, so records appended later don't follow a truncated one
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+            lastFlushTimeMs = SystemClock.elapsedRealtime();
+            writeHeader(output);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writeRecord(output, entry.getKey(), entry.getValue());
+            }
+            output.flush();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void writeHeader(@NonNull DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    private static void writeRecord(@NonNull DataOutputStream output, @NonNull String targetPath, @NonNull Entry entry) throws IOException {
+        output.writeUTF(targetPath);
+        output.writeLong(entry.sourceSize);
+        output.writeLong(entry.sourceLastModificationTime);
+        output.writeLong(entry.copiedBytes);
+        output.writeLong(entry.targetDevice);
+        output.writeLong(entry.targetInode);
+    }
+
+    @NonNull
+    private static Entry readEntry(@NonNull DataInputStream input) throws IOException {
+        Entry entry = new Entry(input.readLong(), input.readLong(), input.readLong(), null);
+        entry.targetDevice = input.readLong();
+        entry.targetInode = input.readLong();
+        return entry;
+    }
+
+
+    private static class Entry {
+        private long sourceSize;
+        private long sourceLastModificationTime;
+        private long copiedBytes;
+        // Identity of the target when the record was written, inode -1 when it couldn't be stat()-ed
+        private long targetDevice;
+        private long targetInode = -1;
+
+        Entry(long sourceSize, long sourceLastModificationTime, long copiedBytes, @Nullable StructStat targetStat) {
+            this.sourceSize = sourceSize;
+            this.sourceLastModificationTime = sourceLastModificationTime;
+            this.copiedBytes = copiedBytes;
+            if (targetStat != null) {
+                targetDevice = targetStat.st_dev;
+                targetInode = targetStat.st_ino;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Result of a verified copy job, saved in SFV format: one "<target path> <CRC32>" line per verified file,
+// so the copies can be checked again later with common tools. Files that failed verification are listed as comments.
+public class CopyManifest {
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private File file;
+    private List<String> lines = new ArrayList<>();
+    private List<String> mismatchedFilePaths = new ArrayList<>();
+
+
+    public CopyManifest(@NonNull File file) {
+        this.file = file;
+    }
+
+
+    public synchronized void addChecksum(@NonNull File targetFile, long checksum) {
+        lines.add(String.format(Locale.US, "%s %08X", targetFile.getPath(), checksum));
+    }
+
+    public synchronized void addMismatch(@NonNull File targetFile) {
+        lines.add("; " + targetFile.getPath() + " does not match its source");
+        mismatchedFilePaths.add(targetFile.getPath());
+    }
+
+    public synchronized int getMismatchCount() {
+        return mismatchedFilePaths.size();
+    }
+
+    @Nullable
+    public synchronized String getFirstMismatchedFilePath() {
+        return mismatchedFilePaths.isEmpty() ? null : mismatchedFilePaths.get(0);
+    }
+
+    public synchronized void save() {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            // The copies themselves are verified already, only the record of it is lost
+            ex.printStackTrace();
+        }
+    }
+
+    // Keeps the newest keptCount manifests that are younger than maxAgeMs
+    public static void deleteOld(@NonNull File directory, int keptCount, long maxAgeMs) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, (first, second) -> Long.compare(second.lastModified(), first.lastModified()));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files.length; i++) {
+            if (i >= keptCount || now - files[i].lastModified() > maxAgeMs) {
+                files[i].delete();
+            }
+        }
+    }
+}
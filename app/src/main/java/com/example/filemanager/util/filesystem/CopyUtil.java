@@ -1,61 +1,293 @@
 package com.example.filemanager.util.filesystem;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.StructStat;
 
+import com.example.filemanager.model.FolderSize;
+import com.example.filemanager.model.exception.ChecksumMismatchException;
 import com.example.filemanager.model.exception.CopyFileException;
 import com.example.filemanager.model.exception.CreateDirectoryException;
 import com.example.filemanager.model.exception.CreateFileException;
 import com.example.filemanager.model.exception.FileWithThisNameAlreadyExistsException;
+import com.example.filemanager.model.exception.JobCancelledException;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
 
 public class CopyUtil {
+    // transferFrom() may copy less than asked for, and a bounded chunk keeps progress updates regular on slow media
+    private static final long COPY_CHUNK_SIZE = 4 * 1024 * 1024;
+    // Partial files are journaled only this often, each record costs an fsync() of the target
+    private static final long JOURNAL_INTERVAL_BYTES = 64 * 1024 * 1024;
+    // Verified copies pass through a heap buffer to be summed, one per file being copied
+    private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+
+    // Called from several threads at once by ParallelCopyUtil
+    public interface CopyListener {
+        void onBytesCopied(long byteCount);
+
+        // Bytes a resumed copy didn't have to copy again
+        void onBytesSkipped(long byteCount);
+
+        void onFileCopied();
+    }
+
 
     public static void copy(@NonNull String sourceFileOrDirectory, @NonNull String targetDirectoryPath) {
+        copy(sourceFileOrDirectory, targetDirectoryPath, CopyContext.empty());
+    }
+
+    public static void copy(@NonNull String sourceFileOrDirectory, @NonNull String targetDirectoryPath, @NonNull CopyContext context) {
         File src = new File(sourceFileOrDirectory);
         File dst = new File(targetDirectoryPath, src.getName());
         if (src.isDirectory()) {
-            copyDirectory(src, dst);
+            copyDirectory(src, dst, context);
         } else {
-            copyFile(src, dst);
+            copyFile(src, dst, context);
+        }
+    }
+
+    // Bytes and files a copy of the item will write
+    @NonNull
+    public static FolderSize measure(@NonNull String sourceFileOrDirectory) {
+        StructStat stat = FileStatUtil.stat(sourceFileOrDirectory);
+        if (!FileStatUtil.isDirectory(stat)) {
+            return new FolderSize(FileStatUtil.getSize(stat), 1);
+        }
+
+        long totalSize = 0;
+        long fileCount = 0;
+
+        String[] names = new File(sourceFileOrDirectory).list();
+        if (names != null) {
+            for (String name : names) {
+                FolderSize size = measure(new File(sourceFileOrDirectory, name).getPath());
+                totalSize += size.getTotalSize();
+                fileCount += size.getFileCount();
+            }
         }
+
+        return new FolderSize(totalSize, fileCount);
     }
 
-    private static void copyDirectory(@NonNull File sourceDirectory, @NonNull File targetDirectory) {
+    private static void copyDirectory(@NonNull File sourceDirectory, @NonNull File targetDirectory, @NonNull CopyContext context) {
         String files[] = sourceDirectory.list();
         for (String file : files) {
             String src = (new File(sourceDirectory, file).getPath());
             String dst = targetDirectory.getPath();
-            copy(src, dst);
+            copy(src, dst, context);
         }
     }
 
-    private static void copyFile(@NonNull File sourceFile, @NonNull File destFile) {
-        File parentDirectory = destFile.getParentFile();
-        if (!parentDirectory.exists()) {
-            boolean isDirectoryCreated = parentDirectory.mkdirs();
-            if (!isDirectoryCreated) {
-                throw new CreateDirectoryException(parentDirectory.getPath());
-            }
+    static void createDirectory(@NonNull File directory, @NonNull CopyContext context) {
+        if (directory.exists()) {
+            return;
         }
 
-        if (destFile.exists()) {
-            throw new FileWithThisNameAlreadyExistsException(destFile.getPath());
+        // mkdirs() may create missing parents too, they are just as much the job's own
+        List<File> missingDirectories = new ArrayList<>();
+        for (File parent = directory; parent != null && !parent.exists(); parent = parent.getParentFile()) {
+            missingDirectories.add(0, parent);
+        }
+
+        boolean isDirectoryCreated = directory.mkdirs();
+        if (!isDirectoryCreated) {
+            throw new CreateDirectoryException(directory.getPath());
+        }
+        for (File missingDirectory : missingDirectories) {
+            context.onFileCreated(missingDirectory);
         }
+    }
+
+    static void copyFile(@NonNull File sourceFile, @NonNull File destFile, @NonNull CopyContext context) {
+        context.checkpoint();
+        createDirectory(destFile.getParentFile(), context);
 
-        createFile(destFile);
+        long sourceSize = sourceFile.length();
+        long sourceLastModificationTime = sourceFile.lastModified();
+        long offset = 0;
+
+        if (destFile.exists()) {
+            // Only a target left behind by an earlier attempt of the same job may be continued
+            offset = context.getResumeOffset(destFile, sourceSize, sourceLastModificationTime);
+            if (offset < 0) {
+                throw new FileWithThisNameAlreadyExistsException(destFile.getPath());
+            }
+
+            // Created by an earlier attempt of this job, a cancel removes it like any other target
+            context.onFileCreated(destFile);
+            context.onBytesSkipped(offset);
+            // A verified job checks finished targets of the earlier attempt too, they are not in its manifest.
+            // A finished target that grew since is cut back below.
+            if (offset == sourceSize && destFile.length() == sourceSize && !context.isVerified()) {
+                context.onFileCopied();
+                return;
+            }
+        } else {
+            createFile(destFile);
+            context.onFileCreated(destFile);
+            // Right after creating it, so a restarted job can tell this file from one that existed before
+            context.recordProgress(destFile, sourceSize, sourceLastModificationTime, 0);
+        }
 
         try (
                 FileChannel source = new FileInputStream(sourceFile).getChannel();
-                FileChannel destination = new FileOutputStream(destFile).getChannel()
+                FileChannel destination = new RandomAccessFile(destFile, "rw").getChannel()
         ) {
-            destination.transferFrom(source, 0, source.size());
+            // Anything past the journaled offset may be garbage from the interrupted attempt
+            destination.truncate(offset);
+
+            if (context.isVerified()) {
+                ByteBuffer buffer = ByteBuffer.allocate(VERIFY_BUFFER_SIZE);
+                CRC32 sourceChecksum = new CRC32();
+
+                // The resumed part was copied by an earlier attempt, only its source is read again
+                checksum(source, offset, buffer, sourceChecksum, context);
+                source.position(offset);
+                transfer(source, destination, offset, sourceSize, context, destFile, sourceLastModificationTime, buffer, sourceChecksum);
+                verify(destination, destFile, sourceSize, sourceChecksum.getValue(), buffer, context);
+            } else {
+                source.position(offset);
+                transfer(source, destination, offset, sourceSize, context, destFile, sourceLastModificationTime, null, null);
+            }
+        } catch (ChecksumMismatchException ex) {
+            // Only this file failed, the job goes on and reports it when it's done
+            destFile.delete();
+            context.addMismatch(destFile);
+            return;
         } catch (Exception ex) {
+            // A channel closed by the interrupt of a cancel is no I/O error
+            boolean isCancelled = ex instanceof JobCancelledException || context.isCancelled();
+            // A partial copy looks like a complete one in the file list, unless the journal can continue it
+            if (isCancelled || !context.isJournaled()) {
+                destFile.delete();
+            }
+            if (isCancelled) {
+                context.cancel();
+                throw (ex instanceof JobCancelledException) ? (JobCancelledException) ex : new JobCancelledException();
+            }
             throw new CopyFileException(ex);
         }
+
+        context.recordProgress(destFile, sourceSize, sourceLastModificationTime, sourceSize);
+        context.onFileCopied();
+    }
+
+    private static void transfer(
+            @NonNull FileChannel source,
+            @NonNull FileChannel destination,
+            long position,
+            long size,
+            @NonNull CopyContext context,
+            @NonNull File destFile,
+            long sourceLastModificationTime,
+            @Nullable ByteBuffer buffer,
+            @Nullable CRC32 sourceChecksum
+    ) throws Exception {
+        long syncedPosition = position;
+
+        while (position < size) {
+            context.checkpoint();
+
+            long transferredByteCount = (sourceChecksum == null)
+                    ? destination.transferFrom(source, position, Math.min(COPY_CHUNK_SIZE, size - position))
+                    : transferAndChecksum(source, destination, position, size, buffer, sourceChecksum);
+            if (transferredByteCount <= 0) {
+                // Source was truncated while copying, the copy would silently be shorter
+                throw new EOFException("Source ended at " + position + " of " + size + " bytes");
+            }
+
+            position += transferredByteCount;
+            context.onBytesCopied(transferredByteCount);
+
+            if (context.isJournaled() && position - syncedPosition >= JOURNAL_INTERVAL_BYTES && position < size) {
+                // The journal must never claim bytes that could still be lost
+                destination.force(false);
+                context.recordProgress(destFile, size, sourceLastModificationTime, position);
+                syncedPosition = position;
+            }
+        }
+    }
+
+    // Same as transferFrom(), but the bytes pass through the buffer to be summed on the way
+    private static long transferAndChecksum(
+            @NonNull FileChannel source,
+            @NonNull FileChannel destination,
+            long position,
+            long size,
+            @NonNull ByteBuffer buffer,
+            @NonNull CRC32 checksum
+    ) throws IOException {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), size - position));
+
+        int readByteCount = source.read(buffer);
+        if (readByteCount <= 0) {
+            return readByteCount;
+        }
+
+        checksum.update(buffer.array(), 0, readByteCount);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += destination.write(buffer, position);
+        }
+        return readByteCount;
+    }
+
+    // Reads the target back once and compares it with the checksum taken from the source while copying
+    private static void verify(
+            @NonNull FileChannel destination,
+            @NonNull File destFile,
+            long size,
+            long sourceChecksum,
+            @NonNull ByteBuffer buffer,
+            @NonNull CopyContext context
+    ) throws IOException {
+        // Write errors of the storage surface here, a re-read alone may be served from the page cache
+        destination.force(false);
+
+        CRC32 targetChecksum = new CRC32();
+        if (destination.size() != size || checksum(destination, size, buffer, targetChecksum, context) != size
+                || targetChecksum.getValue() != sourceChecksum) {
+            throw new ChecksumMismatchException(destFile.getPath());
+        }
+
+        context.addChecksum(destFile, sourceChecksum);
+    }
+
+    // Sums the first size bytes of the channel, returns how many there were
+    private static long checksum(
+            @NonNull FileChannel channel,
+            long size,
+            @NonNull ByteBuffer buffer,
+            @NonNull CRC32 checksum,
+            @NonNull CopyContext context
+    ) throws IOException {
+        long position = 0;
+        while (position < size) {
+            context.checkpoint();
+
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - position));
+
+            int readByteCount = channel.read(buffer, position);
+            if (readByteCount <= 0) {
+                break;
+            }
+
+            checksum.update(buffer.array(), 0, readByteCount);
+            position += readByteCount;
+        }
+        return position;
     }
 
     private static void createFile(@NonNull File file) {
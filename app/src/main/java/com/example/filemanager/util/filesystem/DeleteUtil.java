@@ -1,7 +1,9 @@
 package com.example.filemanager.util.filesystem;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import com.example.filemanager.model.JobHandle;
 import com.example.filemanager.model.exception.DeleteDirectoryException;
 import com.example.filemanager.model.exception.DeleteFileException;
 import com.example.filemanager.model.exception.FileDoesNotExistException;
@@ -11,6 +13,14 @@ import java.io.File;
 public class DeleteUtil {
 
     public static void delete(@NonNull File fileOrDirectory) {
+        delete(fileOrDirectory, null);
+    }
+
+    public static void delete(@NonNull File fileOrDirectory, @Nullable JobHandle job) {
+        if (job != null) {
+            job.checkpoint();
+        }
+
         if (!fileOrDirectory.exists()) {
             throw new FileDoesNotExistException(fileOrDirectory.getPath());
         }
@@ -18,7 +28,7 @@ public class DeleteUtil {
         if (!fileOrDirectory.isDirectory()) {
             deleteFile(fileOrDirectory);
         } else {
-            deleteDirectory(fileOrDirectory);
+            deleteDirectory(fileOrDirectory, job);
         }
     }
 
@@ -29,19 +39,19 @@ public class DeleteUtil {
         }
     }
 
-    private static void deleteDirectory(@NonNull File directory) {
-        deleteDirectoryContent(directory);
+    private static void deleteDirectory(@NonNull File directory, @Nullable JobHandle job) {
+        deleteDirectoryContent(directory, job);
         deleteEmptyDirectory(directory);
     }
 
-    private static void deleteDirectoryContent(@NonNull File directory) {
+    private static void deleteDirectoryContent(@NonNull File directory, @Nullable JobHandle job) {
         File[] files = directory.listFiles();
         if (files == null) {
             return;
         }
 
         for (File fileOrDirectory : files) {
-            delete(fileOrDirectory);
+            delete(fileOrDirectory, job);
         }
     }
 
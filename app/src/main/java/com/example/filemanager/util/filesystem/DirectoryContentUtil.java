@@ -11,4 +11,12 @@ public class DirectoryContentUtil {
         File[] files = directory.listFiles();
         return (files != null) ? files : new File[0];
     }
+
+
+    @NonNull
+    public static String[] getDirectoryContentNames(@NonNull String directoryPath) {
+        File directory = new File(directoryPath);
+        String[] names = directory.list();
+        return (names != null) ? names : new String[0];
+    }
 }
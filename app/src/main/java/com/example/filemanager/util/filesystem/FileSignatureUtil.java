@@ -0,0 +1,81 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.DirectoryItemType;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class FileSignatureUtil {
+    private static final int HEADER_SIZE = 16;
+
+    @Nullable
+    public static DirectoryItemType detectType(@NonNull String filePath) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length;
+
+        try (InputStream input = new FileInputStream(filePath)) {
+            length = readHeader(input, header);
+        }
+
+        return detectType(header, length);
+    }
+
+    @Nullable
+    public static DirectoryItemType detectType(@NonNull byte[] header, int length) {
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return DirectoryItemType.IMAGE; // JPEG
+        }
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return DirectoryItemType.IMAGE;
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return DirectoryItemType.IMAGE;
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return DirectoryItemType.IMAGE;
+        }
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p')) {
+            // MP4 container, "M4A " brand is audio only
+            return startsWith(header, length, 8, 'M', '4', 'A', ' ') ? DirectoryItemType.AUDIO : DirectoryItemType.VIDEO;
+        }
+        if (startsWith(header, length, 0, 'I', 'D', '3') || startsWith(header, length, 0, 'O', 'g', 'g', 'S')) {
+            return DirectoryItemType.AUDIO;
+        }
+        if (startsWith(header, length, 0, 'P', 'K', 0x03, 0x04) || startsWith(header, length, 0, 0x1F, 0x8B)) {
+            return DirectoryItemType.ARCHIVE; // ZIP or GZIP
+        }
+        if (startsWith(header, length, 0, '%', 'P', 'D', 'F')) {
+            return DirectoryItemType.TEXT;
+        }
+        return null;
+    }
+
+    private static int readHeader(@NonNull InputStream input, @NonNull byte[] header) throws IOException {
+        int length = 0;
+        while (length < header.length) {
+            int count = input.read(header, length, header.length - length);
+            if (count < 0) {
+                break;
+            }
+            length += count;
+        }
+        return length;
+    }
+
+    private static boolean startsWith(@NonNull byte[] header, int length, int offset, int... signature) {
+        if (offset + signature.length > length) {
+            return false;
+        }
+
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
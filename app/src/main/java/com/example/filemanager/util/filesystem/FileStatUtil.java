@@ -0,0 +1,56 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+
+public class FileStatUtil {
+
+    @Nullable
+    public static StructStat stat(@NonNull String path) {
+        try {
+            return Os.stat(path);
+        } catch (ErrnoException ex) {
+            return lstat(path);
+        }
+    }
+
+    @Nullable
+    public static StructStat lstat(@NonNull String path) {
+        // Broken symbolic links can't be followed, but the link itself still exists
+        try {
+            return Os.lstat(path);
+        } catch (ErrnoException ex) {
+            return null;
+        }
+    }
+
+    // Unlike stat(), null for a broken symbolic link
+    @Nullable
+    public static StructStat statTarget(@NonNull String path) {
+        try {
+            return Os.stat(path);
+        } catch (ErrnoException ex) {
+            return null;
+        }
+    }
+
+    public static boolean isDirectory(@Nullable StructStat stat) {
+        return stat != null && OsConstants.S_ISDIR(stat.st_mode);
+    }
+
+    public static boolean isSymbolicLink(@Nullable StructStat stat) {
+        return stat != null && OsConstants.S_ISLNK(stat.st_mode);
+    }
+
+    public static long getSize(@Nullable StructStat stat) {
+        return (stat != null) ? stat.st_size : 0;
+    }
+
+    public static long getLastModified(@Nullable StructStat stat) {
+        return (stat != null) ? stat.st_mtime * 1000 : 0;
+    }
+}
@@ -1,14 +1,83 @@
 package com.example.filemanager.util.filesystem;
 
 import android.support.annotation.NonNull;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+
+import com.example.filemanager.model.exception.DirectoryWithThisNameAlreadyExistsException;
+import com.example.filemanager.model.exception.FileDoesNotExistException;
+import com.example.filemanager.model.exception.FileWithThisNameAlreadyExistsException;
+import com.example.filemanager.model.exception.RenameFileException;
 
 import java.io.File;
 
 public class MoveUtil {
 
     public static void move(@NonNull String sourceFileOrDirectory, @NonNull String targetDirectoryPath) {
-        CopyUtil.copy(sourceFileOrDirectory, targetDirectoryPath);
-        DeleteUtil.delete(new File(sourceFileOrDirectory));
+        move(sourceFileOrDirectory, targetDirectoryPath, CopyContext.empty());
     }
 
+    // Progress only covers data that had to be copied
+    public static void move(@NonNull String sourceFileOrDirectory, @NonNull String targetDirectoryPath, @NonNull CopyContext context) {
+        File source = new File(sourceFileOrDirectory);
+        File target = new File(targetDirectoryPath, source.getName());
+
+        context.checkpoint();
+
+        // Within one file system a move is a single rename, however much data the item holds
+        if (isOnSameDevice(sourceFileOrDirectory, targetDirectoryPath) && tryRename(source, target)) {
+            return;
+        }
+
+        // A cancelled or failed copy leaves the source untouched, its targets are removed by the job
+        int mismatchCount = context.getMismatchCount();
+        int createdFileCount = context.getCreatedFileCount();
+        CopyUtil.copy(sourceFileOrDirectory, targetDirectoryPath, context);
+
+        // The source is the only good copy of a file that failed verification, the item stays where it was.
+        // The job goes on with the other items and reports the mismatch at the end.
+        if (context.getMismatchCount() > mismatchCount) {
+            return;
+        }
+
+        // Not cancellable, a half deleted source next to a removed target would lose data
+        DeleteUtil.delete(source);
+        // From here on the target is the only copy, a later cancel must not remove it
+        context.keepCreatedFiles(createdFileCount);
+    }
+
+    public static boolean isOnSameDevice(@NonNull String sourceFileOrDirectory, @NonNull String targetDirectoryPath) {
+        // lstat() for the source, a symbolic link is moved itself, not the file it points to
+        StructStat sourceStat = FileStatUtil.lstat(sourceFileOrDirectory);
+        StructStat targetStat = FileStatUtil.stat(targetDirectoryPath);
+        return sourceStat != null && targetStat != null && sourceStat.st_dev == targetStat.st_dev;
+    }
+
+    // False when the file system refuses to rename across mount points, the caller falls back to copying
+    private static boolean tryRename(@NonNull File source, @NonNull File target) {
+        if (!source.exists()) {
+            throw new FileDoesNotExistException(source.getPath());
+        }
+
+        if (target.exists()) {
+            if (target.isDirectory()) {
+                throw new DirectoryWithThisNameAlreadyExistsException(target.getPath());
+            } else {
+                throw new FileWithThisNameAlreadyExistsException(target.getPath());
+            }
+        }
+
+        try {
+            Os.rename(source.getPath(), target.getPath());
+            return true;
+        } catch (ErrnoException ex) {
+            // Bind mounts of the same device share st_dev, but rename() across them fails with EXDEV
+            if (ex.errno == OsConstants.EXDEV) {
+                return false;
+            }
+            throw new RenameFileException(target.getPath());
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.exception.CopyFileException;
+import com.example.filemanager.model.exception.JobCancelledException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class ParallelCopyUtil {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long QUEUE_POLL_MS = 100;
+
+    // Copies a tree with workerCount file copies in flight. The calling thread walks the tree and creates
+    // every directory before queueing its files, workers start copying while the walk is still running,
+    // so folders of many small files are bound by the number of parallel opens rather than by one at a time.
+    public static void copy(
+            @NonNull String sourceFileOrDirectory,
+            @NonNull String targetDirectoryPath,
+            @NonNull Executor executor,
+            int workerCount,
+            @NonNull CopyContext context
+    ) {
+        File src = new File(sourceFileOrDirectory);
+        if (!src.isDirectory()) {
+            CopyUtil.copy(sourceFileOrDirectory, targetDirectoryPath, context);
+            return;
+        }
+
+        TreeCopy treeCopy = new TreeCopy(workerCount, context);
+        for (int i = 0; i < workerCount; i++) {
+            executor.execute(treeCopy::work);
+        }
+
+        try {
+            treeCopy.walk(src, new File(targetDirectoryPath, src.getName()));
+        } catch (RuntimeException ex) {
+            treeCopy.fail(ex);
+        } finally {
+            treeCopy.finishWalk();
+        }
+
+        treeCopy.awaitWorkers();
+    }
+
+
+    private static class TreeCopy {
+        private final BlockingQueue<File[]> files = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final CountDownLatch finishedWorkers;
+        private final CopyContext context;
+        private volatile boolean isWalkFinished;
+        private volatile RuntimeException error;
+
+        TreeCopy(int workerCount, @NonNull CopyContext context) {
+            this.finishedWorkers = new CountDownLatch(workerCount);
+            this.context = context;
+        }
+
+        void walk(@NonNull File sourceDirectory, @NonNull File targetDirectory) {
+            throwIfFailed();
+            context.checkpoint();
+            CopyUtil.createDirectory(targetDirectory, context);
+
+            String[] names = sourceDirectory.list();
+            if (names == null) {
+                return;
+            }
+
+            List<File> subdirectories = new ArrayList<>();
+            for (String name : names) {
+                File source = new File(sourceDirectory, name);
+                if (source.isDirectory()) {
+                    subdirectories.add(source);
+                } else {
+                    enqueue(new File[] { source, new File(targetDirectory, name) });
+                }
+            }
+
+            for (File subdirectory : subdirectories) {
+                walk(subdirectory, new File(targetDirectory, subdirectory.getName()));
+            }
+        }
+
+        void finishWalk() {
+            isWalkFinished = true;
+        }
+
+        void work() {
+            try {
+                while (true) {
+                    // Polled, so workers also stop when the walk was aborted
+                    File[] file = files.poll(QUEUE_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (file == null) {
+                        if (isWalkFinished && files.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+
+                    // Keep draining after a failure so the walker never blocks on a full queue
+                    if (error == null) {
+                        try {
+                            CopyUtil.copyFile(file[0], file[1], context);
+                        } catch (RuntimeException ex) {
+                            fail(ex);
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                fail(new CopyFileException(ex));
+            } finally {
+                finishedWorkers.countDown();
+            }
+        }
+
+        synchronized void fail(@NonNull RuntimeException ex) {
+            // The first error is reported, later ones are usually caused by it
+            if (error == null) {
+                error = ex;
+            }
+        }
+
+        // Waits even when interrupted, the caller cleans up after a cancel and no worker may write after that
+        void awaitWorkers() {
+            boolean isInterrupted = false;
+            while (true) {
+                try {
+                    finishedWorkers.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    isInterrupted = true;
+                    context.cancel();
+                }
+            }
+
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+                throw new JobCancelledException();
+            }
+            throwIfFailed();
+        }
+
+        private void enqueue(@NonNull File[] file) {
+            try {
+                while (!files.offer(file, QUEUE_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    throwIfFailed();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                context.cancel();
+                throw new JobCancelledException();
+            }
+        }
+
+        private void throwIfFailed() {
+            RuntimeException error = this.error;
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
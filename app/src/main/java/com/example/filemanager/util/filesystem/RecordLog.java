@@ -0,0 +1,214 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+// Map persisted as an append-only log of (key, value) records, the last record of a key wins.
+// The log is read on first use. A truncated last record, left by a kill during an append, is cut off
+// so the next append starts on a record boundary. A log that can't be parsed is discarded.
+// Once stale records outnumber live ones by COMPACTION_MIN_STALE_RECORDS the log is rewritten.
+public class RecordLog<V> {
+    private static final int COMPACTION_MIN_STALE_RECORDS = 1000;
+
+    public interface Reader<V> {
+        // remainingBytes is what is left of the log, lengths read from it must be checked against it
+        @NonNull
+        V read(@NonNull DataInputStream input, long remainingBytes) throws IOException;
+    }
+
+    public interface Writer<V> {
+        void write(@NonNull DataOutputStream output, @NonNull V value) throws IOException;
+    }
+
+    private File file;
+    private Reader<V> reader;
+    private Writer<V> writer;
+    private Map<String, V> entries;
+    private DataOutputStream output;
+    private int recordCount;
+
+
+    public RecordLog(@NonNull File file, @NonNull Reader<V> reader, @NonNull Writer<V> writer) {
+        this.file = file;
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+
+    @Nullable
+    public synchronized V get(@NonNull String key) {
+        load();
+        return entries.get(key);
+    }
+
+    public synchronized void put(@NonNull String key, @NonNull V value) {
+        load();
+        entries.put(key, value);
+
+        try {
+            if (output == null) {
+                output = openOutput(file, true);
+            }
+            writeRecord(output, key, value);
+            recordCount++;
+        } catch (IOException ex) {
+            // The log only saves work, the value is computed again next time
+            ex.printStackTrace();
+        }
+    }
+
+    // Values put so far are written out, the log is reopened by the next put()
+    public synchronized void close() {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        output = null;
+    }
+
+
+    private void load() {
+        if (entries != null) {
+            return;
+        }
+
+        entries = new HashMap<>();
+        recordCount = 0;
+        if (!file.exists()) {
+            return;
+        }
+
+        long length = file.length();
+        long validLength = 0;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataInputStream input = new DataInputStream(counter)) {
+            while (validLength < length) {
+                String key = input.readUTF();
+                V value = reader.read(input, length - counter.getCount());
+                entries.put(key, value);
+                recordCount++;
+                validLength = counter.getCount();
+            }
+        } catch (EOFException ex) {
+            // Truncated last record, everything before it is intact
+        } catch (IOException | RuntimeException ex) {
+            // Corrupt or unreadable, records after a bad one can't be found, so nothing is trusted
+            ex.printStackTrace();
+            entries.clear();
+            recordCount = 0;
+            validLength = 0;
+        }
+
+        if (recordCount - entries.size() > COMPACTION_MIN_STALE_RECORDS) {
+            compact();
+        } else if (validLength < length) {
+            truncate(validLength);
+        }
+    }
+
+    private void truncate(long validLength) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(validLength);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            file.delete();
+            entries.clear();
+            recordCount = 0;
+        }
+    }
+
+    // Written aside and renamed, a kill during compaction leaves the old log
+    private void compact() {
+        File compactedFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream compacted = openOutput(compactedFile, false)) {
+            for (Map.Entry<String, V> entry : entries.entrySet()) {
+                writeRecord(compacted, entry.getKey(), entry.getValue());
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            compactedFile.delete();
+            file.delete();
+            entries.clear();
+            recordCount = 0;
+            return;
+        }
+
+        if (compactedFile.renameTo(file)) {
+            recordCount = entries.size();
+        } else {
+            compactedFile.delete();
+            file.delete();
+            entries.clear();
+            recordCount = 0;
+        }
+    }
+
+    private void writeRecord(@NonNull DataOutputStream output, @NonNull String key, @NonNull V value) throws IOException {
+        output.writeUTF(key);
+        writer.write(output, value);
+    }
+
+    @NonNull
+    private static DataOutputStream openOutput(@NonNull File file, boolean append) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+    }
+
+
+    // Offset of the next byte DataInputStream reads, which doesn't read ahead by itself
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(@NonNull InputStream input) {
+            super(input);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long byteCount) throws IOException {
+            long result = super.skip(byteCount);
+            count += result;
+            return result;
+        }
+    }
+}
@@ -5,21 +5,47 @@ import android.arch.lifecycle.ViewModelProvider;
 import android.support.annotation.NonNull;
 import android.util.Pair;
 
+import com.example.filemanager.model.ContentSearchHit;
+import com.example.filemanager.model.CopyProgress;
+import com.example.filemanager.model.DirectoryChange;
+import com.example.filemanager.model.DirectoryChangeType;
+import com.example.filemanager.model.DirectoryContentChange;
 import com.example.filemanager.model.DirectoryItem;
 import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.model.JobHandle;
+import com.example.filemanager.model.ListChange;
+import com.example.filemanager.model.SearchProgress;
 import com.example.filemanager.model.SortType;
+import com.example.filemanager.model.exception.JobCancelledException;
 import com.example.filemanager.repository.directory.DirectoryRepository;
+import com.example.filemanager.repository.search.SearchRepository;
 import com.example.filemanager.repository.settings.SettingsRepository;
+import com.example.filemanager.util.DirectoryChangesUtil;
+import com.example.filemanager.util.DirectoryContentDiffUtil;
 import com.example.filemanager.util.FilterHiddenDirectoryItemsUtil;
+import com.example.filemanager.util.FuzzySearchUtil;
+import com.example.filemanager.util.MetadataQuery;
+import com.example.filemanager.util.NameFoldingUtil;
 import com.example.filemanager.util.SearchDirectoryItemsUtil;
 import com.example.filemanager.util.SortDirectoryItemsUtil;
 import com.example.filemanager.util.Unit;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EmptyStackException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
@@ -30,24 +56,49 @@ import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
 
 public class DirectoryViewModel extends ViewModel {
+    private static final long DIRECTORY_CONTENT_CHUNKS_THROTTLE_MS = 150;
+    private static final long DIRECTORY_CHANGES_BUFFER_MS = 250;
+    private static final long SEARCH_QUERY_DEBOUNCE_MS = 200;
+    private static final int FUZZY_SEARCH_MAX_RESULT_COUNT = 500;
+    private static final long CONTENT_SEARCH_HITS_BUFFER_MS = 200;
+
     private DirectoryRepository directoryRepository;
+    private SearchRepository searchRepository;
     private SettingsRepository settingsRepository;
     private CompositeDisposable disposable = new CompositeDisposable();
+    private Disposable directoryContentSubscription;
+    private Disposable directoryChangesSubscription;
+    private Disposable directoryChangesContentSubscription;
+    private Disposable contentTypesSubscription;
+    private Disposable folderSizesSubscription;
+    private CompositeDisposable changedFolderSizesSubscriptions = new CompositeDisposable();
 
     private Stack<String> directories = new Stack<>();
-    private List<DirectoryItem> cachedDirectoryContent;
+    private DirectoryListing cachedDirectoryContent;
+    // Changes reported while the content is loading, null when it is not
+    private List<DirectoryChange> pendingDirectoryChanges;
+    private String currentSearchQuery = "";
+    private Subject<String> searchQueryChanges = PublishSubject.create();
+    private volatile DirectorySearch lastDirectorySearch;
 
     private List<DirectoryItem> itemsToMove = new ArrayList<>();
     private List<DirectoryItem> itemsToCopy = new ArrayList<>();
+    private JobHandle copyJob;
 
     public Subject<Boolean> isLoading = BehaviorSubject.createDefault(true);
     public Subject<String> currentDirectory = BehaviorSubject.create();
-    public Subject<List<DirectoryItem>> directoryContent = BehaviorSubject.create();
+    public BehaviorSubject<List<DirectoryItem>> directoryContent = BehaviorSubject.create();
+    public Subject<DirectoryContentChange> directoryContentChanges = PublishSubject.create();
     public Subject<Throwable> error = PublishSubject.create();
 
     public BehaviorSubject<Boolean> isCopyModeEnabled = BehaviorSubject.create();
     public Subject<Boolean> isCopyDialogVisible = BehaviorSubject.create();
+    public Subject<CopyProgress> copyProgress = BehaviorSubject.create();
+    public Subject<Boolean> isCopyPaused = BehaviorSubject.createDefault(false);
     public Subject<String> searchQuery = BehaviorSubject.create();
+    public Subject<SearchProgress> searchProgress = PublishSubject.create();
+    // Lines matched by the current content search, by file path
+    public Subject<Map<String, List<ContentSearchHit>>> contentSearchHits = BehaviorSubject.createDefault(Collections.emptyMap());
 
     public Subject<Unit> showSortTypeDialogEvent = PublishSubject.create();
     public Subject<Unit> showCreateDirectoryDialogEvent = PublishSubject.create();
@@ -60,9 +111,12 @@ public class DirectoryViewModel extends ViewModel {
     public Subject<Unit> closeScreenEvent = PublishSubject.create();
 
 
-    public DirectoryViewModel(@NonNull String directory, @NonNull DirectoryRepository directoryRepository, @NonNull SettingsRepository settingsRepository) {
+    public DirectoryViewModel(@NonNull String directory, @NonNull DirectoryRepository directoryRepository, @NonNull SearchRepository searchRepository, @NonNull SettingsRepository settingsRepository) {
         this.directoryRepository = directoryRepository;
+        this.searchRepository = searchRepository;
         this.settingsRepository = settingsRepository;
+        disposable.add(changedFolderSizesSubscriptions);
+        observeSearchQueries();
         goToDirectory(directory);
     }
 
@@ -119,30 +173,92 @@ public class DirectoryViewModel extends ViewModel {
 
     public void handlePasteClicked() {
         isCopyDialogVisible.onNext(true);
+        isCopyPaused.onNext(false);
 
         String currentDirectory = directories.peek();
+        copyJob = new JobHandle();
+
+        // Moved items leave their directories, partly finished jobs change them too
+        Set<String> changedDirectories = new HashSet<>();
+        changedDirectories.add(currentDirectory);
+        for (DirectoryItem item : itemsToMove) {
+            String parent = new File(item.getFilePath()).getParent();
+            if (parent != null) {
+                changedDirectories.add(parent);
+            }
+        }
+
+        // The copy mode lists are cleared before the job's result arrives
+        List<String> targetPaths = new ArrayList<>();
+        for (DirectoryItem item : itemsToMove) {
+            targetPaths.add(new File(currentDirectory, item.getName()).getPath());
+        }
+        for (DirectoryItem item : itemsToCopy) {
+            targetPaths.add(new File(currentDirectory, item.getName()).getPath());
+        }
 
         Disposable subscription = directoryRepository
-                .moveAndCopy(currentDirectory, itemsToMove, itemsToCopy)
+                .moveAndCopy(currentDirectory, itemsToMove, itemsToCopy, settingsRepository.isCopyVerificationEnabled(), copyJob)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        () -> {
+                        copyProgress::onNext,
+                        error -> {
                             isCopyDialogVisible.onNext(false);
-                            refreshCurrentDirectory();
                             disableCopyMode();
+                            searchRepository.notifyDirectoriesChanged(changedDirectories);
+                            applyPastedTargets(targetPaths);
+                            if (error instanceof JobCancelledException) {
+                                return;
+                            }
+                            this.error.onNext(error);
+                            error.printStackTrace();
                         },
-                        error -> {
+                        () -> {
                             isCopyDialogVisible.onNext(false);
-                            this.error.onNext(error);
                             disableCopyMode();
-                            error.printStackTrace();
+                            searchRepository.notifyDirectoriesChanged(changedDirectories);
+                            applyPastedTargets(targetPaths);
                         }
                 );
 
         disposable.add(subscription);
     }
 
+    // The file observer misses changes on some storages, so the targets are applied however the job ended
+    private void applyPastedTargets(@NonNull List<String> targetPaths) {
+        Disposable subscription = directoryRepository
+                .getFileChanges(targetPaths)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        this::applyCurrentDirectoryChanges,
+                        Throwable::printStackTrace
+                );
+
+        disposable.add(subscription);
+    }
+
+    public void handlePauseOrResumeCopyClicked() {
+        if (copyJob == null) {
+            return;
+        }
+
+        if (copyJob.isPaused()) {
+            copyJob.resume();
+        } else {
+            copyJob.pause();
+        }
+        isCopyPaused.onNext(copyJob.isPaused());
+    }
+
+    public void handleCancelCopyClicked() {
+        if (copyJob != null) {
+            // Resumes a paused job too, it stops at its next checkpoint
+            copyJob.cancel();
+        }
+    }
+
     public void handleRenameClicked(@NonNull DirectoryItem item) {
         showRenameItemDialogEvent.onNext(item);
     }
@@ -159,7 +275,13 @@ public class DirectoryViewModel extends ViewModel {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        this::refreshCurrentDirectory,
+                        renamedItem -> {
+                            isLoading.onNext(false);
+                            applyKnownChanges(
+                                    new DirectoryChange(DirectoryChangeType.REMOVED, item.getFilePath(), null),
+                                    new DirectoryChange(DirectoryChangeType.ADDED, renamedItem.getFilePath(), renamedItem)
+                            );
+                        },
                         error -> {
                             isLoading.onNext(false);
                             this.error.onNext(error);
@@ -186,7 +308,10 @@ public class DirectoryViewModel extends ViewModel {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        this::refreshCurrentDirectory,
+                        () -> {
+                            isLoading.onNext(false);
+                            applyKnownChanges(new DirectoryChange(DirectoryChangeType.REMOVED, item.getFilePath(), null));
+                        },
                         error -> {
                             isLoading.onNext(false);
                             this.error.onNext(error);
@@ -205,7 +330,14 @@ public class DirectoryViewModel extends ViewModel {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        this::refreshCurrentDirectory,
+                        () -> {
+                            isLoading.onNext(false);
+                            DirectoryChange[] changes = new DirectoryChange[items.size()];
+                            for (int i = 0; i < items.size(); i++) {
+                                changes[i] = new DirectoryChange(DirectoryChangeType.REMOVED, items.get(i).getFilePath(), null);
+                            }
+                            applyKnownChanges(changes);
+                        },
                         error -> {
                             isLoading.onNext(false);
                             this.error.onNext(error);
@@ -230,6 +362,7 @@ public class DirectoryViewModel extends ViewModel {
 
     public void handleSortTypeChanged() {
         refreshCachedDirectoryContent();
+        calculateFolderSizes();
     }
 
     public void handleShowOrHideHiddenFilesClicked() {
@@ -239,6 +372,43 @@ public class DirectoryViewModel extends ViewModel {
         refreshCachedDirectoryContent();
     }
 
+    public void handleDetectContentTypesClicked() {
+        boolean isContentTypeDetectionEnabled = settingsRepository.isContentTypeDetectionEnabled();
+        isContentTypeDetectionEnabled = !isContentTypeDetectionEnabled;
+        settingsRepository.setContentTypeDetectionEnabled(isContentTypeDetectionEnabled);
+        detectContentTypes();
+    }
+
+    public void handleSearchInSubdirectoriesClicked() {
+        boolean isRecursiveSearchEnabled = settingsRepository.isRecursiveSearchEnabled();
+        isRecursiveSearchEnabled = !isRecursiveSearchEnabled;
+        settingsRepository.setRecursiveSearchEnabled(isRecursiveSearchEnabled);
+        handleSearchQueryChanged(currentSearchQuery);
+    }
+
+    public void handleFuzzySearchClicked() {
+        boolean isFuzzySearchEnabled = settingsRepository.isFuzzySearchEnabled();
+        isFuzzySearchEnabled = !isFuzzySearchEnabled;
+        settingsRepository.setFuzzySearchEnabled(isFuzzySearchEnabled);
+        handleSearchQueryChanged(currentSearchQuery);
+    }
+
+    public void handleContentSearchClicked() {
+        boolean isContentSearchEnabled = settingsRepository.isContentSearchEnabled();
+        isContentSearchEnabled = !isContentSearchEnabled;
+        settingsRepository.setContentSearchEnabled(isContentSearchEnabled);
+        handleSearchQueryChanged(currentSearchQuery);
+    }
+
+    public void handleCopyVerificationClicked() {
+        boolean isCopyVerificationEnabled = settingsRepository.isCopyVerificationEnabled();
+        settingsRepository.setCopyVerificationEnabled(!isCopyVerificationEnabled);
+    }
+
+    public void handleRefreshClicked() {
+        refreshCurrentDirectory();
+    }
+
     public void handleCreateDirectoryClicked() {
         showCreateDirectoryDialogEvent.onNext(Unit.get());
     }
@@ -252,7 +422,10 @@ public class DirectoryViewModel extends ViewModel {
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
-                        this::refreshCurrentDirectory,
+                        createdItem -> {
+                            isLoading.onNext(false);
+                            applyKnownChanges(new DirectoryChange(DirectoryChangeType.ADDED, createdItem.getFilePath(), createdItem));
+                        },
                         error -> {
                             isLoading.onNext(false);
                             this.error.onNext(error);
@@ -264,34 +437,195 @@ public class DirectoryViewModel extends ViewModel {
     }
 
     public void handleSearchQueryChanged(@NonNull String query) {
-        if (cachedDirectoryContent == null)  {
-            return;
-        }
+        searchQueryChanges.onNext(query);
+    }
 
-        isLoading.onNext(true);
 
-        Disposable subscription = Single.just(cachedDirectoryContent)
-                .map(items -> searchDirectoryItems(items, query))
-                .map(this::filterHiddenFiles)
-                .map(this::sortDirectoryItems)
-                .subscribeOn(Schedulers.io())
+    private boolean isRecursiveSearchActive() {
+        return !currentSearchQuery.isEmpty() && settingsRepository.isRecursiveSearchEnabled();
+    }
+
+    private boolean isContentSearchActive() {
+        return !currentSearchQuery.isEmpty() && settingsRepository.isContentSearchEnabled();
+    }
+
+    private void observeSearchQueries() {
+        // Only the latest query is searched, switchMap disposes the search of the previous one
+        Disposable subscription = searchQueryChanges
+                .debounce(SEARCH_QUERY_DEBOUNCE_MS, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
+                .switchMap(this::search)
                 .subscribe(
                         result -> {
                             isLoading.onNext(false);
-                            searchQuery.onNext(query);
-                            directoryContent.onNext(result);
+                            directoryContent.onNext(result.first);
+                            if (result.second != null) {
+                                searchProgress.onNext(result.second);
+                            }
                         },
-                        error -> {
-                            isLoading.onNext(false);
-                            this.error.onNext(error);
-                            error.printStackTrace();
-                        }
+                        Throwable::printStackTrace
                 );
 
         disposable.add(subscription);
     }
 
+    @NonNull
+    private Observable<Pair<List<DirectoryItem>, SearchProgress>> search(@NonNull String query) {
+        if (cachedDirectoryContent == null) {
+            return Observable.empty();
+        }
+
+        currentSearchQuery = query;
+        isLoading.onNext(true);
+        searchQuery.onNext(query);
+        contentSearchHits.onNext(Collections.emptyMap());
+
+        Observable<Pair<List<DirectoryItem>, SearchProgress>> search;
+        if (isContentSearchActive()) {
+            search = searchContent(query);
+        } else if (isRecursiveSearchActive()) {
+            search = searchRecursively(query);
+        } else {
+            search = searchCurrentDirectory(query);
+        }
+
+        // Results of a search started in one directory must not replace the content of another one
+        return search
+                .takeUntil(currentDirectory.skip(1))
+                .observeOn(AndroidSchedulers.mainThread())
+                .onErrorResumeNext(error -> {
+                    isLoading.onNext(false);
+                    this.error.onNext(error);
+                    error.printStackTrace();
+                    return Observable.empty();
+                });
+    }
+
+    @NonNull
+    private Observable<Pair<List<DirectoryItem>, SearchProgress>> searchCurrentDirectory(@NonNull String query) {
+        DirectoryListing listing = cachedDirectoryContent;
+        boolean showHiddenFiles = settingsRepository.areHiddenFilesVisible();
+        SortType sortType = settingsRepository.getSortType();
+        boolean isSortDescending = settingsRepository.isSortDescending();
+        boolean isFuzzySearchEnabled = !query.isEmpty() && settingsRepository.isFuzzySearchEnabled();
+
+        return Observable
+                .fromCallable(() -> {
+                    List<DirectoryItem> result = findInDirectory(listing, query, showHiddenFiles, sortType, isSortDescending, isFuzzySearchEnabled);
+                    return new Pair<List<DirectoryItem>, SearchProgress>(result, null);
+                })
+                .subscribeOn(Schedulers.io());
+    }
+
+    @NonNull
+    private List<DirectoryItem> findInDirectory(@NonNull DirectoryListing listing, @NonNull String query, boolean showHiddenFiles, @NonNull SortType sortType, boolean isSortDescending, boolean isFuzzySearchEnabled) {
+        MetadataQuery metadataQuery = MetadataQuery.parse(query);
+        if (metadataQuery != null) {
+            return findInDirectory(listing, metadataQuery, showHiddenFiles, sortType, isSortDescending);
+        } else if (isFuzzySearchEnabled) {
+            return findInDirectoryFuzzy(listing, query, showHiddenFiles);
+        } else {
+            return findInDirectory(listing, query, showHiddenFiles, sortType, isSortDescending);
+        }
+    }
+
+    @NonNull
+    private DirectoryListingView findInDirectory(@NonNull DirectoryListing listing, @NonNull String query, boolean showHiddenFiles, @NonNull SortType sortType, boolean isSortDescending) {
+        DirectorySearch previousSearch = lastDirectorySearch;
+        DirectoryListingView result;
+
+        // An extended query matches a subset of the previous result, which is already filtered and sorted
+        if (previousSearch != null && previousSearch.canBeRefinedTo(listing, query, showHiddenFiles, sortType, isSortDescending)) {
+            result = SearchDirectoryItemsUtil.searchDirectoryItems(previousSearch.result, query);
+        } else {
+            DirectoryListingView items = FilterHiddenDirectoryItemsUtil.filterHiddenFiles(listing, showHiddenFiles);
+            items = SearchDirectoryItemsUtil.searchDirectoryItems(items, query);
+            result = SortDirectoryItemsUtil.sort(items, sortType, isSortDescending);
+        }
+
+        lastDirectorySearch = new DirectorySearch(listing, query, showHiddenFiles, sortType, isSortDescending, result);
+        return result;
+    }
+
+    // Not refined from the previous result, a longer filter like "size>50" can match more than "size>5"
+    @NonNull
+    private DirectoryListingView findInDirectory(@NonNull DirectoryListing listing, @NonNull MetadataQuery query, boolean showHiddenFiles, @NonNull SortType sortType, boolean isSortDescending) {
+        lastDirectorySearch = null;
+        DirectoryListingView items = FilterHiddenDirectoryItemsUtil.filterHiddenFiles(listing, showHiddenFiles);
+        items = SearchDirectoryItemsUtil.searchDirectoryItems(items, query);
+        return SortDirectoryItemsUtil.sort(items, sortType, isSortDescending);
+    }
+
+    // Ordered by score instead of the sort type, only the best matches are kept
+    @NonNull
+    private DirectoryListingView findInDirectoryFuzzy(@NonNull DirectoryListing listing, @NonNull String query, boolean showHiddenFiles) {
+        DirectoryListingView items = FilterHiddenDirectoryItemsUtil.filterHiddenFiles(listing, showHiddenFiles);
+        return FuzzySearchUtil.search(items, query, FUZZY_SEARCH_MAX_RESULT_COUNT);
+    }
+
+    @NonNull
+    private Observable<Pair<List<DirectoryItem>, SearchProgress>> searchRecursively(@NonNull String query) {
+        String directory = directories.peek();
+        boolean includeHidden = settingsRepository.areHiddenFilesVisible();
+        SortType sortType = settingsRepository.getSortType();
+        boolean isSortDescending = settingsRepository.isSortDescending();
+
+        // Disposing the subscription cancels the walk, so a new query never waits for the previous one.
+        // Every progress merges its new matches into a new list, emitted lists are never modified.
+        return searchRepository
+                .searchRecursively(directory, query, includeHidden)
+                .subscribeOn(Schedulers.io())
+                .scan(
+                        new Pair<List<DirectoryItem>, SearchProgress>(Collections.<DirectoryItem>emptyList(), null),
+                        (previous, progress) -> new Pair<>(
+                                SortDirectoryItemsUtil.merge(previous.first, progress.getNewMatches(), sortType, isSortDescending),
+                                progress
+                        )
+                )
+                .skip(1);
+    }
+
+    @NonNull
+    private Observable<Pair<List<DirectoryItem>, SearchProgress>> searchContent(@NonNull String query) {
+        String directory = directories.peek();
+        boolean includeHidden = settingsRepository.areHiddenFilesVisible();
+        Map<String, List<ContentSearchHit>> hitsByPath = new HashMap<>();
+        List<DirectoryItem> matches = new ArrayList<>();
+
+        // Every file is listed once, in the order its first hit was found, with all its hits shown by the adapter
+        return searchRepository
+                .searchContent(directory, query, includeHidden)
+                .subscribeOn(Schedulers.io())
+                .buffer(CONTENT_SEARCH_HITS_BUFFER_MS, TimeUnit.MILLISECONDS)
+                .filter(hits -> !hits.isEmpty())
+                .map(hits -> {
+                    for (ContentSearchHit hit : hits) {
+                        addContentSearchHit(hitsByPath, matches, hit);
+                    }
+                    return new Pair<List<DirectoryItem>, Map<String, List<ContentSearchHit>>>(new ArrayList<>(matches), new HashMap<>(hitsByPath));
+                })
+                // Also ends the loading state when nothing was found
+                .concatWith(Observable.fromCallable(() -> new Pair<List<DirectoryItem>, Map<String, List<ContentSearchHit>>>(new ArrayList<>(matches), new HashMap<>(hitsByPath))))
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnNext(result -> contentSearchHits.onNext(result.second))
+                .map(result -> new Pair<List<DirectoryItem>, SearchProgress>(result.first, null));
+    }
+
+    // Hit lists are replaced rather than appended to, snapshots already passed to the adapter stay unchanged
+    private static void addContentSearchHit(@NonNull Map<String, List<ContentSearchHit>> hitsByPath,
+                                            @NonNull List<DirectoryItem> matches,
+                                            @NonNull ContentSearchHit hit) {
+        String path = hit.getItem().getFilePath();
+        List<ContentSearchHit> previousHits = hitsByPath.get(path);
+        List<ContentSearchHit> hits = new ArrayList<>();
+        if (previousHits == null) {
+            matches.add(hit.getItem());
+        } else {
+            hits.addAll(previousHits);
+        }
+        hits.add(hit);
+        hitsByPath.put(path, hits);
+    }
 
     private boolean isRootDirectory() {
         return directories.size() == 1;
@@ -301,6 +635,7 @@ public class DirectoryViewModel extends ViewModel {
         directories.push(directory);
         currentDirectory.onNext(directory);
         loadDirectoryContent(directory);
+        observeDirectoryChanges(directory);
     }
 
     private void goToParentDirectory() {
@@ -321,8 +656,10 @@ public class DirectoryViewModel extends ViewModel {
         goToDirectory(parentDirectory);
     }
 
+    // The file observer misses changes on some storages and changes inside files don't touch the directory mtime
     private void refreshCurrentDirectory() {
         String currentDirectory = directories.peek();
+        directoryRepository.invalidateDirectoryContent(currentDirectory);
         loadDirectoryContent(currentDirectory);
     }
 
@@ -356,46 +693,329 @@ public class DirectoryViewModel extends ViewModel {
     private void loadDirectoryContent(@NonNull String directory) {
         isLoading.onNext(true);
 
-        Disposable subscription = directoryRepository
-                .getDirectoryContent(directory)
+        if (directoryContentSubscription != null) {
+            disposable.remove(directoryContentSubscription);
+        }
+        if (contentTypesSubscription != null) {
+            disposable.remove(contentTypesSubscription);
+        }
+        if (folderSizesSubscription != null) {
+            disposable.remove(folderSizesSubscription);
+        }
+        changedFolderSizesSubscriptions.clear();
+        // Changes applied to the previous listing must not replace the new one
+        if (directoryChangesContentSubscription != null) {
+            disposable.remove(directoryChangesContentSubscription);
+        }
+
+        cachedDirectoryContent = null;
+        pendingDirectoryChanges = new ArrayList<>();
+        currentSearchQuery = "";
+        contentSearchHits.onNext(Collections.emptyMap());
+
+        directoryContentSubscription = directoryRepository
+                .getDirectoryContentInChunks(directory)
+                .subscribeOn(Schedulers.io())
+                .scan(Collections.<DirectoryListing>emptyList(), DirectoryViewModel::appendChunk)
+                .skip(1)
+                .throttleLatest(DIRECTORY_CONTENT_CHUNKS_THROTTLE_MS, TimeUnit.MILLISECONDS, true)
+                .map(chunks -> DirectoryListing.concat(directory, chunks))
                 .map(items -> new Pair<>(items, filterHiddenFiles(items)))
                 .map(p -> new Pair<>(p.first, sortDirectoryItems(p.second)))
-                .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         result -> {
-                            List<DirectoryItem> originalResult = result.first;
-                            List<DirectoryItem> filteredResult = result.second;
+                            DirectoryListing originalResult = result.first;
+                            DirectoryListingView filteredResult = result.second;
                             cachedDirectoryContent = originalResult;
                             isLoading.onNext(false);
                             directoryContent.onNext(filteredResult);
                         },
                         error -> {
+                            pendingDirectoryChanges = null;
                             isLoading.onNext(false);
                             this.error.onNext(error);
                             error.printStackTrace();
+                        },
+                        () -> {
+                            applyPendingDirectoryChanges();
+                            detectContentTypes();
+                            calculateFolderSizes();
                         }
                 );
 
-        disposable.add(subscription);
+        disposable.add(directoryContentSubscription);
     }
 
-
+    // Chunks are only collected here, the listing is built once per throttled emission instead of once per chunk
     @NonNull
-    private List<DirectoryItem> filterHiddenFiles(@NonNull List<DirectoryItem> items) {
+    private static List<DirectoryListing> appendChunk(@NonNull List<DirectoryListing> chunks, @NonNull DirectoryListing chunk) {
+        List<DirectoryListing> result = new ArrayList<>(chunks.size() + 1);
+        result.addAll(chunks);
+        result.add(chunk);
+        return result;
+    }
+
+    private void detectContentTypes() {
+        if (contentTypesSubscription != null) {
+            disposable.remove(contentTypesSubscription);
+        }
+
+        if (cachedDirectoryContent == null || !settingsRepository.isContentTypeDetectionEnabled()) {
+            return;
+        }
+
+        // Detected types arrive as regular changes, so they are applied like file system events
+        contentTypesSubscription = directoryRepository
+                .detectContentTypes(cachedDirectoryContent)
+                .subscribeOn(Schedulers.io())
+                .buffer(DIRECTORY_CHANGES_BUFFER_MS, TimeUnit.MILLISECONDS)
+                .filter(changes -> !changes.isEmpty())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        this::applyDirectoryChanges,
+                        Throwable::printStackTrace
+                );
+
+        disposable.add(contentTypesSubscription);
+    }
+
+    private void calculateFolderSizes() {
+        if (folderSizesSubscription != null) {
+            disposable.remove(folderSizesSubscription);
+        }
+        changedFolderSizesSubscriptions.clear();
+
+        // Walking every subfolder is only worth it when the order depends on it
+        if (cachedDirectoryContent == null || settingsRepository.getSortType() != SortType.SIZE) {
+            return;
+        }
+
+        // Sizes stream in as each folder is resolved and are re-sorted like any other change
+        folderSizesSubscription = directoryRepository
+                .calculateFolderSizes(cachedDirectoryContent)
+                .subscribeOn(Schedulers.io())
+                .buffer(DIRECTORY_CHANGES_BUFFER_MS, TimeUnit.MILLISECONDS)
+                .filter(changes -> !changes.isEmpty())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        this::applyDirectoryChanges,
+                        Throwable::printStackTrace
+                );
+
+        disposable.add(folderSizesSubscription);
+    }
+
+    private void observeDirectoryChanges(@NonNull String directory) {
+        if (directoryChangesSubscription != null) {
+            disposable.remove(directoryChangesSubscription);
+        }
+
+        directoryChangesSubscription = directoryRepository
+                .observeDirectoryChanges(directory)
+                .subscribeOn(Schedulers.io())
+                .buffer(DIRECTORY_CHANGES_BUFFER_MS, TimeUnit.MILLISECONDS)
+                .filter(changes -> !changes.isEmpty())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        changes -> {
+                            notifyChangedDirectories(changes);
+                            applyFileSystemChanges(changes);
+                        },
+                        Throwable::printStackTrace
+                );
+
+        disposable.add(directoryChangesSubscription);
+    }
+
+    // Every chunk replaces the content, so changes applied to a partial listing would be lost
+    private void applyPendingDirectoryChanges() {
+        List<DirectoryChange> changes = pendingDirectoryChanges;
+        pendingDirectoryChanges = null;
+
+        // A change may or may not be in the listing already, each one replaces its entry, so applying it again is harmless
+        if (changes != null && !changes.isEmpty()) {
+            applyDirectoryChanges(changes);
+        }
+    }
+
+    private void applyDirectoryChanges(@NonNull List<DirectoryChange> changes) {
+        if (pendingDirectoryChanges != null) {
+            pendingDirectoryChanges.addAll(changes);
+            return;
+        }
+
+        if (cachedDirectoryContent == null) {
+            return;
+        }
+
+        DirectoryListing listing = cachedDirectoryContent;
+        // Results of a recursive or content search don't come from this directory listing
+        boolean isListingShown = !isRecursiveSearchActive() && !isContentSearchActive();
+        String query = currentSearchQuery;
         boolean showHiddenFiles = settingsRepository.areHiddenFilesVisible();
-        return FilterHiddenDirectoryItemsUtil.filterHiddenFiles(items, showHiddenFiles);
+        SortType sortType = settingsRepository.getSortType();
+        boolean isSortDescending = settingsRepository.isSortDescending();
+        boolean isFuzzySearchEnabled = !query.isEmpty() && settingsRepository.isFuzzySearchEnabled();
+        List<DirectoryItem> previousContent = directoryContent.getValue();
+
+        Set<String> changedNames = new HashSet<>();
+        for (DirectoryChange change : changes) {
+            changedNames.add(new File(change.getFilePath()).getName());
+        }
+
+        // Applying, filtering and diffing are O(n) each, only their result reaches the main thread.
+        // Changes arriving in the meantime wait as during a load and are applied on top of it.
+        pendingDirectoryChanges = new ArrayList<>();
+
+        // No loading indicator here, changes are applied in place while the list stays visible.
+        // The adapter gets the exact ranges that changed when they can be computed, instead of a full refresh.
+        directoryChangesContentSubscription = Single
+                .fromCallable(() -> {
+                    DirectoryListing result = DirectoryChangesUtil.applyChanges(listing, changes);
+                    if (!isListingShown) {
+                        return new AppliedDirectoryChanges(result, null, null);
+                    }
+
+                    List<DirectoryItem> content = findInDirectory(result, query, showHiddenFiles, sortType, isSortDescending, isFuzzySearchEnabled);
+                    List<ListChange> listChanges = (previousContent != null)
+                            ? DirectoryContentDiffUtil.computeChanges(previousContent, content, changedNames)
+                            : null;
+                    return new AppliedDirectoryChanges(result, content, listChanges);
+                })
+                .subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> {
+                            cachedDirectoryContent = result.listing;
+                            if (result.content != null) {
+                                if (result.listChanges != null) {
+                                    directoryContentChanges.onNext(new DirectoryContentChange(previousContent, result.content, result.listChanges));
+                                }
+                                directoryContent.onNext(result.content);
+                            }
+                            applyPendingDirectoryChanges();
+                        },
+                        error -> {
+                            pendingDirectoryChanges = null;
+                            error.printStackTrace();
+                        }
+                );
+
+        disposable.add(directoryChangesContentSubscription);
+    }
+
+    // Results of operations started here are applied right away, the file observer reports them again later
+    private void applyKnownChanges(@NonNull DirectoryChange... changes) {
+        notifyChangedDirectories(Arrays.asList(changes));
+        applyCurrentDirectoryChanges(Arrays.asList(changes));
+    }
+
+    private void applyCurrentDirectoryChanges(@NonNull List<DirectoryChange> changes) {
+        String currentDirectory = directories.peek();
+        List<DirectoryChange> result = new ArrayList<>();
+        for (DirectoryChange change : changes) {
+            File parent = new File(change.getFilePath()).getParentFile();
+            if (parent != null && parent.equals(new File(currentDirectory))) {
+                result.add(change);
+            }
+        }
+
+        if (!result.isEmpty()) {
+            applyFileSystemChanges(result);
+        }
+    }
+
+    // Changed and added folders come with the size of their own inode. By SIZE they keep the size calculated
+    // before, so they don't drop to the end of the list, until their size is calculated again.
+    private void applyFileSystemChanges(@NonNull List<DirectoryChange> changes) {
+        if (pendingDirectoryChanges != null || cachedDirectoryContent == null || settingsRepository.getSortType() != SortType.SIZE) {
+            applyDirectoryChanges(changes);
+            return;
+        }
+
+        Set<String> changedFolderNames = new HashSet<>();
+        for (DirectoryChange change : changes) {
+            DirectoryItem item = change.getItem();
+            if (item != null && item.getType() == DirectoryItemType.DIRECTORY) {
+                changedFolderNames.add(item.getName());
+            }
+        }
+        if (changedFolderNames.isEmpty()) {
+            applyDirectoryChanges(changes);
+            return;
+        }
+
+        DirectoryListing listing = cachedDirectoryContent;
+        Map<String, Long> calculatedSizes = new HashMap<>();
+        for (int i = 0; i < listing.size(); i++) {
+            String name = listing.getName(i);
+            if (listing.getType(i) == DirectoryItemType.DIRECTORY && changedFolderNames.contains(name)) {
+                calculatedSizes.put(name, listing.getFileSize(i));
+            }
+        }
+
+        List<DirectoryChange> result = new ArrayList<>(changes.size());
+        DirectoryListing.Builder changedFolders = new DirectoryListing.Builder(listing.getDirectory(), changedFolderNames.size());
+        for (DirectoryChange change : changes) {
+            DirectoryItem item = change.getItem();
+            if (item != null && item.getType() == DirectoryItemType.DIRECTORY) {
+                Long calculatedSize = calculatedSizes.get(item.getName());
+                if (calculatedSize != null) {
+                    item = new DirectoryItem(item.getType(), item.getName(), item.getFilePath(), item.getLastModificationTime(), calculatedSize, item.isHidden());
+                    change = new DirectoryChange(change.getType(), change.getFilePath(), item);
+                }
+                changedFolders.add(item);
+            }
+            result.add(change);
+        }
+
+        applyDirectoryChanges(result);
+        recalculateFolderSizes(changedFolders.build());
+    }
+
+    // Unlike calculateFolderSizes() only the given folders, a calculation of the whole listing keeps running
+    private void recalculateFolderSizes(@NonNull DirectoryListing folders) {
+        Disposable subscription = directoryRepository
+                .calculateFolderSizes(folders)
+                .subscribeOn(Schedulers.io())
+                .buffer(DIRECTORY_CHANGES_BUFFER_MS, TimeUnit.MILLISECONDS)
+                .filter(changes -> !changes.isEmpty())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        this::applyDirectoryChanges,
+                        Throwable::printStackTrace
+                );
+
+        changedFolderSizesSubscriptions.add(subscription);
+    }
+
+    // Keeps the file name index in step, only added and removed entries change the names it holds
+    private void notifyChangedDirectories(@NonNull List<DirectoryChange> changes) {
+        Set<String> changedDirectories = new HashSet<>();
+        for (DirectoryChange change : changes) {
+            String parent = new File(change.getFilePath()).getParent();
+            if (change.getType() != DirectoryChangeType.MODIFIED && parent != null) {
+                changedDirectories.add(parent);
+            }
+        }
+
+        if (!changedDirectories.isEmpty()) {
+            searchRepository.notifyDirectoriesChanged(changedDirectories);
+        }
     }
 
     @NonNull
-    private List<DirectoryItem> sortDirectoryItems(@NonNull List<DirectoryItem> items) {
-        SortType sortType = settingsRepository.getSortType();
-        return SortDirectoryItemsUtil.sort(items, sortType);
+    private DirectoryListingView filterHiddenFiles(@NonNull DirectoryListing items) {
+        boolean showHiddenFiles = settingsRepository.areHiddenFilesVisible();
+        return FilterHiddenDirectoryItemsUtil.filterHiddenFiles(items, showHiddenFiles);
     }
 
     @NonNull
-    private List<DirectoryItem> searchDirectoryItems(@NonNull List<DirectoryItem> items, @NonNull String query) {
-        return SearchDirectoryItemsUtil.searchDirectoryItems(items, query);
+    private DirectoryListingView sortDirectoryItems(@NonNull DirectoryListingView items) {
+        SortType sortType = settingsRepository.getSortType();
+        boolean isSortDescending = settingsRepository.isSortDescending();
+        return SortDirectoryItemsUtil.sort(items, sortType, isSortDescending);
     }
 
 
@@ -421,21 +1041,63 @@ public class DirectoryViewModel extends ViewModel {
     }
 
 
+    private static class AppliedDirectoryChanges {
+        private final DirectoryListing listing;
+        // Null when the shown content doesn't come from the listing
+        private final List<DirectoryItem> content;
+        private final List<ListChange> listChanges;
+
+        AppliedDirectoryChanges(@NonNull DirectoryListing listing, List<DirectoryItem> content, List<ListChange> listChanges) {
+            this.listing = listing;
+            this.content = content;
+            this.listChanges = listChanges;
+        }
+    }
+
+    private static class DirectorySearch {
+        private final DirectoryListing listing;
+        private final String foldedQuery;
+        private final boolean showHiddenFiles;
+        private final SortType sortType;
+        private final boolean isSortDescending;
+        private final DirectoryListingView result;
+
+        DirectorySearch(@NonNull DirectoryListing listing, @NonNull String query, boolean showHiddenFiles, @NonNull SortType sortType, boolean isSortDescending, @NonNull DirectoryListingView result) {
+            this.listing = listing;
+            this.foldedQuery = NameFoldingUtil.fold(query);
+            this.showHiddenFiles = showHiddenFiles;
+            this.sortType = sortType;
+            this.isSortDescending = isSortDescending;
+            this.result = result;
+        }
+
+        boolean canBeRefinedTo(@NonNull DirectoryListing listing, @NonNull String query, boolean showHiddenFiles, @NonNull SortType sortType, boolean isSortDescending) {
+            return this.listing == listing
+                    && this.showHiddenFiles == showHiddenFiles
+                    && this.sortType == sortType
+                    && this.isSortDescending == isSortDescending
+                    && NameFoldingUtil.fold(query).contains(foldedQuery);
+        }
+    }
+
+
     public static class Factory implements ViewModelProvider.Factory {
         private String directory;
         private DirectoryRepository directoryRepository;
+        private SearchRepository searchRepository;
         private SettingsRepository settingsRepository;
 
-        public Factory(@NonNull String directory, @NonNull DirectoryRepository directoryRepository, @NonNull SettingsRepository settingsRepository) {
+        public Factory(@NonNull String directory, @NonNull DirectoryRepository directoryRepository, @NonNull SearchRepository searchRepository, @NonNull SettingsRepository settingsRepository) {
             this.directory = directory;
             this.directoryRepository = directoryRepository;
+            this.searchRepository = searchRepository;
             this.settingsRepository = settingsRepository;
         }
 
         @NonNull
         @Override
         public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
-            return (T) new DirectoryViewModel(directory, directoryRepository, settingsRepository);
+            return (T) new DirectoryViewModel(directory, directoryRepository, searchRepository, settingsRepository);
         }
     }
 }
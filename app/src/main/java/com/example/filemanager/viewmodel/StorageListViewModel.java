@@ -5,10 +5,12 @@ import android.arch.lifecycle.ViewModelProvider;
 import android.support.annotation.NonNull;
 
 import com.example.filemanager.model.StorageModel;
+import com.example.filemanager.repository.search.SearchRepository;
 import com.example.filemanager.repository.storage.StorageRepository;
 
 import java.util.List;
 
+import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
@@ -19,14 +21,16 @@ import io.reactivex.subjects.Subject;
 
 public class StorageListViewModel extends ViewModel {
     private StorageRepository storageRepository;
+    private SearchRepository searchRepository;
     private CompositeDisposable disposable = new CompositeDisposable();
 
     public Subject<Boolean> isLoading = BehaviorSubject.createDefault(true);
     public Subject<List<StorageModel>> storageList = BehaviorSubject.create();
     public Subject<Throwable> error = PublishSubject.create();
 
-    public StorageListViewModel(@NonNull StorageRepository storageRepository) {
+    public StorageListViewModel(@NonNull StorageRepository storageRepository, @NonNull SearchRepository searchRepository) {
         this.storageRepository = storageRepository;
+        this.searchRepository = searchRepository;
         loadStorageList();
     }
 
@@ -41,6 +45,7 @@ public class StorageListViewModel extends ViewModel {
                         result -> {
                             isLoading.onNext(false);
                             storageList.onNext(result);
+                            updateFileNameIndexes(result);
                         },
                         error -> {
                             isLoading.onNext(false);
@@ -52,6 +57,19 @@ public class StorageListViewModel extends ViewModel {
         disposable.add(subscription);
     }
 
+    private void updateFileNameIndexes(@NonNull List<StorageModel> storages) {
+        // One storage at a time, unchanged directories are only stat()-ed
+        Disposable subscription = Observable.fromIterable(storages)
+                .concatMapSingle(storage -> searchRepository.updateIndex(storage.getPath()))
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        stats -> {},
+                        Throwable::printStackTrace
+                );
+
+        disposable.add(subscription);
+    }
+
     @Override
     protected void onCleared() {
         super.onCleared();
@@ -61,15 +79,17 @@ public class StorageListViewModel extends ViewModel {
 
     public static class Factory implements ViewModelProvider.Factory {
         private StorageRepository storageRepository;
+        private SearchRepository searchRepository;
 
-        public Factory(@NonNull StorageRepository storageRepository) {
+        public Factory(@NonNull StorageRepository storageRepository, @NonNull SearchRepository searchRepository) {
             this.storageRepository = storageRepository;
+            this.searchRepository = searchRepository;
         }
 
         @NonNull
         @Override
         public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
-            return (T) new StorageListViewModel(storageRepository);
+            return (T) new StorageListViewModel(storageRepository, searchRepository);
         }
     }
 }
@@ -0,0 +1,99 @@
+package com.example.filemanager.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Minimal timing harness for the benchmarks, they are skipped unless asked for:
+//   JVM:          ./gradlew testDebugUnitTest -Pbenchmark=true --tests '*Benchmark'
+//   Instrumented: ./gradlew connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.benchmark=true
+// Results are printed to standard output, which is logcat on a device.
+public class Benchmark {
+    private static final int DEFAULT_WARMUP_RUNS = 5;
+    private static final int DEFAULT_RUNS = 15;
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("benchmark");
+    }
+
+    @NonNull
+    public static Result measure(@NonNull String name, @NonNull Task task) throws Exception {
+        return measure(name, DEFAULT_WARMUP_RUNS, DEFAULT_RUNS, task);
+    }
+
+    @NonNull
+    public static Result measure(@NonNull String name, int warmupRuns, int runs, @NonNull Task task) throws Exception {
+        for (int i = 0; i < warmupRuns; i++) {
+            task.run();
+        }
+
+        long[] times = new long[runs];
+        long gcCountBefore = getGcCount();
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        long gcCountAfter = getGcCount();
+
+        Arrays.sort(times);
+        Result result = new Result(name, times[runs / 2], times[0], (gcCountBefore < 0) ? -1 : gcCountAfter - gcCountBefore);
+        System.out.println(result);
+        return result;
+    }
+
+    // -1 where the runtime doesn't report it, ART has no java.lang.management
+    private static long getGcCount() {
+        try {
+            long count = 0;
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(bean.getCollectionCount(), 0);
+            }
+            return count;
+        } catch (LinkageError ex) {
+            return -1;
+        }
+    }
+
+
+    public static class Result {
+        private final String name;
+        private final long medianNs;
+        private final long minNs;
+        private final long gcCount;
+
+        Result(@NonNull String name, long medianNs, long minNs, long gcCount) {
+            this.name = name;
+            this.medianNs = medianNs;
+            this.minNs = minNs;
+            this.gcCount = gcCount;
+        }
+
+        public long getMedianNs() {
+            return medianNs;
+        }
+
+        public long getMinNs() {
+            return minNs;
+        }
+
+        // Collections during the measured runs, -1 when unknown
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-48s median %10.3f ms, min %10.3f ms, gc %d", name, medianNs / 1e6, minNs / 1e6, gcCount);
+        }
+    }
+}
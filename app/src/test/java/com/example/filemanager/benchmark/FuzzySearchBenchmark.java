@@ -0,0 +1,75 @@
+package com.example.filemanager.benchmark;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.util.FuzzySearchUtil;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Fuzzy scoring of 100k names against one frame (16 ms), keeping the top results in a bounded heap
+// versus scoring everything and sorting all matches
+public class FuzzySearchBenchmark {
+    private static final int ENTRY_COUNT = 100_000;
+    private static final int MAX_RESULT_COUNT = 200;
+    private static final double FRAME_BUDGET_MS = 16;
+    private static final String[] QUERIES = {"ivc2023", "holday", "img_5", "report final"};
+
+    private DirectoryListing listing;
+    private long checksum;
+
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+
+        String[] prefixes = {"invoice_", "IMG_", "Holiday ", "report ", "Screenshot_"};
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage/emulated/0/Download", ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            String name = prefixes[i % prefixes.length] + (2000 + i % 30) + "_" + i + ((i % 2 == 0) ? ".pdf" : ".jpg");
+            builder.add(DirectoryItemType.OTHER, name, 0, 0, false);
+        }
+        listing = builder.build();
+    }
+
+
+    @Test
+    public void scoreNames() throws Exception {
+        for (String query : QUERIES) {
+            Benchmark.Result topScores = Benchmark.measure("Top " + MAX_RESULT_COUNT + " \"" + query + "\"", () -> searchTop(query));
+            Benchmark.Result sortAll = Benchmark.measure("Sort all \"" + query + "\"", () -> searchAndSortAll(query));
+
+            System.out.println(String.format(
+                    Locale.US,
+                    "\"%s\": %.2f ms with the bounded heap (%s one frame), %.2f ms sorting all matches",
+                    query,
+                    topScores.getMedianNs() / 1e6,
+                    (topScores.getMedianNs() / 1e6 <= FRAME_BUDGET_MS) ? "within" : "over",
+                    sortAll.getMedianNs() / 1e6
+            ));
+        }
+    }
+
+
+    private void searchTop(String query) {
+        checksum += FuzzySearchUtil.search(DirectoryListingView.of(listing), query, MAX_RESULT_COUNT).size();
+    }
+
+    private void searchAndSortAll(String query) {
+        long[] matches = new long[listing.size()];
+        int count = 0;
+        for (int i = 0; i < listing.size(); i++) {
+            int score = FuzzySearchUtil.score(listing.getFoldedName(i), query);
+            if (score != FuzzySearchUtil.NO_MATCH) {
+                matches[count++] = ((long) score << 32) | (Integer.MAX_VALUE - i);
+            }
+        }
+        Arrays.sort(matches, 0, count);
+        checksum += count;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.filemanager.benchmark;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.util.SearchDirectoryItemsUtil;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+// Typing a query into a large listing: lowercasing every name on every keystroke, as before,
+// versus matching the folded names the listing computed once. GC counts show the garbage left per keystroke.
+public class NameSearchBenchmark {
+    private static final int ENTRY_COUNT = 100_000;
+    private static final String QUERY = "Holiday";
+
+    private DirectoryListing listing;
+    private long checksum;
+
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage/emulated/0/DCIM", ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            String name = ((i % 10 == 0) ? "Holiday " : "IMG_") + i + ((i % 3 == 0) ? ".JPG" : ".jpg");
+            builder.add(DirectoryItemType.IMAGE, name, 0, 0, false);
+        }
+        listing = builder.build();
+    }
+
+
+    @Test
+    public void typeQuery() throws Exception {
+        Benchmark.Result lowerCase = Benchmark.measure("toLowerCase() per name, " + ENTRY_COUNT + " names", this::searchWithLowerCase);
+        Benchmark.Result folded = Benchmark.measure("Precomputed folded names, " + ENTRY_COUNT + " names", this::searchFolded);
+
+        System.out.println(String.format(
+                Locale.US,
+                "Per keystroke: %.2f ms with toLowerCase(), %.2f ms with folded names. Collections: %d versus %d",
+                lowerCase.getMedianNs() / 1e6 / QUERY.length(),
+                folded.getMedianNs() / 1e6 / QUERY.length(),
+                lowerCase.getGcCount(),
+                folded.getGcCount()
+        ));
+    }
+
+
+    private void searchWithLowerCase() {
+        for (int length = 1; length <= QUERY.length(); length++) {
+            String queryLowerCase = QUERY.substring(0, length).toLowerCase();
+            int count = 0;
+            for (int i = 0; i < listing.size(); i++) {
+                if (listing.getName(i).toLowerCase().contains(queryLowerCase)) {
+                    count++;
+                }
+            }
+            checksum += count;
+        }
+    }
+
+    private void searchFolded() {
+        DirectoryListingView items = DirectoryListingView.of(listing);
+        for (int length = 1; length <= QUERY.length(); length++) {
+            checksum += SearchDirectoryItemsUtil.searchDirectoryItems(items, QUERY.substring(0, length)).size();
+        }
+    }
+}
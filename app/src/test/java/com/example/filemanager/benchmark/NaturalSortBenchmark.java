@@ -0,0 +1,85 @@
+package com.example.filemanager.benchmark;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.SortType;
+import com.example.filemanager.util.SortDirectoryItemsUtil;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+
+// Sorting a large listing by name: the previous folded-name compareTo() comparator, which is neither
+// natural nor locale-aware, versus natural order keys created on first sort and reused by later ones.
+public class NaturalSortBenchmark {
+    private static final int ENTRY_COUNT = 100_000;
+    private static final String[] PREFIXES = {"IMG_", "Holiday ", "Document (", "Émile ", "track ", "ångström-"};
+
+    private DirectoryListing listing;
+    private DirectoryListing listingWithKeys;
+    private long checksum;
+
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+
+        Random random = new Random(42);
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage/emulated/0/DCIM", ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            String name = PREFIXES[random.nextInt(PREFIXES.length)] + random.nextInt(ENTRY_COUNT) + ((i % 3 == 0) ? ".JPG" : ".jpg");
+            builder.add(DirectoryItemType.IMAGE, name, 0, 0, false);
+        }
+        listing = builder.build();
+
+        // Never sorted by name itself, copies of it start without keys
+        listingWithKeys = copy(listing);
+        SortDirectoryItemsUtil.sortIndices(listingWithKeys, SortType.NAME);
+    }
+
+
+    @Test
+    public void sortByName() throws Exception {
+        Benchmark.Result copyOnly = Benchmark.measure("Copy listing, " + ENTRY_COUNT + " names", () -> checksum += copy(listing).size());
+        Benchmark.Result comparator = Benchmark.measure("Folded compareTo(), " + ENTRY_COUNT + " names", this::sortWithFoldedComparator);
+        Benchmark.Result firstSort = Benchmark.measure("Copy, create keys and sort, " + ENTRY_COUNT + " names", () -> checksum += SortDirectoryItemsUtil.sortIndices(copy(listing), SortType.NAME)[0]);
+        Benchmark.Result cachedSort = Benchmark.measure("Sort with cached keys, " + ENTRY_COUNT + " names", () -> checksum += SortDirectoryItemsUtil.sortIndices(listingWithKeys, SortType.NAME)[0]);
+
+        System.out.println(String.format(
+                Locale.US,
+                "Folded compareTo() %.1f ms, natural keys %.1f ms on first sort and %.1f ms once created. Collections: %d, %d, %d",
+                comparator.getMedianNs() / 1e6,
+                (firstSort.getMedianNs() - copyOnly.getMedianNs()) / 1e6,
+                cachedSort.getMedianNs() / 1e6,
+                comparator.getGcCount(),
+                firstSort.getGcCount(),
+                cachedSort.getGcCount()
+        ));
+    }
+
+
+    private static DirectoryListing copy(DirectoryListing listing) {
+        return DirectoryListing.concat(listing.getDirectory(), Collections.singletonList(listing));
+    }
+
+    // Comparator replaced by the natural order keys, the tie-break is unchanged
+    private void sortWithFoldedComparator() {
+        Integer[] indices = new Integer[listing.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, (i1, i2) -> {
+            int result = listing.getFoldedName(i1).compareTo(listing.getFoldedName(i2));
+            if (result != 0) {
+                return result;
+            }
+            return listing.getName(i1).compareTo(listing.getName(i2));
+        });
+        checksum += indices[0];
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.filemanager.benchmark;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.SortType;
+import com.example.filemanager.util.SortDirectoryItemsUtil;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Crossovers behind the thresholds of SortDirectoryItemsUtil.sortIndices():
+// - merge sort versus radix sort by DATE, which is the same code path as SIZE,
+// - sequential versus parallel merge sort by NAME, measured on machines with more than one core.
+// On a single core the parallel sort is disabled, there the sequential times and the fork/join cost are
+// measured and the parallel time for two and four cores is estimated from them, see estimateParallelNs().
+public class SortBenchmark {
+    private static final int[] RADIX_SIZES = {100, 250, 500, 1000, 2000, 5000, 20_000, 100_000};
+    private static final int[] PARALLEL_SIZES = {2000, 5000, 8192, 10_000, 20_000, 50_000, 100_000, 500_000};
+    private static final String[] PREFIXES = {"IMG_", "Holiday ", "Document (", "Émile ", "track "};
+    // Same as the sort's own range below which it stops splitting
+    private static final int PARALLEL_SORT_MIN_RANGE = 4096;
+
+    private long checksum;
+
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Benchmark.isEnabled());
+    }
+
+    // Back to the defaults, other tests in the same JVM sort too
+    @After
+    public void tearDown() {
+        SortDirectoryItemsUtil.setRadixSortThreshold(1000);
+        SortDirectoryItemsUtil.setParallelSortThreshold(8192);
+    }
+
+
+    @Test
+    public void radixVersusMergeSort() throws Exception {
+        int crossover = -1;
+        for (int size : RADIX_SIZES) {
+            DirectoryListing listing = createListing(size);
+
+            SortDirectoryItemsUtil.setRadixSortThreshold(Integer.MAX_VALUE);
+            Benchmark.Result merge = Benchmark.measure("DATE merge sort, " + size, () -> sort(listing, SortType.DATE));
+            SortDirectoryItemsUtil.setRadixSortThreshold(0);
+            Benchmark.Result radix = Benchmark.measure("DATE radix sort, " + size, () -> sort(listing, SortType.DATE));
+
+            if (radix.getMedianNs() >= merge.getMedianNs()) {
+                crossover = -1;
+            } else if (crossover < 0) {
+                crossover = size;
+            }
+        }
+
+        System.out.println(String.format(Locale.US, "Radix sort is faster from %d entries on", crossover));
+    }
+
+    @Test
+    public void parallelVersusSequentialSort() throws Exception {
+        int processorCount = Runtime.getRuntime().availableProcessors();
+        long forkJoinNs = measureForkJoinNs();
+        int crossover = -1;
+        int estimatedCrossover2 = -1;
+        int estimatedCrossover4 = -1;
+
+        for (int size : PARALLEL_SIZES) {
+            DirectoryListing listing = createListing(size);
+            // Keys are created once per listing, the thresholds are about the sort itself
+            listing.getSortKey(0);
+
+            SortDirectoryItemsUtil.setParallelSortThreshold(Integer.MAX_VALUE);
+            Benchmark.Result sequential = Benchmark.measure("NAME sequential sort, " + size, () -> sort(listing, SortType.NAME));
+            long sequentialNs = sequential.getMedianNs();
+
+            if (processorCount > 1) {
+                SortDirectoryItemsUtil.setParallelSortThreshold(0);
+                Benchmark.Result parallel = Benchmark.measure("NAME parallel sort, " + processorCount + " cores, " + size, () -> sort(listing, SortType.NAME));
+                crossover = updateCrossover(crossover, size, parallel.getMedianNs() < sequentialNs);
+            }
+
+            long estimate2 = estimateParallelNs(sequentialNs, size, 2, forkJoinNs);
+            long estimate4 = estimateParallelNs(sequentialNs, size, 4, forkJoinNs);
+            System.out.println(String.format(Locale.US, "  estimated parallel sort, %d: %.3f ms on 2 cores, %.3f ms on 4 cores", size, estimate2 / 1e6, estimate4 / 1e6));
+            estimatedCrossover2 = updateCrossover(estimatedCrossover2, size, estimate2 < sequentialNs);
+            estimatedCrossover4 = updateCrossover(estimatedCrossover4, size, estimate4 < sequentialNs);
+        }
+
+        System.out.println(String.format(
+                Locale.US,
+                "%d cores, fork/join round trip %.3f ms. Parallel sort is faster from %s entries on, estimated from %d on 2 cores and %d on 4 cores",
+                processorCount,
+                forkJoinNs / 1e6,
+                (processorCount > 1) ? String.valueOf(crossover) : "(not measurable on one core)",
+                estimatedCrossover2,
+                estimatedCrossover4
+        ));
+    }
+
+
+    private void sort(DirectoryListing listing, SortType sortType) {
+        checksum += SortDirectoryItemsUtil.sortIndices(listing, sortType)[0];
+    }
+
+    private static int updateCrossover(int crossover, int size, boolean isFaster) {
+        if (!isFaster) {
+            return -1;
+        }
+        return (crossover < 0) ? size : crossover;
+    }
+
+    // Merge sort does log2(n) passes of equal cost. With p workers the lower passes run p at a time,
+    // the top log2(p) passes have 1, 2, 4... merges running side by side.
+    private static long estimateParallelNs(long sequentialNs, int size, int processorCount, long forkJoinNs) {
+        int leafCount = Math.max(1, Integer.highestOneBit(Math.max(1, size / PARALLEL_SORT_MIN_RANGE)));
+        int workerCount = Math.min(processorCount, leafCount);
+        double passCount = Math.log(size) / Math.log(2);
+        double topPassCount = Math.log(workerCount) / Math.log(2);
+        double passNs = sequentialNs / passCount;
+        double lowerPassesNs = (passCount - topPassCount) * passNs / workerCount;
+        double topPassesNs = passNs * (2 - 2.0 / workerCount);
+        return (long) (lowerPassesNs + topPassesNs) + forkJoinNs;
+    }
+
+    // Handing a sort to the pool and waiting for it, with no work in the tasks
+    private static long measureForkJoinNs() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return Benchmark.measure("Fork/join round trip, 32 tasks", 100, 1000, () -> pool.invoke(new EmptyTask(32))).getMedianNs();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static DirectoryListing createListing(int size) {
+        Random random = new Random(size);
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage/emulated/0/DCIM", size);
+        for (int i = 0; i < size; i++) {
+            String name = PREFIXES[random.nextInt(PREFIXES.length)] + random.nextInt(size) + ".jpg";
+            long lastModificationTime = 1_500_000_000_000L + (long) random.nextInt(Integer.MAX_VALUE) * 100;
+            builder.add(DirectoryItemType.IMAGE, name, lastModificationTime, random.nextInt(10_000_000), false);
+        }
+        return builder.build();
+    }
+
+
+    private static class EmptyTask extends RecursiveAction {
+        private final int leafCount;
+
+        EmptyTask(int leafCount) {
+            this.leafCount = leafCount;
+        }
+
+        @Override
+        protected void compute() {
+            if (leafCount > 1) {
+                invokeAll(new EmptyTask(leafCount / 2), new EmptyTask(leafCount / 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.filemanager.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryListingTest {
+
+    @Test
+    public void keepsBuiltListingWhenBuilderIsReused() {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage", 2)
+                .add(DirectoryItemType.TEXT, "a.txt", 1, 10, false)
+                .add(DirectoryItemType.DIRECTORY, ".b", 2, 20, true);
+        DirectoryListing first = builder.build();
+
+        builder.add(DirectoryItemType.IMAGE, "c.jpg", 3, 30, false);
+        DirectoryListing second = builder.build();
+
+        assertEquals(2, first.size());
+        assertEquals("a.txt", first.getName(0));
+        assertEquals(".b", first.getName(1));
+        assertTrue(first.isHidden(1));
+        assertEquals(3, second.size());
+        assertEquals("c.jpg", second.getName(2));
+        assertEquals(30, second.getFileSize(2));
+        assertFalse(second.isHidden(2));
+    }
+
+    @Test
+    public void concatenatesChunksInOrder() {
+        DirectoryListing first = new DirectoryListing.Builder("/storage", 0)
+                .add(DirectoryItemType.TEXT, "a.txt", 0, 0, false)
+                .build();
+        DirectoryListing second = new DirectoryListing.Builder("/storage", 0)
+                .add(DirectoryItemType.TEXT, ".b.txt", 0, 0, true)
+                .add(DirectoryItemType.TEXT, "c.txt", 0, 0, false)
+                .build();
+
+        DirectoryListing listing = DirectoryListing.concat("/storage", Arrays.asList(first, second));
+
+        assertEquals(3, listing.size());
+        assertEquals("a.txt", listing.getName(0));
+        assertEquals(".b.txt", listing.getName(1));
+        assertTrue(listing.isHidden(1));
+        assertEquals("/storage/c.txt", listing.get(2).getFilePath());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.filemanager.repository.directory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FolderSizeCacheTest {
+    private File file;
+
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("folder_sizes", null);
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+
+    @Test
+    public void keepsEntriesAcrossReopening() {
+        FolderSizeCache cache = new FolderSizeCache(file);
+        cache.put("/storage/DCIM", new FolderSizeCache.Entry(1000, 4096, 3, new String[]{"Camera", "Screenshots"}));
+        cache.close();
+
+        FolderSizeCache.Entry entry = new FolderSizeCache(file).get("/storage/DCIM", 1000);
+        assertNotNull(entry);
+        assertEquals(4096, entry.getFilesSize());
+        assertEquals(3, entry.getFileCount());
+        assertArrayEquals(new String[]{"Camera", "Screenshots"}, entry.getSubdirectories());
+    }
+
+    @Test
+    public void ignoresEntryOfModifiedFolder() {
+        FolderSizeCache cache = new FolderSizeCache(file);
+        cache.put("/storage/DCIM", new FolderSizeCache.Entry(1000, 4096, 3, new String[0]));
+
+        assertNull(cache.get("/storage/DCIM", 2000));
+    }
+
+    @Test
+    public void dropsTruncatedSubfolderList() throws IOException {
+        FolderSizeCache cache = new FolderSizeCache(file);
+        cache.put("/storage/Music", new FolderSizeCache.Entry(1000, 10, 1, new String[0]));
+        cache.put("/storage/DCIM", new FolderSizeCache.Entry(1000, 4096, 3, new String[]{"Camera", "Screenshots"}));
+        cache.close();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 5);
+        }
+
+        FolderSizeCache reopened = new FolderSizeCache(file);
+        assertNotNull(reopened.get("/storage/Music", 1000));
+        assertNull(reopened.get("/storage/DCIM", 1000));
+    }
+
+    @Test
+    public void rejectsNegativeSubfolderCount() throws IOException {
+        writeRecordWithSubfolderCount(-1);
+
+        assertNull(new FolderSizeCache(file).get("/storage/DCIM", 1000));
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void rejectsSubfolderCountLongerThanLog() throws IOException {
+        // Would allocate an 8 GB array if trusted
+        writeRecordWithSubfolderCount(Integer.MAX_VALUE);
+
+        assertNull(new FolderSizeCache(file).get("/storage/DCIM", 1000));
+        assertEquals(0, file.length());
+    }
+
+
+    private void writeRecordWithSubfolderCount(int count) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeUTF("/storage/DCIM");
+            output.writeLong(1000);
+            output.writeLong(4096);
+            output.writeLong(3);
+            output.writeInt(count);
+            output.writeUTF("Camera");
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryChange;
+import com.example.filemanager.model.DirectoryChangeType;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.SortType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class DirectoryChangesUtilTest {
+    private static final String DIRECTORY = "/storage/emulated/0/Download";
+    private static final DirectoryItemType[] TYPES = {DirectoryItemType.TEXT, DirectoryItemType.IMAGE, DirectoryItemType.DIRECTORY};
+
+    private int nextNameNumber;
+
+
+    @Test
+    public void appliesAddedRemovedAndModifiedEntries() {
+        DirectoryListing listing = new DirectoryListing.Builder(DIRECTORY, 3)
+                .add(DirectoryItemType.TEXT, "a.txt", 1, 10, false)
+                .add(DirectoryItemType.TEXT, "b.txt", 2, 20, false)
+                .add(DirectoryItemType.TEXT, "c.txt", 3, 30, false)
+                .build();
+        List<DirectoryChange> changes = new ArrayList<>();
+        changes.add(removed("a.txt"));
+        changes.add(added(createItem("d.txt", 4, 40)));
+        changes.add(modified(createItem("b.txt", 5, 50)));
+
+        DirectoryListing result = DirectoryChangesUtil.applyChanges(listing, changes);
+
+        assertEquals(3, result.size());
+        assertEquals("c.txt", result.getName(0));
+        assertEquals("d.txt", result.getName(1));
+        assertEquals("b.txt", result.getName(2));
+        assertEquals(50, result.getFileSize(2));
+    }
+
+    @Test
+    public void lastChangeOfFileWins() {
+        DirectoryListing listing = new DirectoryListing.Builder(DIRECTORY, 1)
+                .add(DirectoryItemType.TEXT, "a.txt", 1, 10, false)
+                .build();
+        List<DirectoryChange> changes = new ArrayList<>();
+        changes.add(modified(createItem("a.txt", 2, 20)));
+        changes.add(removed("a.txt"));
+
+        assertEquals(0, DirectoryChangesUtil.applyChanges(listing, changes).size());
+    }
+
+    // The permutations carried over from the previous listing must be exactly what sorting the new one gives,
+    // including the order of entries with equal keys
+    @Test
+    public void updatesCachedPermutationsLikeSortingAgain() {
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            DirectoryListing listing = createListing(random, 1 + random.nextInt(300));
+            cacheAllPermutations(listing);
+
+            for (int batch = 0; batch < 5; batch++) {
+                DirectoryListing result = DirectoryChangesUtil.applyChanges(listing, createChanges(random, listing));
+                DirectoryListing copy = DirectoryListing.concat(DIRECTORY, Collections.singletonList(result));
+
+                for (SortType sortType : SortType.values()) {
+                    for (boolean isDescending : new boolean[]{false, true}) {
+                        assertEquals(
+                                "Iteration " + iteration + ", batch " + batch + ", " + sortType + (isDescending ? " descending" : ""),
+                                getNames(copy, copy.getSortedIndices(sortType, isDescending)),
+                                getNames(result, result.getSortedIndices(sortType, isDescending))
+                        );
+                    }
+                }
+                listing = result;
+            }
+        }
+    }
+
+
+    @NonNull
+    private DirectoryListing createListing(@NonNull Random random, int size) {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder(DIRECTORY, size);
+        for (int i = 0; i < size; i++) {
+            DirectoryItem item = createRandomItem(random, nextName(random));
+            builder.add(item.getType(), item.getName(), item.getLastModificationTime(), item.getFileSizeInBytes(), item.isHidden());
+        }
+        return builder.build();
+    }
+
+    // Inserts, deletes, modifications and renames, which are a delete and an insert
+    @NonNull
+    private List<DirectoryChange> createChanges(@NonNull Random random, @NonNull DirectoryListing listing) {
+        List<DirectoryChange> changes = new ArrayList<>();
+        int changeCount = 1 + random.nextInt(10);
+        for (int i = 0; i < changeCount; i++) {
+            String existingName = (listing.size() > 0) ? listing.getName(random.nextInt(listing.size())) : null;
+            int operation = (existingName != null) ? random.nextInt(4) : 0;
+            switch (operation) {
+                case 0:
+                    changes.add(added(createRandomItem(random, nextName(random))));
+                    break;
+                case 1:
+                    changes.add(removed(existingName));
+                    break;
+                case 2:
+                    changes.add(modified(createRandomItem(random, existingName)));
+                    break;
+                default:
+                    changes.add(removed(existingName));
+                    changes.add(added(createRandomItem(random, nextName(random))));
+                    break;
+            }
+        }
+        return changes;
+    }
+
+    private static void cacheAllPermutations(@NonNull DirectoryListing listing) {
+        for (SortType sortType : SortType.values()) {
+            listing.getSortedIndices(sortType, false);
+            listing.getSortedIndices(sortType, true);
+        }
+    }
+
+    // Few distinct dates, sizes and name stems, so many entries compare equal
+    @NonNull
+    private static DirectoryItem createRandomItem(@NonNull Random random, @NonNull String name) {
+        DirectoryItemType type = TYPES[random.nextInt(TYPES.length)];
+        return new DirectoryItem(type, name, DIRECTORY + "/" + name, random.nextInt(5) * 1000L, random.nextInt(4) * 100L, false);
+    }
+
+    @NonNull
+    private String nextName(@NonNull Random random) {
+        String[] stems = {"img", "IMG", "Img", "notes", "track "};
+        return stems[random.nextInt(stems.length)] + (nextNameNumber++ % 7) + "_" + nextNameNumber;
+    }
+
+    @NonNull
+    private static DirectoryItem createItem(@NonNull String name, long lastModificationTime, long fileSize) {
+        return new DirectoryItem(DirectoryItemType.TEXT, name, DIRECTORY + "/" + name, lastModificationTime, fileSize, false);
+    }
+
+    @NonNull
+    private static DirectoryChange added(@NonNull DirectoryItem item) {
+        return new DirectoryChange(DirectoryChangeType.ADDED, item.getFilePath(), item);
+    }
+
+    @NonNull
+    private static DirectoryChange modified(@NonNull DirectoryItem item) {
+        return new DirectoryChange(DirectoryChangeType.MODIFIED, item.getFilePath(), item);
+    }
+
+    @NonNull
+    private static DirectoryChange removed(@NonNull String name) {
+        return new DirectoryChange(DirectoryChangeType.REMOVED, DIRECTORY + "/" + name, null);
+    }
+
+    @NonNull
+    private static List<String> getNames(@NonNull DirectoryListing listing, @NonNull int[] indices) {
+        List<String> names = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            names.add(listing.getName(index));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.example.filemanager.model.DirectoryChange;
+import com.example.filemanager.model.DirectoryChangeType;
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.model.ListChange;
+import com.example.filemanager.model.SortType;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryContentDiffUtilTest {
+    private static final String DIRECTORY = "/storage/emulated/0/Download";
+
+
+    @Test
+    public void reportsInsertedRemovedAndChangedRanges() {
+        DirectoryListing listing = createListing("a", "b", "c", "d", "e");
+        List<DirectoryChange> changes = Arrays.asList(removed("b"), removed("c"), added(createItem("f", 0)), modified(createItem("e", 0)));
+
+        List<ListChange> result = computeChanges(listing, changes, SortType.NAME, false);
+
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertRange(result.get(0), ListChange.Type.REMOVED, 1, 2);
+        assertRange(result.get(1), ListChange.Type.INSERTED, 3, 1);
+        assertRange(result.get(2), ListChange.Type.CHANGED, 2, 1);
+    }
+
+    @Test
+    public void returnsNullWhenUnchangedEntriesMoved() {
+        DirectoryListing listing = createListing("a", "b", "c");
+        DirectoryListingView previous = SortDirectoryItemsUtil.sort(DirectoryListingView.of(listing), SortType.NAME, false);
+        DirectoryListingView current = SortDirectoryItemsUtil.sort(DirectoryListingView.of(listing), SortType.NAME, true);
+
+        assertNull(DirectoryContentDiffUtil.computeChanges(previous, current, Collections.singleton("b")));
+    }
+
+    @Test
+    public void returnsNullForMoreChangesThanRefreshCosts() {
+        List<String> names = new ArrayList<>();
+        List<DirectoryChange> changes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            names.add("file" + i);
+            changes.add(removed("file" + i));
+        }
+
+        assertNull(computeChanges(createListing(names.toArray(new String[0])), changes, SortType.NAME, false));
+    }
+
+    // RecyclerView applies the ranges one after another, replaying them must turn the old list into the new one
+    @Test
+    public void rangesTurnPreviousIntoCurrent() {
+        Random random = new Random(7);
+        int comparedCount = 0;
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            int size = random.nextInt(60);
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++) {
+                names[i] = "file" + i;
+            }
+            DirectoryListing listing = createListing(random, names);
+            SortType sortType = SortType.values()[random.nextInt(SortType.values().length)];
+            boolean isDescending = random.nextBoolean();
+
+            List<DirectoryChange> changes = new ArrayList<>();
+            int changeCount = 1 + random.nextInt(8);
+            for (int i = 0; i < changeCount; i++) {
+                String existingName = (size > 0) ? names[random.nextInt(size)] : null;
+                int operation = (existingName != null) ? random.nextInt(4) : 0;
+                if (operation == 0 || operation == 3) {
+                    changes.add(added(createItem("new" + iteration + "_" + i, random.nextInt(5))));
+                }
+                if (operation == 1 || operation == 3) {
+                    changes.add(removed(existingName));
+                }
+                if (operation == 2) {
+                    changes.add(modified(createItem(existingName, random.nextInt(5))));
+                }
+            }
+
+            DirectoryListingView previous = SortDirectoryItemsUtil.sort(DirectoryListingView.of(listing), sortType, isDescending);
+            DirectoryListingView current = SortDirectoryItemsUtil.sort(DirectoryListingView.of(DirectoryChangesUtil.applyChanges(listing, changes)), sortType, isDescending);
+            List<ListChange> result = DirectoryContentDiffUtil.computeChanges(previous, current, getChangedNames(changes));
+            if (result == null) {
+                continue;
+            }
+
+            assertEquals("Iteration " + iteration, getNames(current), replay(getNames(previous), getNames(current), result));
+            comparedCount++;
+        }
+
+        // Most batches keep unchanged entries in place and get ranges
+        assertTrue(comparedCount > 500);
+    }
+
+
+    @NonNull
+    private static List<String> replay(@NonNull List<String> previous, @NonNull List<String> current, @NonNull List<ListChange> changes) {
+        List<String> result = new ArrayList<>(previous);
+        for (ListChange change : changes) {
+            int end = change.getPosition() + change.getCount();
+            switch (change.getType()) {
+                case REMOVED:
+                    assertTrue(end <= result.size());
+                    result.subList(change.getPosition(), end).clear();
+                    break;
+                case INSERTED:
+                    assertTrue(change.getPosition() <= result.size());
+                    result.addAll(change.getPosition(), current.subList(change.getPosition(), end));
+                    break;
+                case CHANGED:
+                    assertTrue(end <= result.size());
+                    for (int i = change.getPosition(); i < end; i++) {
+                        result.set(i, current.get(i));
+                    }
+                    break;
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static List<ListChange> computeChanges(@NonNull DirectoryListing listing, @NonNull List<DirectoryChange> changes, @NonNull SortType sortType, boolean isDescending) {
+        DirectoryListingView previous = SortDirectoryItemsUtil.sort(DirectoryListingView.of(listing), sortType, isDescending);
+        DirectoryListingView current = SortDirectoryItemsUtil.sort(DirectoryListingView.of(DirectoryChangesUtil.applyChanges(listing, changes)), sortType, isDescending);
+        return DirectoryContentDiffUtil.computeChanges(previous, current, getChangedNames(changes));
+    }
+
+    @NonNull
+    private static Set<String> getChangedNames(@NonNull List<DirectoryChange> changes) {
+        Set<String> names = new HashSet<>();
+        for (DirectoryChange change : changes) {
+            names.add(new File(change.getFilePath()).getName());
+        }
+        return names;
+    }
+
+    @NonNull
+    private static DirectoryListing createListing(@NonNull String... names) {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder(DIRECTORY, names.length);
+        for (String name : names) {
+            builder.add(DirectoryItemType.TEXT, name, 0, 0, false);
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    private static DirectoryListing createListing(@NonNull Random random, @NonNull String[] names) {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder(DIRECTORY, names.length);
+        for (String name : names) {
+            builder.add(DirectoryItemType.TEXT, name, random.nextInt(5), random.nextInt(3), false);
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    private static DirectoryItem createItem(@NonNull String name, long lastModificationTime) {
+        return new DirectoryItem(DirectoryItemType.TEXT, name, DIRECTORY + "/" + name, lastModificationTime, 0, false);
+    }
+
+    @NonNull
+    private static DirectoryChange added(@NonNull DirectoryItem item) {
+        return new DirectoryChange(DirectoryChangeType.ADDED, item.getFilePath(), item);
+    }
+
+    @NonNull
+    private static DirectoryChange modified(@NonNull DirectoryItem item) {
+        return new DirectoryChange(DirectoryChangeType.MODIFIED, item.getFilePath(), item);
+    }
+
+    @NonNull
+    private static DirectoryChange removed(@NonNull String name) {
+        return new DirectoryChange(DirectoryChangeType.REMOVED, DIRECTORY + "/" + name, null);
+    }
+
+    @NonNull
+    private static List<String> getNames(@NonNull List<DirectoryItem> items) {
+        List<String> names = new ArrayList<>(items.size());
+        for (DirectoryItem item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+
+    private static void assertRange(@NonNull ListChange change, @NonNull ListChange.Type type, int position, int count) {
+        assertEquals(type, change.getType());
+        assertEquals(position, change.getPosition());
+        assertEquals(count, change.getCount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.filemanager.util;
+
+import com.example.filemanager.model.DirectoryItemType;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class DirectoryItemTypeUtilTest {
+
+    @Test
+    public void classifiesByLastExtension() {
+        assertEquals(DirectoryItemType.IMAGE, getType("photo.jpg"));
+        assertEquals(DirectoryItemType.ARCHIVE, getType("backup.tar.gz"));
+        assertEquals(DirectoryItemType.TEXT, getType("gradle.properties"));
+        assertEquals(DirectoryItemType.VIDEO, getType("clip.3gp"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        assertEquals(DirectoryItemType.IMAGE, getType("PHOTO.JPG"));
+        assertEquals(DirectoryItemType.AUDIO, getType("song.Mp3"));
+        assertEquals(DirectoryItemType.ARCHIVE, getType("old.Z"));
+    }
+
+    // URL parsing used to send these to OTHER
+    @Test
+    public void classifiesNamesWithSpacesAndNonAsciiCharacters() {
+        assertEquals(DirectoryItemType.IMAGE, getType("holiday photo.png"));
+        assertEquals(DirectoryItemType.TEXT, getType("résumé.pdf"));
+        assertEquals(DirectoryItemType.AUDIO, getType("песня #1.ogg"));
+    }
+
+    @Test
+    public void classifiesUnknownOrMissingExtensionsAsOther() {
+        assertEquals(DirectoryItemType.OTHER, getType("README"));
+        assertEquals(DirectoryItemType.OTHER, getType("name."));
+        assertEquals(DirectoryItemType.OTHER, getType("file.unknown"));
+        assertEquals(DirectoryItemType.OTHER, getType("file.jp g"));
+        assertEquals(DirectoryItemType.OTHER, getType("file.jpé"));
+        // Only a suffix of a known extension
+        assertEquals(DirectoryItemType.OTHER, getType("file.pg"));
+        // A known extension followed by more characters
+        assertEquals(DirectoryItemType.OTHER, getType("file.jpgx"));
+    }
+
+    @Test
+    public void classifiesDirectoriesRegardlessOfName() {
+        assertEquals(DirectoryItemType.DIRECTORY, DirectoryItemTypeUtil.getDirectoryItemType("photos.jpg", true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsExtensionsItCannotStore() {
+        new FileExtensionClassifier(Collections.singletonMap("tar.gz", DirectoryItemType.ARCHIVE));
+    }
+
+
+    private static DirectoryItemType getType(String fileName) {
+        return DirectoryItemTypeUtil.getDirectoryItemType(fileName, false);
+    }
+}
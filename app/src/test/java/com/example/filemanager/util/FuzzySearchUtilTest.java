@@ -0,0 +1,88 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzySearchUtilTest {
+
+    @Test
+    public void matchesSubsequences() {
+        assertNotEquals(FuzzySearchUtil.NO_MATCH, FuzzySearchUtil.score("invoice_2023.pdf", "ivc2023"));
+        assertEquals(FuzzySearchUtil.NO_MATCH, FuzzySearchUtil.score("invoice_2023.pdf", "xyz"));
+    }
+
+    @Test
+    public void allowsOneTypoInLongerQueries() {
+        assertNotEquals(FuzzySearchUtil.NO_MATCH, FuzzySearchUtil.score("holiday.jpg", "holxday"));
+        assertEquals(FuzzySearchUtil.NO_MATCH, FuzzySearchUtil.score("holiday.jpg", "hoxxday"));
+        // Too short to tell a typo from a different word
+        assertEquals(FuzzySearchUtil.NO_MATCH, FuzzySearchUtil.score("holiday.jpg", "hox"));
+    }
+
+    @Test
+    public void prefersWordStartsAndConsecutiveMatches() {
+        assertTrue(FuzzySearchUtil.score("my report.pdf", "rep") > FuzzySearchUtil.score("prepare.pdf", "rep"));
+        assertTrue(FuzzySearchUtil.score("report.pdf", "rep") > FuzzySearchUtil.score("r_e_p.pdf", "rep"));
+    }
+
+    @Test
+    public void prefersShorterNamesOtherwise() {
+        assertTrue(FuzzySearchUtil.score("notes.txt", "notes") > FuzzySearchUtil.score("notes and drafts from last year.txt", "notes"));
+    }
+
+    @Test
+    public void keepsBestMatchesOrderedByScore() {
+        DirectoryListing listing = createListing(
+                "prepare.pdf",
+                "unrelated.txt",
+                "report.pdf",
+                "r_e_p.pdf",
+                "my report.pdf"
+        );
+
+        List<String> names = getNames(FuzzySearchUtil.search(DirectoryListingView.of(listing), "rep", 2));
+
+        assertEquals(Arrays.asList("report.pdf", "my report.pdf"), names);
+    }
+
+    @Test
+    public void keepsListingOrderForEqualScores() {
+        DirectoryListing listing = createListing("b.txt", "a.txt", "c.txt");
+
+        List<String> names = getNames(FuzzySearchUtil.search(DirectoryListingView.of(listing), "txt", 10));
+
+        assertEquals(Arrays.asList("b.txt", "a.txt", "c.txt"), names);
+    }
+
+
+    @NonNull
+    private static DirectoryListing createListing(@NonNull String... names) {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage", names.length);
+        for (String name : names) {
+            builder.add(DirectoryItemType.OTHER, name, 0, 0, false);
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    private static List<String> getNames(@NonNull DirectoryListingView items) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            names.add(items.get(i).getName());
+        }
+        return names;
+    }
+}
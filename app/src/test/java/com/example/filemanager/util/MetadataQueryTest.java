@@ -0,0 +1,147 @@
+package com.example.filemanager.util;
+
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.exception.InvalidSearchQueryException;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetadataQueryTest {
+    private static final long MB = 1024 * 1024;
+
+
+    @Test
+    public void returnsNullWithoutMetadataFilters() {
+        assertNull(MetadataQuery.parse("holiday photos"));
+        assertNull(MetadataQuery.parse("   "));
+        assertNull(MetadataQuery.parse("size>lots"));
+        assertNull(MetadataQuery.parse("color:red"));
+    }
+
+    @Test
+    public void parsesTypeFilter() {
+        MetadataQuery query = parse("type:video");
+        assertTrue(query.matches("movie.mkv", DirectoryItemType.VIDEO, 0, 0));
+        assertFalse(query.matches("song.mp3", DirectoryItemType.AUDIO, 0, 0));
+
+        MetadataQuery folderQuery = parse("TYPE:Folder");
+        assertTrue(folderQuery.matches("music", DirectoryItemType.DIRECTORY, 0, 0));
+    }
+
+    @Test
+    public void treatsUnknownOrComparedTypeAsWord() {
+        assertNull(MetadataQuery.parse("type:spreadsheet"));
+        assertNull(MetadataQuery.parse("type>video"));
+    }
+
+    @Test
+    public void parsesSizeUnitsAndComparisons() {
+        MetadataQuery query = parse("size>500MB");
+        assertTrue(query.matches("a", DirectoryItemType.VIDEO, 0, 501 * MB));
+        assertFalse(query.matches("a", DirectoryItemType.VIDEO, 0, 500 * MB));
+
+        MetadataQuery fractionQuery = parse("size<=1.5k");
+        assertTrue(fractionQuery.matches("a", DirectoryItemType.TEXT, 0, 1536));
+        assertFalse(fractionQuery.matches("a", DirectoryItemType.TEXT, 0, 1537));
+
+        MetadataQuery exactQuery = parse("size=10");
+        assertTrue(exactQuery.matches("a", DirectoryItemType.TEXT, 0, 10));
+        assertFalse(exactQuery.matches("a", DirectoryItemType.TEXT, 0, 11));
+    }
+
+    @Test
+    public void sizeFilterSkipsDirectories() {
+        assertFalse(parse("size>=0").matches("music", DirectoryItemType.DIRECTORY, 0, 4096));
+    }
+
+    @Test
+    public void parsesAgeAsRecency() {
+        long now = System.currentTimeMillis();
+        MetadataQuery query = parse("modified<30d");
+        assertTrue(query.matches("a", DirectoryItemType.TEXT, now - TimeUnit.DAYS.toMillis(29), 0));
+        assertFalse(query.matches("a", DirectoryItemType.TEXT, now - TimeUnit.DAYS.toMillis(31), 0));
+
+        MetadataQuery olderQuery = parse("modified>2w");
+        assertTrue(olderQuery.matches("a", DirectoryItemType.TEXT, now - TimeUnit.DAYS.toMillis(15), 0));
+        assertFalse(olderQuery.matches("a", DirectoryItemType.TEXT, now - TimeUnit.DAYS.toMillis(13), 0));
+    }
+
+    @Test
+    public void parsesDayAsWholeDay() throws Exception {
+        long dayStart = new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse("2023-01-31").getTime();
+        long dayEnd = dayStart + TimeUnit.DAYS.toMillis(1);
+
+        MetadataQuery onQuery = parse("modified:2023-01-31");
+        assertTrue(onQuery.matches("a", DirectoryItemType.TEXT, dayStart, 0));
+        assertTrue(onQuery.matches("a", DirectoryItemType.TEXT, dayEnd - 1, 0));
+        assertFalse(onQuery.matches("a", DirectoryItemType.TEXT, dayEnd, 0));
+
+        MetadataQuery afterQuery = parse("modified>2023-01-31");
+        assertFalse(afterQuery.matches("a", DirectoryItemType.TEXT, dayEnd - 1, 0));
+        assertTrue(afterQuery.matches("a", DirectoryItemType.TEXT, dayEnd, 0));
+
+        MetadataQuery untilQuery = parse("modified<=2023-01-31");
+        assertTrue(untilQuery.matches("a", DirectoryItemType.TEXT, dayEnd - 1, 0));
+        assertFalse(untilQuery.matches("a", DirectoryItemType.TEXT, dayEnd, 0));
+    }
+
+    @Test
+    public void treatsInvalidDayAsWord() {
+        assertNull(MetadataQuery.parse("modified:2023-02-30"));
+    }
+
+    @Test
+    public void parsesNameSubstringAndGlob() {
+        MetadataQuery query = parse("name:Café");
+        assertTrue(query.matchesUnfolded("Le Café.txt", DirectoryItemType.TEXT, 0, 0));
+        assertFalse(query.matchesUnfolded("tea.txt", DirectoryItemType.TEXT, 0, 0));
+
+        MetadataQuery globQuery = parse("name:*.MKV");
+        assertTrue(globQuery.matches("movie.mkv", DirectoryItemType.VIDEO, 0, 0));
+        assertFalse(globQuery.matches("movie.mkv.part", DirectoryItemType.VIDEO, 0, 0));
+        assertTrue(parse("name:clip?.mp4").matches("clip1.mp4", DirectoryItemType.VIDEO, 0, 0));
+    }
+
+    @Test(expected = InvalidSearchQueryException.class)
+    public void rejectsComparisonOnName() {
+        MetadataQuery.parse("name>a");
+    }
+
+    @Test(expected = InvalidSearchQueryException.class)
+    public void rejectsComparisonOnNameAmongOtherFilters() {
+        MetadataQuery.parse("type:video name<=m");
+    }
+
+    @Test
+    public void combinesFiltersWithWords() {
+        MetadataQuery query = parse("type:video holiday size>1mb");
+        assertTrue(query.matchesUnfolded("Holiday 2019.mkv", DirectoryItemType.VIDEO, 0, 2 * MB));
+        assertFalse(query.matchesUnfolded("Holiday 2019.mkv", DirectoryItemType.VIDEO, 0, MB / 2));
+        assertFalse(query.matchesUnfolded("Birthday.mkv", DirectoryItemType.VIDEO, 0, 2 * MB));
+        assertFalse(query.matchesUnfolded("Holiday.txt", DirectoryItemType.TEXT, 0, 2 * MB));
+    }
+
+    @Test
+    public void matchesUnfoldedLikeFolded() {
+        MetadataQuery query = parse("modified<1d name:ANGS*");
+        long now = System.currentTimeMillis();
+        String name = "Ångström.txt";
+        assertTrue(query.matchesUnfolded(name, DirectoryItemType.TEXT, now, 0));
+        assertTrue(query.matches(NameFoldingUtil.fold(name), DirectoryItemType.TEXT, now, 0));
+    }
+
+
+    private static MetadataQuery parse(String query) {
+        MetadataQuery result = MetadataQuery.parse(query);
+        assertNotNull(result);
+        return result;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.filemanager.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NaturalSortKeyUtilTest {
+    private Locale defaultLocale;
+
+
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+
+    @Test
+    public void sortsNumbersByValue() {
+        assertOrder("img_2.jpg", "IMG_9.jpg", "img_10.jpg", "IMG_100.jpg");
+        assertOrder("1", "2", "10", "99", "100", "1000");
+    }
+
+    @Test
+    public void ignoresLeadingZeros() {
+        assertEquals(0, compare("track 007", "track 7"));
+        assertOrder("track 07", "track 8", "track 010");
+    }
+
+    @Test
+    public void sortsNumbersBeforeText() {
+        assertOrder("2019", "a", "b");
+        assertOrder("file", "file1", "file a");
+    }
+
+    @Test
+    public void keepsNumbersLongerThanMaxDigitCountOrdered() {
+        StringBuilder longNumber = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longNumber.append('9');
+        }
+        assertOrder("1", "9" + longNumber.substring(1, 200), longNumber.toString() + "x");
+    }
+
+    @Test
+    public void ignoresCaseAndAccents() {
+        assertEquals(0, compare("Readme", "README"));
+        assertEquals(0, compare("cafe", "Café"));
+        assertOrder("apple", "Banana", "cherry");
+    }
+
+    @Test
+    public void sortsShorterTextFirst() {
+        assertOrder("", "a", "ab", "abc");
+        assertOrder("notes", "notes 2", "notes.txt");
+    }
+
+    // Collation keys contain 0x00, in Java as the high byte of most weights. Escaped, the only 0x00 bytes
+    // of a text run's key are the END marks, so a shorter run still ends before a longer one continues.
+    @Test
+    public void escapesZeroBytesOfCollationKeys() {
+        for (String name : Arrays.asList("a", "ab", "ø", "Đứng", "日本語")) {
+            byte[] key = NaturalSortKeyUtil.createSortKey(name);
+            assertEquals(0x02, key[0]);
+            assertEquals(0x00, key[key.length - 2]);
+            assertEquals(0x00, key[key.length - 1]);
+            for (int i = 1; i < key.length - 2; i++) {
+                assertTrue(name + " has a zero byte at " + i, key[i] != 0x00);
+            }
+        }
+    }
+
+    // Names the collator considers equal, e.g. differing only by ignorable spaces, are left to the tie-break
+    @Test
+    public void ordersTextLikeCollator() {
+        Collator collator = Collator.getInstance(Locale.US);
+        collator.setStrength(Collator.PRIMARY);
+        String alphabet = "aAbBzZ é.-_~øªĐ";
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            String first = randomText(random, alphabet);
+            String second = randomText(random, alphabet);
+            int expected = Integer.signum(collator.compare(first, second));
+            if (expected == 0) {
+                continue;
+            }
+            int actual = Integer.signum(compare(first, second));
+            assertEquals("\"" + first + "\" vs \"" + second + "\"", expected, actual);
+        }
+    }
+
+    @Test
+    public void createsSameKeyForSameName() {
+        assertArrayEquals(NaturalSortKeyUtil.createSortKey("IMG_0042.JPG"), NaturalSortKeyUtil.createSortKey("IMG_0042.JPG"));
+    }
+
+    @Test
+    public void sortsByLocaleOfThread() throws Exception {
+        // In Swedish "ö" is a letter after "z", elsewhere it is an "o" with an accent
+        List<String> english = sortInNewThread(Locale.US, "zebra", "öl", "oak");
+        List<String> swedish = sortInNewThread(new Locale("sv", "SE"), "zebra", "öl", "oak");
+
+        assertEquals(Arrays.asList("oak", "öl", "zebra"), english);
+        assertEquals(Arrays.asList("oak", "zebra", "öl"), swedish);
+    }
+
+
+    private static int compare(String first, String second) {
+        return NaturalSortKeyUtil.compare(NaturalSortKeyUtil.createSortKey(first), NaturalSortKeyUtil.createSortKey(second));
+    }
+
+    private static void assertOrder(String... names) {
+        for (int i = 0; i < names.length - 1; i++) {
+            assertTrue("\"" + names[i] + "\" < \"" + names[i + 1] + "\"", compare(names[i], names[i + 1]) < 0);
+            assertTrue("\"" + names[i + 1] + "\" > \"" + names[i] + "\"", compare(names[i + 1], names[i]) > 0);
+        }
+    }
+
+    private static String randomText(Random random, String alphabet) {
+        int length = random.nextInt(6);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    // Key builders are per thread and take the locale they were created with
+    private static List<String> sortInNewThread(Locale locale, String... names) throws Exception {
+        Locale.setDefault(locale);
+        AtomicReference<List<String>> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            List<String> sorted = new ArrayList<>(Arrays.asList(names));
+            Collections.sort(sorted, (first, second) -> compare(first, second));
+            result.set(sorted);
+        });
+        thread.start();
+        thread.join();
+        Locale.setDefault(Locale.US);
+        return result.get();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SearchDirectoryItemsUtilTest {
+    private DirectoryListing listing = new DirectoryListing.Builder("/storage", 0)
+            .add(DirectoryItemType.IMAGE, "Café.JPG", 0, 0, false)
+            .add(DirectoryItemType.TEXT, "cafeteria menu.txt", 0, 0, false)
+            .add(DirectoryItemType.TEXT, "NOTES.txt", 0, 0, false)
+            .add(DirectoryItemType.DIRECTORY, "Ångström", 0, 0, false)
+            .build();
+
+
+    @Test
+    public void foldsCaseAndDiacritics() {
+        assertEquals("cafe.jpg", NameFoldingUtil.fold("Café.JPG"));
+        assertEquals("angstrom", NameFoldingUtil.fold("Ångström"));
+    }
+
+    @Test
+    public void keepsAlreadyFoldedNames() {
+        String name = "notes.txt";
+        assertSame(name, NameFoldingUtil.fold(name));
+    }
+
+    @Test
+    public void matchesIgnoringCaseAndDiacritics() {
+        assertEquals(Arrays.asList("Café.JPG", "cafeteria menu.txt"), search("CAFE"));
+        assertEquals(Arrays.asList("Café.JPG", "cafeteria menu.txt"), search("café"));
+        assertEquals(Collections.singletonList("Ångström"), search("angs"));
+        assertEquals(Collections.singletonList("NOTES.txt"), search("notes."));
+    }
+
+    @Test
+    public void matchesItemListsLikeListings() {
+        List<String> names = new ArrayList<>();
+        for (DirectoryItem item : SearchDirectoryItemsUtil.searchDirectoryItems(new ArrayList<DirectoryItem>(listing), "CAFE")) {
+            names.add(item.getName());
+        }
+        assertEquals(search("CAFE"), names);
+    }
+
+    @Test
+    public void returnsAllItemsForEmptyQuery() {
+        DirectoryListingView items = DirectoryListingView.of(listing);
+        assertSame(items, SearchDirectoryItemsUtil.searchDirectoryItems(items, ""));
+    }
+
+
+    @NonNull
+    private List<String> search(@NonNull String query) {
+        DirectoryListingView result = SearchDirectoryItemsUtil.searchDirectoryItems(DirectoryListingView.of(listing), query);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < result.size(); i++) {
+            names.add(listing.getName(result.getListingIndex(i)));
+        }
+        return names;
+    }
+}
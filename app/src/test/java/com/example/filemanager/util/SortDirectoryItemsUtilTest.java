@@ -0,0 +1,101 @@
+package com.example.filemanager.util;
+
+import android.support.annotation.NonNull;
+
+import com.example.filemanager.model.DirectoryItem;
+import com.example.filemanager.model.DirectoryItemType;
+import com.example.filemanager.model.DirectoryListing;
+import com.example.filemanager.model.DirectoryListingView;
+import com.example.filemanager.model.SortType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortDirectoryItemsUtilTest {
+
+    @Test
+    public void mergesNewItemsIntoSortedOnes() {
+        List<DirectoryItem> sorted = Arrays.asList(createItem("a", 1), createItem("c", 3), createItem("e", 5));
+        List<DirectoryItem> newItems = Arrays.asList(createItem("f", 6), createItem("b", 2), createItem("d", 4), createItem("z", 0));
+
+        List<DirectoryItem> result = SortDirectoryItemsUtil.merge(sorted, newItems, SortType.DATE, false);
+
+        assertEquals(Arrays.asList("z", "a", "b", "c", "d", "e", "f"), getNames(result));
+    }
+
+    @Test
+    public void mergesInDescendingOrder() {
+        List<DirectoryItem> sorted = Arrays.asList(createItem("e", 5), createItem("a", 1));
+        List<DirectoryItem> newItems = Arrays.asList(createItem("c", 3), createItem("f", 6));
+
+        List<DirectoryItem> result = SortDirectoryItemsUtil.merge(sorted, newItems, SortType.DATE, true);
+
+        assertEquals(Arrays.asList("f", "e", "c", "a"), getNames(result));
+    }
+
+    @Test
+    public void keepsEarlierItemsFirstWhenEqual() {
+        List<DirectoryItem> sorted = Collections.singletonList(createItem("old", 1));
+        List<DirectoryItem> newItems = Collections.singletonList(createItem("new", 1));
+
+        List<DirectoryItem> result = SortDirectoryItemsUtil.merge(sorted, newItems, SortType.DATE, false);
+
+        assertEquals(Arrays.asList("old", "new"), getNames(result));
+    }
+
+    @Test
+    public void mergesLikeSortingEverything() {
+        List<DirectoryItem> all = new ArrayList<>();
+        List<DirectoryItem> merged = Collections.emptyList();
+        for (int batch = 0; batch < 10; batch++) {
+            List<DirectoryItem> newItems = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                newItems.add(createItem("file" + batch + "_" + i, (batch * 31 + i * 17) % 97));
+            }
+            all.addAll(newItems);
+            merged = SortDirectoryItemsUtil.merge(merged, newItems, SortType.DATE, false);
+        }
+
+        assertEquals(getNames(SortDirectoryItemsUtil.sort(all, SortType.DATE, false)), getNames(merged));
+    }
+
+    @Test
+    public void ordersEqualEntriesOfSmallAndLargeViewsAlike() {
+        DirectoryListing.Builder builder = new DirectoryListing.Builder("/storage", 12);
+        for (int i = 0; i < 12; i++) {
+            builder.add(DirectoryItemType.TEXT, "file" + i, i % 3, 0, false);
+        }
+        DirectoryListing listing = builder.build();
+
+        for (boolean isDescending : new boolean[]{false, true}) {
+            // Two of twelve entries are sorted on their own, the whole listing comes from the cached permutation
+            DirectoryListingView small = SortDirectoryItemsUtil.sort(new DirectoryListingView(listing, new int[]{7, 4}), SortType.DATE, isDescending);
+            DirectoryListingView all = SortDirectoryItemsUtil.sort(DirectoryListingView.of(listing), SortType.DATE, isDescending);
+
+            List<String> expected = new ArrayList<>(getNames(all));
+            expected.retainAll(Arrays.asList("file4", "file7"));
+            assertEquals(expected, getNames(small));
+        }
+    }
+
+
+    @NonNull
+    private static DirectoryItem createItem(@NonNull String name, long lastModificationTime) {
+        return new DirectoryItem(DirectoryItemType.TEXT, name, "/storage/" + name, lastModificationTime, 0, false);
+    }
+
+    @NonNull
+    private static List<String> getNames(@NonNull List<DirectoryItem> items) {
+        List<String> names = new ArrayList<>();
+        for (DirectoryItem item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+}
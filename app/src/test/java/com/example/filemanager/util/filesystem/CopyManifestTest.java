@@ -0,0 +1,91 @@
+package com.example.filemanager.util.filesystem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CopyManifestTest {
+    private File directory;
+
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("copy_manifests", null);
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+
+    @Test
+    public void savesChecksumsAndMismatches() throws IOException {
+        File file = new File(directory, "1.sfv");
+        CopyManifest manifest = new CopyManifest(file);
+        manifest.addChecksum(new File("/storage/a.jpg"), 0xCAFE);
+        manifest.addMismatch(new File("/storage/b.jpg"));
+        manifest.save();
+
+        assertEquals(
+                Arrays.asList("/storage/a.jpg 0000CAFE", "; /storage/b.jpg does not match its source"),
+                Files.readAllLines(file.toPath(), Charset.forName("UTF-8"))
+        );
+    }
+
+    @Test
+    public void keepsOnlyNewestManifests() {
+        long now = System.currentTimeMillis();
+        File[] files = new File[5];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = save(i + ".sfv", now - TimeUnit.MINUTES.toMillis(files.length - i));
+        }
+
+        CopyManifest.deleteOld(directory, 3, TimeUnit.DAYS.toMillis(30));
+
+        assertFalse(files[0].exists());
+        assertFalse(files[1].exists());
+        assertTrue(files[2].exists());
+        assertTrue(files[4].exists());
+    }
+
+    @Test
+    public void deletesManifestsOlderThanMaxAge() {
+        long now = System.currentTimeMillis();
+        File oldFile = save("old.sfv", now - TimeUnit.DAYS.toMillis(31));
+        File newFile = save("new.sfv", now);
+
+        CopyManifest.deleteOld(directory, 50, TimeUnit.DAYS.toMillis(30));
+
+        assertFalse(oldFile.exists());
+        assertTrue(newFile.exists());
+    }
+
+
+    private File save(String name, long lastModificationTime) {
+        File file = new File(directory, name);
+        CopyManifest manifest = new CopyManifest(file);
+        manifest.addChecksum(new File("/storage/" + name), 0);
+        manifest.save();
+        assertTrue(file.setLastModified(lastModificationTime));
+        return file;
+    }
+}
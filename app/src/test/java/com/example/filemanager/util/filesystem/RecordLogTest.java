@@ -0,0 +1,135 @@
+package com.example.filemanager.util.filesystem;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecordLogTest {
+    private File file;
+
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("record_log", null);
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+
+    @Test
+    public void keepsLastRecordOfEveryKey() {
+        RecordLog<Long> log = createLog();
+        log.put("a", 1L);
+        log.put("b", 2L);
+        log.put("a", 3L);
+        log.close();
+
+        RecordLog<Long> reopened = createLog();
+        assertEquals(Long.valueOf(3), reopened.get("a"));
+        assertEquals(Long.valueOf(2), reopened.get("b"));
+    }
+
+    @Test
+    public void appendsAfterTruncatedLastRecord() throws IOException {
+        RecordLog<Long> log = createLog();
+        log.put("a", 1L);
+        log.put("b", 2L);
+        log.close();
+        // Killed in the middle of the last append
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(file.length() - 3);
+        }
+
+        RecordLog<Long> reopened = createLog();
+        assertEquals(Long.valueOf(1), reopened.get("a"));
+        assertNull(reopened.get("b"));
+        reopened.put("c", 3L);
+        reopened.close();
+
+        RecordLog<Long> again = createLog();
+        assertEquals(Long.valueOf(1), again.get("a"));
+        assertEquals(Long.valueOf(3), again.get("c"));
+    }
+
+    @Test
+    public void discardsLogThatCantBeParsed() throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeUTF("a");
+            // Longer than the rest of the log
+            output.writeLong(Long.MAX_VALUE);
+        }
+
+        RecordLog<Long> log = createLog();
+        assertNull(log.get("a"));
+        log.put("b", 2L);
+        log.close();
+
+        assertEquals(Long.valueOf(2), createLog().get("b"));
+    }
+
+    @Test
+    public void discardsLogWhenReaderThrows() throws IOException {
+        RecordLog<Long> log = createLog();
+        log.put("a", 1L);
+        log.close();
+
+        RecordLog<Long> throwing = new RecordLog<>(file, (input, remainingBytes) -> {
+            throw new IllegalStateException();
+        }, RecordLogTest::writeValue);
+        assertNull(throwing.get("a"));
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void compactsStaleRecords() {
+        RecordLog<Long> log = createLog();
+        for (int i = 0; i < 2000; i++) {
+            log.put("a", 0L);
+        }
+        log.close();
+        long length = file.length();
+
+        RecordLog<Long> reopened = createLog();
+        assertEquals(Long.valueOf(0), reopened.get("a"));
+        assertEquals(length / 2000, file.length());
+    }
+
+
+    @NonNull
+    private RecordLog<Long> createLog() {
+        return new RecordLog<>(file, RecordLogTest::readValue, RecordLogTest::writeValue);
+    }
+
+    // A length followed by that many bytes, like a record with an array
+    @NonNull
+    private static Long readValue(@NonNull DataInputStream input, long remainingBytes) throws IOException {
+        long length = input.readLong();
+        if (length < 0 || length > remainingBytes) {
+            throw new StreamCorruptedException("Length " + length + " exceeds the log");
+        }
+        input.skipBytes((int) length);
+        return length;
+    }
+
+    private static void writeValue(@NonNull DataOutputStream output, @NonNull Long value) throws IOException {
+        output.writeLong(value);
+        output.write(new byte[(int) (long) value]);
+    }
+}